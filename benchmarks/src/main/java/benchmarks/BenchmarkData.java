@@ -0,0 +1,48 @@
+package benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import models.Film;
+import util.ResponseHandler;
+
+/*
+ * Test data shared by the benchmarks: films with realistic field lengths, and their serialised forms.
+ */
+final class BenchmarkData {
+    private BenchmarkData() {}
+
+    /*
+     * Creates a list of distinct films.
+     */
+    static List<Film> films(int size) {
+        List<Film> films = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            films.add(new Film(i, "The Film Number " + i, 1950 + i % 70, "Director Name " + (i % 500),
+                    "First Star " + i + ", Second Star " + (i + 1) + ", Third Star " + (i + 2),
+                    "A review of film " + i + " that runs to a sentence or two, as most of the reviews do, "
+                            + "with some commentary on the plot, the acting & the \"ending\"."));
+        }
+        return films;
+    }
+
+    /*
+     * Serialises data the way the API does, through ResponseHandler.
+     */
+    static String serialize(Object data, String format) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        new ResponseHandler().writeResponse(FakeServlet.request(format, null, null), FakeServlet.response(body),
+                data);
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    /*
+     * Returns the request Content-Type for a format name.
+     */
+    static String contentType(String format) {
+        return new ResponseHandler().getResponseType(format);
+    }
+}
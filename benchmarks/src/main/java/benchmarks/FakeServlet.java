@@ -0,0 +1,126 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/*
+ * Minimal stand-ins for the servlet request and response, covering only what RequestParser and
+ * ResponseHandler use, so they can be benchmarked without a container.
+ */
+final class FakeServlet {
+    private FakeServlet() {}
+
+    /*
+     * Creates a request asking for the given response format, carrying an optional body.
+     */
+    static HttpServletRequest request(String format, String contentType, String body) {
+        return (HttpServletRequest) Proxy.newProxyInstance(FakeServlet.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getParameter":
+                            return "format".equals(args[0]) ? format : null;
+                        case "getContentType":
+                            return contentType;
+                        case "getMethod":
+                            return body == null ? "GET" : "POST";
+                        case "getPathInfo":
+                            return "/";
+                        case "getReader":
+                            return new BufferedReader(new StringReader(body));
+                        case "getInputStream":
+                            return inputStream(body.getBytes(StandardCharsets.UTF_8));
+                        case "getCharacterEncoding":
+                            return "UTF-8";
+                        case "getContentLengthLong":
+                            return body == null ? -1L : (long) body.getBytes(StandardCharsets.UTF_8).length;
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static ServletInputStream inputStream(byte[] body) {
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+        };
+    }
+
+    /*
+     * Creates a response whose body is written to the given stream; headers are discarded.
+     */
+    static HttpServletResponse response(OutputStream body) {
+        ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                body.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                body.write(b, off, len);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+        return (HttpServletResponse) Proxy.newProxyInstance(FakeServlet.class.getClassLoader(),
+                new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+                    if ("getOutputStream".equals(method.getName())) {
+                        return out;
+                    }
+                    return defaultValue(method.getReturnType());
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import models.Film;
+
+/*
+ * The text codec as it was before TextConverter stopped using String.format and String.split, kept as the
+ * baseline TextCodecBenchmark measures against. It produces and accepts exactly the same text.
+ */
+final class LegacyTextCodec {
+    private LegacyTextCodec() {}
+
+    static String convertToText(List<Film> films) {
+        StringBuilder sb = new StringBuilder();
+        for (Film film : films) {
+            sb.append(String.format("Id: %d%nTitle: %s%nYear: %d%nDirector: %s%nStars: %s%nReview: %s%n",
+                    film.getId(),
+                    film.getTitle(),
+                    film.getYear(),
+                    film.getDirector(),
+                    film.getStars(),
+                    film.getReview()));
+            sb.append("\n---\n");
+        }
+        return sb.toString();
+    }
+
+    static Film convertFromText(String text) {
+        Film film = new Film();
+        for (String line : text.split("\n")) {
+            int colonIndex = line.indexOf(':');
+            if (colonIndex != -1) {
+                String key = line.substring(0, colonIndex).trim().toLowerCase();
+                String value = line.substring(colonIndex + 1).trim();
+                switch (key) {
+                    case "title":
+                        film.setTitle(value);
+                        break;
+                    case "year":
+                        try {
+                            film.setYear(Integer.parseInt(value));
+                        } catch (NumberFormatException e) {
+                            // Left unset, as before.
+                        }
+                        break;
+                    case "director":
+                        film.setDirector(value);
+                        break;
+                    case "stars":
+                        film.setStars(value);
+                        break;
+                    case "review":
+                        film.setReview(value);
+                        break;
+                }
+            }
+        }
+        return film;
+    }
+
+    static List<Film> readRecords(Reader in) throws IOException {
+        BufferedReader lines = new BufferedReader(in);
+        List<Film> films = new ArrayList<>();
+        StringBuilder record = new StringBuilder();
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.trim().equals("---")) {
+                if (!record.toString().isBlank()) {
+                    films.add(convertFromText(record.toString()));
+                }
+                record.setLength(0);
+            } else {
+                record.append(line).append('\n');
+            }
+        }
+        if (!record.toString().isBlank()) {
+            films.add(convertFromText(record.toString()));
+        }
+        return films;
+    }
+}
@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import util.FilmRecordReader;
+import util.RequestParser;
+
+/*
+ * Parsing cost of a list of films in every format, read record by record as the bulk endpoint does
+ * (RequestParser.openFilmRecords, through each converter's record reader).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParsingBenchmark {
+    @Param({ "1", "100", "10000" })
+    private int size;
+
+    @Param({ "json", "xml", "yaml", "text" })
+    private String format;
+
+    private String listBody;
+    private String contentType;
+    private final RequestParser requestParser = new RequestParser();
+
+    @Setup
+    public void setUp() throws IOException {
+        listBody = BenchmarkData.serialize(BenchmarkData.films(size), format);
+        contentType = BenchmarkData.contentType(format);
+    }
+
+    @Benchmark
+    public void parseFilmRecords(Blackhole blackhole) throws IOException {
+        FilmRecordReader records = requestParser.openFilmRecords(
+                FakeServlet.request(format, contentType, listBody), contentType);
+        while (records.next()) {
+            blackhole.consume(records.getFilm());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import models.Film;
+import util.RequestParser;
+
+/*
+ * Parsing cost of a single-film request body in every format, as POST and PUT read it
+ * (RequestParser.parseRequestBody, through each converter's convertFrom method).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestBodyBenchmark {
+    @Param({ "json", "xml", "yaml", "text" })
+    private String format;
+
+    private String body;
+    private String contentType;
+    private final RequestParser requestParser = new RequestParser();
+
+    @Setup
+    public void setUp() throws IOException {
+        body = BenchmarkData.serialize(BenchmarkData.films(1).get(0), format);
+        contentType = BenchmarkData.contentType(format);
+    }
+
+    @Benchmark
+    public Film parseRequestBody() throws IOException {
+        return requestParser.parseRequestBody(FakeServlet.request(format, contentType, body), contentType);
+    }
+}
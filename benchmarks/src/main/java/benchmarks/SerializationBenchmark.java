@@ -0,0 +1,67 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import models.Film;
+import util.RequestParser;
+import util.ResponseHandler;
+
+/*
+ * Serialisation cost of a list of films in every format: the streaming path the API uses
+ * (ResponseHandler.writeResponse, through each converter's stream writer) and the String-building
+ * path (RequestParser.serializeData, through each converter's convertTo method).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+    @Param({ "1", "100", "10000" })
+    private int size;
+
+    @Param({ "json", "xml", "yaml", "text" })
+    private String format;
+
+    private List<Film> films;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private final ResponseHandler responseHandler = new ResponseHandler();
+    private final RequestParser requestParser = new RequestParser();
+
+    @Setup
+    public void setUp() {
+        films = BenchmarkData.films(size);
+        request = FakeServlet.request(format, null, null);
+        response = FakeServlet.response(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void writeResponse() throws IOException {
+        responseHandler.writeResponse(request, response, films);
+    }
+
+    @Benchmark
+    public String serializeData() {
+        return requestParser.serializeData(films, format);
+    }
+}
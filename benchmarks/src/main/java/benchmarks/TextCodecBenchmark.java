@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import models.Film;
+import util.FilmRecordReader;
+import util.FilmStreamWriter;
+import util.TextConverter;
+
+/*
+ * Cost of the text codec against its String.format and String.split predecessor (LegacyTextCodec),
+ * writing a list of films and reading it back as "---"-separated records. Run with -prof gc (the default
+ * for exec:exec) to compare the bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TextCodecBenchmark {
+    @Param({ "1", "100", "10000" })
+    private int size;
+
+    private List<Film> films;
+    private String body;
+    private final TextConverter textConverter = TextConverter.getInstance();
+
+    @Setup
+    public void setUp() {
+        films = BenchmarkData.films(size);
+        body = textConverter.convertToText(films);
+    }
+
+    @Benchmark
+    public String writeLegacy() {
+        return LegacyTextCodec.convertToText(films);
+    }
+
+    @Benchmark
+    public void writeStream() throws IOException {
+        FilmStreamWriter writer = textConverter.newStreamWriter(Writer.nullWriter());
+        for (Film film : films) {
+            writer.write(film);
+        }
+        writer.finish();
+    }
+
+    @Benchmark
+    public String writeString() {
+        return textConverter.convertToText(films);
+    }
+
+    @Benchmark
+    public List<Film> readLegacy() throws IOException {
+        return LegacyTextCodec.readRecords(new StringReader(body));
+    }
+
+    @Benchmark
+    public void readRecords(Blackhole blackhole) throws IOException {
+        FilmRecordReader records = textConverter.newRecordReader(new StringReader(body));
+        while (records.next()) {
+            blackhole.consume(records.getFilm());
+        }
+    }
+}
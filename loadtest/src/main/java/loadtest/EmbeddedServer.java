@@ -0,0 +1,120 @@
+package loadtest;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.servlet.Filter;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+
+import controllers.filters.CompressionFilter;
+import controllers.filters.ConcurrencyLimitFilter;
+import controllers.filters.CorsFilter;
+import controllers.filters.MetricsFilter;
+import controllers.rest.FilmController;
+import controllers.rest.MetricsController;
+import listeners.AppContextListener;
+
+/*
+ * Runs the application in an embedded Tomcat against an in-memory H2 database in MySQL mode, seeded with
+ * synthetic films. The servlets, filters and listener are registered explicitly, the way their annotations
+ * declare them, since an embedded context does not scan for annotations.
+ */
+final class EmbeddedServer {
+    private static final String JDBC_URL =
+            "jdbc:h2:mem:films;MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR;IGNORECASE=TRUE";
+
+    private final Tomcat tomcat = new Tomcat();
+
+    /*
+     * Creates the films table and inserts the given number of synthetic films, then points the
+     * application at the database. Must run before any application class reads its configuration.
+     */
+    void seed(int films) throws SQLException {
+        System.setProperty("filmrestful.jdbcUrl", JDBC_URL);
+        System.setProperty("filmrestful.jdbcUser", "sa");
+        System.setProperty("filmrestful.jdbcPassword", "");
+        // H2 has no MySQL row-by-row streaming, so stream with a regular fetch size.
+        System.setProperty("filmrestful.dao.streamFetchSize", "100");
+
+        try (Connection conn = DriverManager.getConnection(JDBC_URL, "sa", "");
+                Statement statement = conn.createStatement()) {
+            statement.execute("CREATE TABLE films (id INT AUTO_INCREMENT PRIMARY KEY, title VARCHAR(255),"
+                    + " year INT, director VARCHAR(255), stars VARCHAR(500), review TEXT)");
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO films (title, year, director, stars, review) VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= films; i++) {
+                    insert.setString(1, Workload.title(i));
+                    insert.setInt(2, 1920 + i % 100);
+                    insert.setString(3, "Director " + i % 997);
+                    insert.setString(4, "Star " + i % 1999 + ", Star " + (i + 7) % 1999);
+                    insert.setString(5, "A synthetic review of film " + i + " for load testing.");
+                    insert.addBatch();
+                    if (i % 1000 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    /*
+     * Starts Tomcat on the given port, or on a free port if it is 0.
+     * @return The base URL of the application, e.g. http://localhost:8080
+     */
+    String start(int requestedPort) throws Exception {
+        File baseDir = Files.createTempDirectory("filmrestful-loadtest").toFile();
+        baseDir.deleteOnExit();
+        tomcat.setBaseDir(baseDir.getAbsolutePath());
+        tomcat.setPort(requestedPort);
+        tomcat.getConnector().setProperty("maxThreads", "200");
+
+        Context context = tomcat.addContext("", baseDir.getAbsolutePath());
+        context.addApplicationListener(AppContextListener.class.getName());
+
+        // Same order as the filter mappings in web.xml.
+        addFilter(context, "CorsFilter", new CorsFilter(), "/*");
+        addFilter(context, "CompressionFilter", new CompressionFilter(), "/*");
+        addFilter(context, "MetricsFilter", new MetricsFilter(), "/filmapi/*");
+        addFilter(context, "ConcurrencyLimitFilter", new ConcurrencyLimitFilter(), "/filmapi/*");
+
+        Wrapper films = Tomcat.addServlet(context, "FilmController", new FilmController());
+        films.setAsyncSupported(true);
+        context.addServletMappingDecoded("/filmapi/*", "FilmController");
+        Tomcat.addServlet(context, "MetricsController", new MetricsController());
+        context.addServletMappingDecoded("/metrics", "MetricsController");
+
+        tomcat.start();
+        return "http://localhost:" + tomcat.getConnector().getLocalPort();
+    }
+
+    private static void addFilter(Context context, String name, Filter filter, String urlPattern) {
+        FilterDef definition = new FilterDef();
+        definition.setFilterName(name);
+        definition.setFilter(filter);
+        definition.setAsyncSupported("true");
+        context.addFilterDef(definition);
+        FilterMap mapping = new FilterMap();
+        mapping.setFilterName(name);
+        mapping.addURLPattern(urlPattern);
+        context.addFilterMap(mapping);
+    }
+
+    void stop() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+}
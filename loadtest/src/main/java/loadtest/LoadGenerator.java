@@ -0,0 +1,132 @@
+package loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Drives a workload against the server in one of two ways:
+ * closed loop, where a fixed number of clients each send a request and wait for the reply before sending
+ * the next, so throughput is whatever the server sustains; and open loop, where requests are issued at a
+ * fixed rate regardless of how fast replies come back, as independent users would. Open-loop latency is
+ * measured from when each request was due, so a stalled server shows up in the percentiles instead of
+ * quietly slowing the generator down (coordinated omission).
+ * Requests completing during the warm-up are not recorded.
+ */
+final class LoadGenerator {
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10)).build();
+    private final Workload workload;
+    private final Results results = new Results();
+
+    LoadGenerator(Workload workload) {
+        this.workload = workload;
+    }
+
+    Results getResults() {
+        return results;
+    }
+
+    /*
+     * Runs the given number of clients, each sending requests back to back.
+     */
+    void runClosedLoop(int clients, long warmupNanos, long durationNanos) throws InterruptedException {
+        long measureFrom = System.nanoTime() + warmupNanos;
+        long end = measureFrom + durationNanos;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Thread thread = new Thread(() -> {
+                Random random = ThreadLocalRandom.current();
+                while (System.nanoTime() < end) {
+                    Workload.Request request = workload.build(workload.next(random), random);
+                    long start = System.nanoTime();
+                    int status = send(request);
+                    if (start >= measureFrom) {
+                        results.record(request.operation, status, System.nanoTime() - start);
+                    }
+                }
+            }, "load-client-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /*
+     * Issues requests at a fixed rate. At most maxOutstanding requests are in flight; requests that would
+     * exceed it are not sent and are counted as failures, since the server has evidently stopped keeping up.
+     */
+    void runOpenLoop(int requestsPerSecond, int maxOutstanding, long warmupNanos, long durationNanos)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        double intervalNanos = 1_000_000_000.0 / requestsPerSecond;
+        Semaphore outstanding = new Semaphore(maxOutstanding);
+        AtomicLong skipped = new AtomicLong();
+        Random random = ThreadLocalRandom.current();
+
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * intervalNanos);
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Workload.Request request = workload.build(workload.next(random), random);
+            boolean measured = due >= measureFrom;
+            if (!outstanding.tryAcquire()) {
+                skipped.incrementAndGet();
+                if (measured) {
+                    results.record(request.operation, 0, System.nanoTime() - due);
+                }
+                continue;
+            }
+            client.sendAsync(request.httpRequest, HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        outstanding.release();
+                        int status = response == null ? 0 : response.statusCode();
+                        if (response != null) {
+                            workload.completed(request, status, response.body());
+                        }
+                        if (measured) {
+                            results.record(request.operation, status, System.nanoTime() - due);
+                        }
+                    });
+        }
+        // Let the requests still in flight finish, so they are counted.
+        if (!outstanding.tryAcquire(maxOutstanding, 60, TimeUnit.SECONDS)) {
+            System.err.println("Some requests were still outstanding 60s after the run ended");
+        }
+        if (skipped.get() > 0) {
+            System.err.println(skipped.get() + " requests were not sent because " + maxOutstanding
+                    + " were already outstanding");
+        }
+    }
+
+    private int send(Workload.Request request) {
+        try {
+            HttpResponse<String> response = client.send(request.httpRequest, HttpResponse.BodyHandlers.ofString());
+            workload.completed(request, response.statusCode(), response.body());
+            return response.statusCode();
+        } catch (IOException e) {
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package loadtest;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Entry point of the load test. Seeds the in-memory database, boots the application, runs the workload
+ * and prints throughput and latency percentiles per endpoint.
+ *
+ * Options (all optional):
+ *   --films=10000          number of synthetic films to seed
+ *   --mode=closed          closed (fixed number of clients) or open (fixed request rate)
+ *   --clients=32           concurrent clients in closed mode
+ *   --rate=1000            requests per second in open mode
+ *   --maxOutstanding=5000  cap on requests in flight in open mode
+ *   --warmup=10            seconds of warm-up, not recorded
+ *   --duration=30          seconds measured
+ *   --mix=list=10,get=50,search=15,create=10,update=10,delete=5
+ *   --port=0               port to listen on, 0 for any free port
+ *   --app.<key>=<value>    any application setting, e.g. --app.limiter.enabled=false
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        // Set before the application reads its configuration; --app.log.level overrides it.
+        System.setProperty("filmrestful.log.level", "WARN");
+        Options options = new Options(args);
+        int films = options.getInt("films", 10_000);
+        String mode = options.getString("mode", "closed");
+        long warmupNanos = TimeUnit.SECONDS.toNanos(options.getInt("warmup", 10));
+        long durationNanos = TimeUnit.SECONDS.toNanos(options.getInt("duration", 30));
+
+        EmbeddedServer server = new EmbeddedServer();
+        System.out.println("Seeding " + films + " films");
+        server.seed(films);
+        String baseUrl = server.start(options.getInt("port", 0));
+        System.out.println("Application listening on " + baseUrl);
+
+        Workload workload = new Workload(baseUrl, films,
+                options.getString("mix", "list=10,get=50,search=15,create=10,update=10,delete=5"));
+        LoadGenerator generator = new LoadGenerator(workload);
+        try {
+            if ("open".equals(mode)) {
+                int rate = options.getInt("rate", 1000);
+                System.out.println("Open loop at " + rate + " requests/s");
+                generator.runOpenLoop(rate, options.getInt("maxOutstanding", 5000), warmupNanos, durationNanos);
+            } else {
+                int clients = options.getInt("clients", 32);
+                System.out.println("Closed loop with " + clients + " clients");
+                generator.runClosedLoop(clients, warmupNanos, durationNanos);
+            }
+            generator.getResults().print(System.out, durationNanos / 1e9);
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package loadtest;
+
+/*
+ * The kinds of request the load generator sends, each reported separately.
+ */
+enum Operation {
+    LIST("list", "GET /filmapi"),
+    GET("get", "GET /filmapi/films/{id}"),
+    SEARCH("search", "GET /filmapi/search"),
+    CREATE("create", "POST /filmapi"),
+    UPDATE("update", "PUT /filmapi/films/{id}"),
+    DELETE("delete", "DELETE /filmapi/films/{id}");
+
+    private final String name;
+    private final String endpoint;
+
+    Operation(String name, String endpoint) {
+        this.name = name;
+        this.endpoint = endpoint;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    static Operation forName(String name) {
+        for (Operation operation : values()) {
+            if (operation.name.equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + name);
+    }
+}
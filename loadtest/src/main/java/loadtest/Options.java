@@ -0,0 +1,36 @@
+package loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Command-line options of the form --name=value. Options named --app.<key>=value are passed to the
+ * application as the system property filmrestful.<key>, overriding its config.properties.
+ */
+final class Options {
+    private final Map<String, String> values = new HashMap<>();
+
+    Options(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (name.startsWith("app.")) {
+                System.setProperty("filmrestful." + name.substring(4), value);
+            } else {
+                values.put(name, value);
+            }
+        }
+    }
+
+    String getString(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    int getInt(String name, int defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
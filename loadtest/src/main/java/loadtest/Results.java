@@ -0,0 +1,84 @@
+package loadtest;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+
+import metrics.Histogram;
+
+/*
+ * Latency and outcome counts per operation, recorded with the application's own lock-free histograms.
+ * Latency is in nanoseconds and, in open-loop runs, measured from when the request was due to be sent.
+ */
+final class Results {
+    private final Histogram[] latency = new Histogram[Operation.values().length];
+    private final Histogram allLatency = new Histogram();
+    private final LongAdder[] successes = new LongAdder[Operation.values().length];
+    private final LongAdder[] clientErrors = new LongAdder[Operation.values().length];
+    private final LongAdder[] serverErrors = new LongAdder[Operation.values().length];
+    private final LongAdder[] failures = new LongAdder[Operation.values().length];
+
+    Results() {
+        for (int i = 0; i < latency.length; i++) {
+            latency[i] = new Histogram();
+            successes[i] = new LongAdder();
+            clientErrors[i] = new LongAdder();
+            serverErrors[i] = new LongAdder();
+            failures[i] = new LongAdder();
+        }
+    }
+
+    /*
+     * Records a completed request; a status of 0 means it failed without a response.
+     */
+    void record(Operation operation, int status, long latencyNanos) {
+        int i = operation.ordinal();
+        latency[i].record(latencyNanos);
+        allLatency.record(latencyNanos);
+        if (status == 0) {
+            failures[i].increment();
+        } else if (status >= 500) {
+            serverErrors[i].increment();
+        } else if (status >= 400) {
+            clientErrors[i].increment();
+        } else {
+            successes[i].increment();
+        }
+    }
+
+    /*
+     * Prints throughput and latency percentiles per endpoint, then for all requests together.
+     * @param seconds Length of the measured period.
+     */
+    void print(PrintStream out, double seconds) {
+        out.printf("%-26s %9s %9s %9s %9s %9s %9s %7s %7s %7s%n", "endpoint", "requests", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "4xx", "5xx", "failed");
+        long allClientErrors = 0;
+        long allServerErrors = 0;
+        long allFailures = 0;
+        for (Operation operation : Operation.values()) {
+            int i = operation.ordinal();
+            Histogram.Snapshot snapshot = latency[i].snapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            printRow(out, operation.getEndpoint(), snapshot, seconds, clientErrors[i].sum(), serverErrors[i].sum(),
+                    failures[i].sum());
+            allClientErrors += clientErrors[i].sum();
+            allServerErrors += serverErrors[i].sum();
+            allFailures += failures[i].sum();
+        }
+        printRow(out, "all", allLatency.snapshot(), seconds, allClientErrors, allServerErrors, allFailures);
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram.Snapshot snapshot, double seconds,
+            long clientErrors, long serverErrors, long failures) {
+        out.printf("%-26s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %7d %7d %7d%n", name, snapshot.getCount(),
+                snapshot.getCount() / seconds, millis(snapshot.quantile(0.5)), millis(snapshot.quantile(0.9)),
+                millis(snapshot.quantile(0.99)), millis(snapshot.quantile(0.999)), clientErrors, serverErrors,
+                failures);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,145 @@
+package loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import util.PageCursor;
+
+/*
+ * A weighted mix of operations and the requests that make them up. Reads and updates target the seeded
+ * films; deletes only remove films this run created, so the catalog keeps its size.
+ */
+final class Workload {
+    private static final Pattern CREATED_ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private final String baseUrl;
+    private final int seededFilms;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final Queue<Integer> created = new ConcurrentLinkedQueue<>();
+
+    /*
+     * @param mix Weights per operation, e.g. "list=10,get=50,search=15,create=10,update=10,delete=5".
+     */
+    Workload(String baseUrl, int seededFilms, String mix) {
+        this.baseUrl = baseUrl;
+        this.seededFilms = seededFilms;
+        String[] entries = mix.split(",");
+        this.operations = new Operation[entries.length];
+        this.cumulativeWeights = new int[entries.length];
+        int total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            String[] parts = entries[i].trim().split("=");
+            operations[i] = Operation.forName(parts[0].trim());
+            total += Integer.parseInt(parts[1].trim());
+            cumulativeWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("The workload mix has no weight: " + mix);
+        }
+    }
+
+    /*
+     * Title of the i-th seeded film; searches look for fragments of these.
+     */
+    static String title(int i) {
+        return "Synthetic Film " + i;
+    }
+
+    Operation next(Random random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    /*
+     * Builds the request for an operation. A delete with no created film left to remove becomes a create.
+     */
+    Request build(Operation operation, Random random) {
+        switch (operation) {
+            case LIST:
+                String cursor = PageCursor.encode(random.nextInt(seededFilms));
+                return new Request(operation, get("/filmapi?limit=20&after=" + cursor));
+            case GET:
+                return new Request(operation, get("/filmapi/films/" + randomId(random)));
+            case SEARCH:
+                String query = URLEncoder.encode("Film " + random.nextInt(1000), StandardCharsets.UTF_8);
+                return new Request(operation, get("/filmapi/search?query=" + query + "&limit=20"));
+            case UPDATE:
+                int id = randomId(random);
+                return new Request(operation, send("PUT", "/filmapi/films/" + id, filmJson(id, random)));
+            case DELETE:
+                Integer deletable = created.poll();
+                if (deletable != null) {
+                    return new Request(operation,
+                            request("/filmapi/films/" + deletable).DELETE().build());
+                }
+                return build(Operation.CREATE, random);
+            default:
+                return new Request(Operation.CREATE, send("POST", "/filmapi", filmJson(0, random)));
+        }
+    }
+
+    /*
+     * Remembers films created by the run, so later deletes have something to remove.
+     */
+    void completed(Request request, int status, String body) {
+        if (request.operation == Operation.CREATE && status == 201 && body != null) {
+            Matcher matcher = CREATED_ID.matcher(body);
+            if (matcher.find()) {
+                created.add(Integer.parseInt(matcher.group(1)));
+            }
+        }
+    }
+
+    private int randomId(Random random) {
+        return 1 + random.nextInt(seededFilms);
+    }
+
+    private static String filmJson(int id, Random random) {
+        int n = random.nextInt(1_000_000);
+        return "{" + (id > 0 ? "\"id\":" + id + "," : "") + "\"title\":\"Load Test Film " + n + "\",\"year\":"
+                + (1920 + n % 100) + ",\"director\":\"Director " + n % 997 + "\",\"stars\":\"Star " + n % 1999
+                + "\",\"review\":\"Written by the load generator.\"}";
+    }
+
+    private HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    private HttpRequest send(String method, String path, String json) {
+        return request(path).header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(json)).build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json");
+    }
+
+    /*
+     * An HTTP request together with the operation it is counted under.
+     */
+    static final class Request {
+        final Operation operation;
+        final HttpRequest httpRequest;
+
+        Request(Operation operation, HttpRequest httpRequest) {
+            this.operation = operation;
+            this.httpRequest = httpRequest;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package controllers.filters;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import util.AppConfig;
+
+/*
+ * Filter that compresses responses with gzip or deflate, negotiated from the request's Accept-Encoding header.
+ * Compression happens on the fly as the servlet writes, so streamed lists are never buffered in full:
+ * only the first compression.minSize bytes are held back to decide whether the body is worth compressing.
+ * Bodies smaller than that, 204 and 304 responses, HEAD requests, content types not listed in
+ * compression.mimeTypes and responses that already have a Content-Encoding are passed through unchanged.
+ * Asynchronous responses are finished when the handler closes the response's output stream.
+ */
+@WebFilter(filterName = "CompressionFilter", urlPatterns = "/*", asyncSupported = true)
+public class CompressionFilter implements Filter {
+    private boolean enabled;
+    private int minSize;
+    private int level;
+    private Set<String> mimeTypes;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        AppConfig config = AppConfig.getInstance();
+        enabled = config.getBoolean("compression.enabled", true);
+        minSize = Math.max(0, config.getInt("compression.minSize", 1024));
+        level = Math.max(1, Math.min(9, config.getInt("compression.level", 6)));
+        mimeTypes = Arrays.stream(config.getString("compression.mimeTypes",
+                "application/json,application/xml,application/x-yaml,application/cbor,text/plain,text/html").split(","))
+                .map(String::trim)
+                .filter(type -> !type.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+
+        if (!enabled) {
+            chain.doFilter(req, res);
+            return;
+        }
+        // The chosen encoding depends on Accept-Encoding, so shared caches must key on it.
+        response.addHeader("Vary", "Accept-Encoding");
+        String encoding = "HEAD".equals(request.getMethod()) ? null : negotiate(request.getHeader("Accept-Encoding"));
+        if (encoding == null) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        CompressionResponseWrapper wrapper = new CompressionResponseWrapper(response, encoding, level, minSize,
+                mimeTypes);
+        boolean async = false;
+        try {
+            chain.doFilter(req, wrapper);
+            async = request.isAsyncStarted();
+        } finally {
+            // An asynchronous response is still being written; closing its output stream finishes it instead.
+            if (!async) {
+                wrapper.finish();
+            }
+        }
+    }
+
+    /*
+     * Picks gzip or deflate from an Accept-Encoding header, preferring gzip when both are equally acceptable.
+     * @return The encoding to use, or null if the client accepts neither.
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        double gzip = 0;
+        double deflate = 0;
+        double any = 0;
+        boolean gzipListed = false;
+        boolean deflateListed = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] pieces = part.split(";");
+            String coding = pieces[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < pieces.length; i++) {
+                String param = pieces[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = q;
+                gzipListed = true;
+            } else if (coding.equals("deflate")) {
+                deflate = q;
+                deflateListed = true;
+            } else if (coding.equals("*")) {
+                any = q;
+            }
+        }
+        // Codings not listed take the weight of "*", if present.
+        if (!gzipListed) {
+            gzip = any;
+        }
+        if (!deflateListed) {
+            deflate = any;
+        }
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? "gzip" : "deflate";
+    }
+
+    @Override
+    public void destroy() {
+        // No resources to release; compressors are owned by each response.
+    }
+}
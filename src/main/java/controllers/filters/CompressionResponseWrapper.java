@@ -0,0 +1,357 @@
+package controllers.filters;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/*
+ * Response wrapper used by CompressionFilter. The body is held back until minSize bytes have been
+ * written; at that point the status, content type and headers are checked once and the body is either
+ * compressed from then on or passed through. A body that finishes below minSize is sent uncompressed
+ * with an exact Content-Length. Flushes while compressing use a sync flush, so streamed responses
+ * still reach the client incrementally. A body still held back when a WriteListener is registered is
+ * passed through uncompressed, so non-blocking writes keep working.
+ */
+class CompressionResponseWrapper extends HttpServletResponseWrapper {
+    private enum State { BUFFERING, COMPRESSING, PASSTHROUGH, FINISHED }
+
+    private final HttpServletResponse response;
+    private final String encoding;
+    private final int level;
+    private final Set<String> mimeTypes;
+
+    private State state = State.BUFFERING;
+    private byte[] buffer;
+    private int count;
+    private long contentLength = -1;
+    private DeflaterOutputStream compressor;
+    private CompressingOutputStream outputStream;
+    private PrintWriter writer;
+
+    CompressionResponseWrapper(HttpServletResponse response, String encoding, int level, int minSize,
+            Set<String> mimeTypes) {
+        super(response);
+        this.response = response;
+        this.encoding = encoding;
+        this.level = level;
+        this.mimeTypes = mimeTypes;
+        this.buffer = new byte[Math.max(1, minSize)];
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response");
+        }
+        if (outputStream == null) {
+            outputStream = new CompressingOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called on this response");
+            }
+            outputStream = new CompressingOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        setContentLengthLong(length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        if (state == State.BUFFERING) {
+            // Known-small bodies are never worth compressing, so decide straight away.
+            if (length < buffer.length) {
+                passThrough();
+                response.setContentLengthLong(length);
+            } else {
+                contentLength = length;
+            }
+        } else if (state == State.PASSTHROUGH) {
+            response.setContentLengthLong(length);
+        }
+        // While compressing the original length no longer applies.
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value.trim()));
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value.trim()));
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (state == State.BUFFERING) {
+            // Keep holding the body back; the decision is made once minSize bytes have arrived or at finish().
+            return;
+        }
+        if (state == State.COMPRESSING) {
+            compressor.flush();
+        }
+        response.flushBuffer();
+    }
+
+    @Override
+    public boolean isCommitted() {
+        // Bytes held back have not been sent, so the status and headers can still change.
+        return state != State.BUFFERING && response.isCommitted();
+    }
+
+    @Override
+    public void reset() {
+        discardBuffer();
+        super.reset();
+    }
+
+    @Override
+    public void resetBuffer() {
+        discardBuffer();
+        super.resetBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        // Error pages are written by the container straight to the underlying response.
+        discardBuffer();
+        passThrough();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        discardBuffer();
+        passThrough();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        discardBuffer();
+        passThrough();
+        super.sendRedirect(location);
+    }
+
+    /*
+     * Completes the response: sends a body still held back uncompressed, or writes the compressed trailer.
+     * Called by CompressionFilter once the servlet has finished.
+     */
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        switch (state) {
+            case BUFFERING:
+                passThrough();
+                if (count > 0 || !isBodiless(response.getStatus())) {
+                    response.setContentLength(count);
+                }
+                writeBuffered();
+                break;
+            case COMPRESSING:
+                // Writes the trailer, releases the deflater and completes the underlying stream.
+                compressor.close();
+                break;
+            default:
+                break;
+        }
+        state = State.FINISHED;
+    }
+
+    private void discardBuffer() {
+        if (state == State.BUFFERING) {
+            count = 0;
+        }
+    }
+
+    private void passThrough() {
+        if (state == State.BUFFERING) {
+            state = State.PASSTHROUGH;
+            if (contentLength >= 0) {
+                response.setContentLengthLong(contentLength);
+            }
+        }
+    }
+
+    /*
+     * Decides, once the body has reached minSize, whether to compress it.
+     */
+    private void decide() throws IOException {
+        if (shouldCompress()) {
+            state = State.COMPRESSING;
+            response.setHeader("Content-Encoding", encoding);
+            // The compressed bytes differ from the identity representation, so a strong ETag becomes weak.
+            String etag = response.getHeader("ETag");
+            if (etag != null && etag.startsWith("\"")) {
+                response.setHeader("ETag", "W/" + etag);
+            }
+            OutputStream out = response.getOutputStream();
+            if ("gzip".equals(encoding)) {
+                compressor = new GZIPOutputStream(out, 8192, true) {
+                    {
+                        def.setLevel(level);
+                    }
+                };
+            } else {
+                compressor = new DeflaterOutputStream(out, new Deflater(level), 8192, true) {
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        def.end();
+                    }
+                };
+            }
+            compressor.write(buffer, 0, count);
+        } else {
+            passThrough();
+            writeBuffered();
+        }
+        count = 0;
+        buffer = null;
+    }
+
+    private boolean shouldCompress() {
+        if (isBodiless(response.getStatus())) {
+            return false;
+        }
+        if (response.getHeader("Content-Encoding") != null) {
+            return false;
+        }
+        String contentType = response.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        int semicolon = contentType.indexOf(';');
+        String mimeType = (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim();
+        return mimeTypes.contains(mimeType);
+    }
+
+    private static boolean isBodiless(int status) {
+        return status < 200 || status == HttpServletResponse.SC_NO_CONTENT
+                || status == HttpServletResponse.SC_NOT_MODIFIED;
+    }
+
+    private void writeBuffered() throws IOException {
+        if (count > 0) {
+            response.getOutputStream().write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /*
+     * Output stream handed to the servlet, routing bytes according to the wrapper's current state.
+     */
+    private class CompressingOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            switch (state) {
+                case BUFFERING:
+                    int space = buffer.length - count;
+                    if (len < space) {
+                        System.arraycopy(b, off, buffer, count, len);
+                        count += len;
+                        return;
+                    }
+                    System.arraycopy(b, off, buffer, count, space);
+                    count += space;
+                    decide();
+                    write(b, off + space, len - space);
+                    break;
+                case COMPRESSING:
+                    compressor.write(b, off, len);
+                    break;
+                case PASSTHROUGH:
+                    response.getOutputStream().write(b, off, len);
+                    break;
+                default:
+                    throw new IOException("Response has already been completed");
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (state == State.COMPRESSING) {
+                compressor.flush();
+            } else if (state == State.PASSTHROUGH) {
+                response.getOutputStream().flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            response.getOutputStream().close();
+        }
+
+        @Override
+        public boolean isReady() {
+            if (state == State.BUFFERING) {
+                return true;
+            }
+            try {
+                return response.getOutputStream().isReady();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /*
+         * Switches to non-blocking writes on the underlying stream. A body that has not started compressing
+         * is passed through from here on, since a compressor cannot honour isReady() for the bytes it emits.
+         */
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            if (state == State.COMPRESSING) {
+                throw new IllegalStateException("Non-blocking writes cannot start once the body is being compressed");
+            }
+            try {
+                if (state == State.BUFFERING) {
+                    passThrough();
+                    writeBuffered();
+                }
+                response.getOutputStream().setWriteListener(writeListener);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package controllers.filters;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import metrics.ErrorType;
+import metrics.Metrics;
+import util.AdaptiveLimiter;
+import util.AppConfig;
+
+/*
+ * Admission control for the film API. Reads (GET, HEAD) and writes (POST, PUT, DELETE) each have an
+ * AdaptiveLimiter whose concurrency limit follows the latency of the requests it admits. Requests over
+ * the limit are rejected immediately with 503 and Retry-After instead of queueing behind a slow database,
+ * which keeps the latency of admitted requests bounded during overload.
+ */
+@WebFilter(filterName = "ConcurrencyLimitFilter", urlPatterns = "/filmapi/*", asyncSupported = true)
+public class ConcurrencyLimitFilter implements Filter {
+    private static AdaptiveLimiter readLimiter;
+    private static AdaptiveLimiter writeLimiter;
+
+    private boolean enabled;
+    private String retryAfterSeconds;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        AppConfig config = AppConfig.getInstance();
+        enabled = config.getBoolean("limiter.enabled", true);
+        retryAfterSeconds = Integer.toString(Math.max(1, config.getInt("limiter.retryAfterSeconds", 1)));
+        synchronized (ConcurrencyLimitFilter.class) {
+            readLimiter = new AdaptiveLimiter("read", config, "limiter.read", 20, 4, 500);
+            writeLimiter = new AdaptiveLimiter("write", config, "limiter.write", 5, 2, 100);
+        }
+    }
+
+    /*
+     * Returns the limiters in use, or null before the filter has been initialised; for monitoring.
+     */
+    public static synchronized AdaptiveLimiter[] getLimiters() {
+        if (readLimiter == null) {
+            return null;
+        }
+        return new AdaptiveLimiter[] { readLimiter, writeLimiter };
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+        if (!enabled || "OPTIONS".equals(request.getMethod())) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        String method = request.getMethod();
+        AdaptiveLimiter limiter = "GET".equals(method) || "HEAD".equals(method) ? readLimiter : writeLimiter;
+        if (!limiter.tryAcquire()) {
+            Metrics.getInstance().recordError(ErrorType.REJECTED);
+            response.setHeader("Retry-After", retryAfterSeconds);
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is overloaded, retry later");
+            return;
+        }
+
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        boolean async = false;
+        try {
+            chain.doFilter(req, res);
+            if (request.isAsyncStarted()) {
+                // The response is still being produced; release when it completes.
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        release(limiter, released, start, response.getStatus());
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        release(limiter, released, start, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        release(limiter, released, start, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                        event.getAsyncContext().addListener(this);
+                    }
+                });
+                async = true;
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            release(limiter, released, start, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            throw e;
+        } finally {
+            if (!async) {
+                release(limiter, released, start, response.getStatus());
+            }
+        }
+    }
+
+    private static void release(AdaptiveLimiter limiter, AtomicBoolean released, long start, int status) {
+        if (released.compareAndSet(false, true)) {
+            // Server errors and timeouts are the overload signal; client errors are not.
+            limiter.release(System.nanoTime() - start, status >= 500);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Limiters hold no resources.
+    }
+}
@@ -15,7 +15,7 @@ import javax.servlet.http.HttpServletResponse;
  * Filter for managing Cross-Origin Resource Sharing (CORS),
  * allowing or restricting cross-origin requests in a Java web application.
  */
-@WebFilter(filterName = "CorsFilter", urlPatterns = "/*")
+@WebFilter(filterName = "CorsFilter", urlPatterns = "/*", asyncSupported = true)
 public class CorsFilter implements Filter {
 
     @Override
@@ -0,0 +1,93 @@
+package controllers.filters;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import metrics.ErrorType;
+import metrics.HttpMethod;
+import metrics.Metrics;
+import metrics.Route;
+
+/*
+ * Filter that records the latency of every film API request by HTTP method and route, and counts
+ * 4xx and 5xx responses. Asynchronous requests are measured until they complete.
+ */
+@WebFilter(filterName = "MetricsFilter", urlPatterns = "/filmapi/*", asyncSupported = true)
+public class MetricsFilter implements Filter {
+    private final Metrics metrics = Metrics.getInstance();
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Metrics are held by the shared registry; nothing to set up.
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+        HttpMethod method = HttpMethod.of(request.getMethod());
+        Route route = Route.of(request.getPathInfo());
+        long start = System.nanoTime();
+
+        boolean async = false;
+        try {
+            chain.doFilter(req, res);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(method, route, start, response.getStatus());
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        // onComplete follows once the container has finished the request.
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        // onComplete follows once the container has finished the request.
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                        event.getAsyncContext().addListener(this);
+                    }
+                });
+                async = true;
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            record(method, route, start, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            throw e;
+        }
+        if (!async) {
+            record(method, route, start, response.getStatus());
+        }
+    }
+
+    private void record(HttpMethod method, Route route, long start, int status) {
+        metrics.recordRequest(method, route, start);
+        if (status >= 500) {
+            metrics.recordError(ErrorType.SERVER_ERROR);
+        } else if (status >= 400) {
+            metrics.recordError(ErrorType.CLIENT_ERROR);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Nothing to release.
+    }
+}
@@ -14,8 +14,19 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import logging.Logger;
+import metrics.ErrorType;
+import metrics.Metrics;
+import models.BatchOperation;
+import models.BatchResult;
 import models.Film;
+import models.FilmFields;
 import services.FilmService;
+import util.AppConfig;
+import util.FilmRecordReader;
+import util.FilmStreamWriter;
+import util.RequestBodyTooLargeException;
+import util.RequestExecutor;
 import util.RequestHelper;
 import util.RequestParser;
 import util.ResponseHandler;
@@ -24,106 +35,277 @@ import util.ResponseHandler;
  * Servlet to handle API requests related to Films, providing methods
  * to insert, retrieve, update, and delete films from the database.
  * Exposes endpoints under '/filmapi/*'.
+ * Requests are handled asynchronously on the shared RequestExecutor rather than on container threads.
  */
-@WebServlet(name = "FilmController", urlPatterns = {"/filmapi/*"})
+@WebServlet(name = "FilmController", urlPatterns = {"/filmapi/*"}, asyncSupported = true)
 public class FilmController extends HttpServlet {
 	private static final long serialVersionUID = 1L;
+	private static final Logger logger = Logger.getLogger(FilmController.class);
 	
 	private FilmService filmService = new FilmService();
 	private RequestHelper requestHelper = new RequestHelper();
 	private ResponseHandler responseHandler = new ResponseHandler();
 	private RequestParser requestParser = new RequestParser();
+	private RequestExecutor requestExecutor = RequestExecutor.getInstance();
+	private Metrics metrics = Metrics.getInstance();
+	private int batchMaxOperations = AppConfig.getInstance().getInt("batch.maxOperations", 1000);
 
 	/*
-     * Handles the HTTP GET request method to search or list films.
+     * Handles the HTTP GET request method to search or list films, or to fetch a single film by ID.
+     * Lists and searches are paged with "limit" and an opaque "after" cursor; each page carries
+     * the cursor of the next one. Every response carries an ETag from the catalog or film version,
+     * and a matching If-None-Match is answered with 304 before the database is queried. Encoded list and
+     * search pages are kept in the response cache until the catalog changes, and served from it directly.
+     * A "fields" parameter (e.g. fields=title,year) limits the properties of each film to those named,
+     * and lists read only those columns from the database. The id is always included.
      */
 	@Override
 	protected void doGet(HttpServletRequest request, HttpServletResponse response)
-	        throws ServletException, IOException {
-	    System.out.println("GET request received at: " + request.getPathInfo());
+			throws ServletException, IOException {
+		requestExecutor.dispatch(request, response, this::handleGet);
+	}
+
+	private void handleGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+	    logger.debug("GET request received at: {}", request.getPathInfo());
 
 	    try {
 	        if (request.getPathInfo() != null && request.getPathInfo().contains("/search")) {
 	            String query = request.getParameter("query");
 	            String type = request.getParameter("type");
-	            
+	            int limit = requestHelper.extractLimit(request);
+	            int afterId = requestHelper.extractAfterId(request);
+	            FilmFields fields = responseHandler.determineFields(request);
+	            String catalogTag = filmService.getCatalogTag();
+	            if (responseHandler.checkNotModified(request, response, catalogTag)
+	                    || responseHandler.writeCachedResponse(request, response, catalogTag)) {
+	                return;
+	            }
+
+	            // One extra film is fetched to find out whether there is a next page.
 	            List<Film> films;
 	            if (query != null && !query.isEmpty()) {
 	                if (type != null && !type.isEmpty()) {
 	                    // Specified search on a field like title, year, director, stars.
-	                    films = filmService.searchFilms(query, type);
+	                    films = filmService.searchFilms(query, type, afterId, limit + 1, fields);
 	                } else {
 	                    // General search across multiple fields
-	                    films = filmService.searchFilmsGeneral(query);
+	                    films = filmService.searchFilmsGeneral(query, afterId, limit + 1, fields);
 	                }
 	            } else {
 	                // Return all films if no query is specified
-	                films = filmService.getAllFilms();
+	                films = filmService.getFilmsAfter(afterId, limit + 1, fields);
 	            }
 
 	            if (films.isEmpty()) {
-	                System.out.println("No films found.");
+	                logger.debug("No films found.");
 	                response.sendError(HttpServletResponse.SC_NOT_FOUND, "No films found.");
 	            } else {
-	                responseHandler.writeResponse(request, response, films);
+	                FilmStreamWriter page = responseHandler.openCachedFilmPage(request, response, limit, catalogTag);
+	                for (Film film : films) {
+	                    page.write(film);
+	                }
+	                page.finish();
+	            }
+	        } else if (request.getPathInfo() != null && request.getPathInfo().startsWith("/films/")) {
+	            // Path format is "/films/10001"
+	            String[] pathParts = request.getPathInfo().split("/");
+	            int id;
+	            try {
+	                id = Integer.parseInt(pathParts[2]);
+	            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+	                logger.debug("Invalid film ID in path: {}", request.getPathInfo());
+	                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid film ID format");
+	                return;
+	            }
+
+	            if (responseHandler.checkNotModified(request, response, filmService.getFilmTag(id))) {
+	                return;
+	            }
+	            Film film = filmService.getFilmByID(id);
+	            if (film == null) {
+	                logger.debug("No film found with ID: {}", id);
+	                response.sendError(HttpServletResponse.SC_NOT_FOUND, "No film found with specified ID");
+	            } else {
+	                responseHandler.writeResponse(request, response, film);
 	            }
 	        } else {
-	            // Handle other GET requests or direct to a not found handler
-	            List<Film> films = filmService.getAllFilms();
-	            responseHandler.writeResponse(request, response, films);
+	            // Stream one page straight from the result set to the response.
+	            int limit = requestHelper.extractLimit(request);
+	            int afterId = requestHelper.extractAfterId(request);
+	            FilmFields fields = responseHandler.determineFields(request);
+	            String catalogTag = filmService.getCatalogTag();
+	            if (responseHandler.checkNotModified(request, response, catalogTag)
+	                    || responseHandler.writeCachedResponse(request, response, catalogTag)) {
+	                return;
+	            }
+	            FilmStreamWriter page = responseHandler.openCachedFilmPage(request, response, limit, catalogTag);
+	            filmService.forEachFilm(afterId, limit + 1, fields, page::write);
+	            page.finish();
 	        }
 	    } catch (SQLException e) {
-	        System.err.println("SQL Exception: " + e.getMessage());
+	        metrics.recordError(ErrorType.DATABASE);
+	        logger.error("SQL Exception: {}", e.getMessage());
+	        if (response.isCommitted()) {
+	            // Part of the list has already been sent, so the status can no longer be changed.
+	            return;
+	        }
 	        response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error: " + e.getMessage());
 	    } catch (Exception e) {
-	        System.err.println("General Exception: " + e.getMessage());
+	        logger.error("General Exception: {}", e.getMessage());
+	        if (response.isCommitted()) {
+	            return;
+	        }
 	        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad request: " + e.getMessage());
 	    } finally {
-	        response.getWriter().flush();
+	        response.flushBuffer();
 	    }
 	}
 
 	
 	/*
 	 * Handles the HTTP POST request method to insert a new film.
+	 * Bodies larger than request.maxBodyBytes (bulk.maxBodyBytes for /bulk) are answered with 413.
 	 */
 	@Override
 	protected void doPost(HttpServletRequest request, HttpServletResponse response)
 			throws ServletException, IOException {
-		System.out.println("POST request received: " + request.getPathInfo());
+		requestExecutor.dispatch(request, response, this::handlePost);
+	}
+
+	private void handlePost(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		logger.debug("POST request received: {}", request.getPathInfo());
+		if ("/bulk".equals(request.getPathInfo())) {
+			doBulkInsert(request, response);
+			return;
+		}
+		if ("/batch".equals(request.getPathInfo())) {
+			doBatch(request, response);
+			return;
+		}
 		try {
 			Film film = requestParser.parseRequestBody(request, request.getContentType());
 			if (film != null) {
 				filmService.insertFilm(film);
-				System.out.println("Film inserted: " + film.getId());
+				logger.info("Film inserted: {}", film.getId());
 				response.setStatus(HttpServletResponse.SC_CREATED);
 				responseHandler.writeResponse(request, response, Collections.singletonList(film));
 			} else {
-				System.out.println("Invalid film data received");
+				logger.debug("Invalid film data received");
 				response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid film data");
 			}
+		} catch (RequestBodyTooLargeException e) {
+			logger.debug("Request body too large: {}", e.getMessage());
+			response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
 		} catch (SQLException e) {
-			System.err.println("SQL Exception: " + e.getMessage());
+			metrics.recordError(ErrorType.DATABASE);
+			logger.error("SQL Exception: {}", e.getMessage());
 			response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error: " + e.getMessage());
 		} catch (Exception e) {
-			System.err.println("General Exception: " + e.getMessage());
+			logger.error("General Exception: {}", e.getMessage());
 			response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
 					"Error processing request: " + e.getMessage());
 		}
 	}
 
-	
+
+	/*
+	 * Handles POST /bulk, inserting every film in a JSON array, <films> XML document, multi-document YAML
+	 * or "---"-separated text body. Responds with 201 if every record was inserted, otherwise 200 with
+	 * the per-record results so the client can see which records were rejected. A body that passes the
+	 * size limit part way through is answered with 413 and the results of the records read before it.
+	 */
+	private void doBulkInsert(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		FilmRecordReader records;
+		try {
+			records = requestParser.openFilmRecords(request, request.getContentType());
+		} catch (RequestBodyTooLargeException e) {
+			logger.debug("Request body too large: {}", e.getMessage());
+			response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+			return;
+		} catch (IOException e) {
+			logger.debug("Malformed bulk request: {}", e.getMessage());
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed request body: " + e.getMessage());
+			return;
+		}
+		if (records == null) {
+			response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported content type");
+			return;
+		}
+
+		BatchResult result = new BatchResult();
+		try {
+			filmService.insertFilms(records, result);
+		} catch (RequestBodyTooLargeException e) {
+			logger.debug("Bulk request body too large after {} records: {}", result.getResults().size(),
+					e.getMessage());
+			response.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+			responseHandler.writeResponse(request, response, result);
+			return;
+		}
+		logger.info("Bulk insert: {} inserted, {} rejected", result.getSucceeded(), result.getFailed());
+		response.setStatus(result.getFailed() == 0 ? HttpServletResponse.SC_CREATED : HttpServletResponse.SC_OK);
+		responseHandler.writeResponse(request, response, result);
+	}
+
+	/*
+	 * Handles POST /batch, applying an ordered list of create, update and delete operations in a single
+	 * transaction. Responds with 200 and a result per operation when the batch is committed, or 409 with
+	 * the failing operation identified when it is rolled back.
+	 */
+	private void doBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		List<BatchOperation> operations;
+		try {
+			operations = requestParser.parseBatchOperations(request, request.getContentType());
+		} catch (RequestBodyTooLargeException e) {
+			logger.debug("Request body too large: {}", e.getMessage());
+			response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+			return;
+		} catch (IOException e) {
+			logger.debug("Malformed batch request: {}", e.getMessage());
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed request body: " + e.getMessage());
+			return;
+		}
+		if (operations == null) {
+			response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported content type");
+			return;
+		}
+		if (operations.size() > batchMaxOperations) {
+			response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+					"A batch may contain at most " + batchMaxOperations + " operations");
+			return;
+		}
+
+		try {
+			BatchResult result = filmService.executeBatch(operations);
+			logger.info("Batch of {} operations {}", operations.size(),
+					result.getFailed() == 0 ? "committed" : "rolled back");
+			response.setStatus(result.getFailed() == 0 ? HttpServletResponse.SC_OK : HttpServletResponse.SC_CONFLICT);
+			responseHandler.writeResponse(request, response, result);
+		} catch (SQLException e) {
+			metrics.recordError(ErrorType.DATABASE);
+			logger.error("SQL Exception: {}", e.getMessage());
+			response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error: " + e.getMessage());
+		}
+	}
+
 	/*
 	 * Handles the HTTP PUT request method to update an existing film.
 	 */
 	@Override
 	protected void doPut(HttpServletRequest request, HttpServletResponse response)
 			throws ServletException, IOException {
-		System.out.println("PUT request received: " + request.getPathInfo());
+		requestExecutor.dispatch(request, response, this::handlePut);
+	}
+
+	private void handlePut(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		logger.debug("PUT request received: {}", request.getPathInfo());
 		String pathInfo = request.getPathInfo();
 
 		if (pathInfo == null || pathInfo.equals("/")) {
-			System.out.println("Invalid path info or missing film ID");
+			logger.debug("Invalid path info or missing film ID");
 			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing film ID in the request path.");
 			return;
 		}
@@ -131,7 +313,7 @@ public class FilmController extends HttpServlet {
 		// Path format is "/films/10001"
 		String[] pathParts = pathInfo.split("/");
 		if (pathParts.length < 3 || !pathParts[1].equals("films")) {
-			System.out.println("Invalid path format");
+			logger.debug("Invalid path format");
 			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid film ID path format.");
 			return;
 		}
@@ -140,7 +322,7 @@ public class FilmController extends HttpServlet {
 		try {
 			id = Integer.parseInt(pathParts[2]);
 		} catch (NumberFormatException e) {
-			System.err.println("Number Format Exception for film ID: " + e.getMessage());
+			logger.debug("Number Format Exception for film ID: {}", e.getMessage());
 			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid film ID format");
 			return;
 		}
@@ -148,8 +330,9 @@ public class FilmController extends HttpServlet {
 		String contentType = request.getContentType();
 		if (contentType == null
 				|| (!contentType.contains("application/json") && !contentType.contains("application/xml")
-						&& !contentType.contains("text/plain") && !contentType.contains("application/x-yaml"))) {
-			System.out.println("Unsupported Content-Type: " + contentType);
+						&& !contentType.contains("text/plain") && !contentType.contains("application/x-yaml")
+						&& !contentType.contains("application/cbor"))) {
+			logger.debug("Unsupported Content-Type: {}", contentType);
 			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unsupported Content-Type: " + contentType);
 			return;
 		}
@@ -158,19 +341,27 @@ public class FilmController extends HttpServlet {
 			Film film = requestParser.parseRequestBody(request, contentType);
 			if (film != null) {
 				film.setId(id);
-				filmService.updateFilm(film);
-				System.out.println("Film updated: " + film.getId());
+				if (!filmService.updateFilm(film)) {
+					logger.debug("No film found with ID: {}", id);
+					response.sendError(HttpServletResponse.SC_NOT_FOUND, "No film found with specified ID");
+					return;
+				}
+				logger.info("Film updated: {}", film.getId());
 				response.setStatus(HttpServletResponse.SC_OK);
 				responseHandler.writeResponse(request, response, Collections.singletonList(film));
 			} else {
-				System.out.println("Invalid film data received");
+				logger.debug("Invalid film data received");
 				response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid film data");
 			}
+		} catch (RequestBodyTooLargeException e) {
+			logger.debug("Request body too large: {}", e.getMessage());
+			response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
 		} catch (SQLException e) {
-			System.err.println("SQL Exception: " + e.getMessage());
+			metrics.recordError(ErrorType.DATABASE);
+			logger.error("SQL Exception: {}", e.getMessage());
 			response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error: " + e.getMessage());
 		} catch (Exception e) {
-			System.err.println("General Exception: " + e.getMessage());
+			logger.error("General Exception: {}", e.getMessage());
 			response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
 					"Error processing request: " + e.getMessage());
 		}
@@ -182,18 +373,23 @@ public class FilmController extends HttpServlet {
 	@Override
 	protected void doDelete(HttpServletRequest request, HttpServletResponse response)
 			throws ServletException, IOException {
-		System.out.println("DELETE request received: " + request.getPathInfo());
+		requestExecutor.dispatch(request, response, this::handleDelete);
+	}
+
+	private void handleDelete(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		logger.debug("DELETE request received: {}", request.getPathInfo());
 		String pathInfo = request.getPathInfo();
 
 		if (pathInfo == null || !pathInfo.startsWith("/")) {
-			System.out.println("Invalid path info or missing film ID");
+			logger.debug("Invalid path info or missing film ID");
 			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing film ID in the request path.");
 			return;
 		}
 
 		String[] pathParts = pathInfo.split("/");
 		if (pathParts.length < 3 || !pathParts[1].equals("films")) {
-			System.out.println("Invalid path format");
+			logger.debug("Invalid path format");
 			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid film ID path format.");
 			return;
 		}
@@ -202,7 +398,7 @@ public class FilmController extends HttpServlet {
 		try {
 			id = Integer.parseInt(pathParts[2]);
 		} catch (NumberFormatException e) {
-			System.err.println("Number Format Exception for film ID: " + e.getMessage());
+			logger.debug("Number Format Exception for film ID: {}", e.getMessage());
 			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid film ID format");
 			return;
 		}
@@ -210,22 +406,23 @@ public class FilmController extends HttpServlet {
 		try {
 			boolean deleted = filmService.deleteFilm(id);
 			if (deleted) {
-				System.out.println("Film deleted successfully with ID: " + id);
+				logger.info("Film deleted successfully with ID: {}", id);
 				response.setStatus(HttpServletResponse.SC_NO_CONTENT);
 				String format = responseHandler.determineFormat(request);
-				response.setContentType(responseHandler.getResponseType(format) + "; charset=UTF-8");
+				response.setContentType(responseHandler.getContentType(format));
 				Map<String, Object> result = new HashMap<>();
 				result.put("message", "Film deleted successfully.");
 				responseHandler.writeResponse(request, response, result);
 			} else {
-				System.out.println("No film found with ID: " + id);
+				logger.debug("No film found with ID: {}", id);
 				response.sendError(HttpServletResponse.SC_NOT_FOUND, "No film found with specified ID");
 			}
 		} catch (SQLException e) {
-			System.err.println("SQL Exception during film deletion: " + e.getMessage());
+			metrics.recordError(ErrorType.DATABASE);
+			logger.error("SQL Exception during film deletion: {}", e.getMessage());
 			response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Database error: " + e.getMessage());
 		} catch (Exception e) {
-			System.err.println("General Exception: " + e.getMessage());
+			logger.error("General Exception: {}", e.getMessage());
 			response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
 					"Error processing request: " + e.getMessage());
 		}
@@ -0,0 +1,135 @@
+package controllers.rest;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import controllers.filters.ConcurrencyLimitFilter;
+import dao.ConnectionPool;
+import metrics.Metrics;
+import metrics.PrometheusWriter;
+import services.FilmCache;
+import services.FilmSearchIndex;
+import services.SearchResultCache;
+import util.AdaptiveLimiter;
+import util.ResponseCache;
+
+/*
+ * Exposes the application's metrics in the Prometheus text format for scraping: request, DAO and
+ * serialisation latency histograms, response sizes and error counts, plus gauges for the connection pool,
+ * film, response and search result caches, concurrency limiters and search index. Served outside
+ * /filmapi so scrapes are neither counted as API requests nor turned away by admission control.
+ */
+@WebServlet(name = "MetricsController", urlPatterns = {"/metrics"})
+public class MetricsController extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	/*
+	 * Handles the HTTP GET request method by writing every metric in the text exposition format.
+	 */
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		response.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+		response.setHeader("Cache-Control", "no-store");
+		PrintWriter out = response.getWriter();
+		PrometheusWriter writer = new PrometheusWriter(out);
+		writer.writeRegistry(Metrics.getInstance());
+		writePoolMetrics(writer);
+		writeCacheMetrics(writer);
+		writeLimiterMetrics(writer);
+		writer.writeGauge("filmapi_search_index_films", "Films held in the in-memory search index.",
+				FilmSearchIndex.getInstance().size());
+		out.flush();
+	}
+
+	private void writePoolMetrics(PrometheusWriter writer) throws IOException {
+		ConnectionPool connectionPool = ConnectionPool.getExistingInstance();
+		if (connectionPool == null) {
+			return;
+		}
+		ConnectionPool.Statistics pool = connectionPool.getStatistics();
+		writer.writeGauge("filmapi_pool_connections_active", "Connections currently borrowed from the pool.",
+				pool.active);
+		writer.writeGauge("filmapi_pool_connections_idle", "Idle connections in the pool.", pool.idle);
+		writer.writeGauge("filmapi_pool_connections_max", "Maximum size of the pool.", pool.maxSize);
+		writer.writeGauge("filmapi_pool_waiters", "Threads waiting for a connection.", pool.waiters);
+		writer.writeCounter("filmapi_pool_acquisitions_total", "Connections handed out by the pool.",
+				pool.acquisitions);
+		writer.writeCounter("filmapi_pool_wait_seconds_total", "Time spent waiting for a connection.",
+				pool.totalWaitMillis / 1000.0);
+		writer.writeCounter("filmapi_pool_timeouts_total", "Connection requests that timed out.", pool.timeouts);
+	}
+
+	private void writeCacheMetrics(PrometheusWriter writer) throws IOException {
+		FilmCache.Statistics cache = FilmCache.getInstance().getStatistics();
+		writer.writeGauge("filmapi_cache_entries", "Films held in the film cache.", cache.size);
+		writer.writeGauge("filmapi_cache_entries_max", "Capacity of the film cache.", cache.maxSize);
+		writer.writeCounter("filmapi_cache_hits_total", "Film cache lookups answered from the cache.",
+				cache.hits + cache.negativeHits);
+		writer.writeCounter("filmapi_cache_misses_total", "Film cache lookups that went to the database.",
+				cache.misses);
+		writer.writeCounter("filmapi_cache_evictions_total", "Film cache entries evicted for space.",
+				cache.evictions);
+
+		ResponseCache.Statistics responses = ResponseCache.getInstance().getStatistics();
+		writer.writeGauge("filmapi_response_cache_entries", "Encoded pages held in the response cache.",
+				responses.size);
+		writer.writeGauge("filmapi_response_cache_bytes", "Bytes of encoded pages held in the response cache.",
+				responses.bytes);
+		writer.writeGauge("filmapi_response_cache_bytes_max", "Capacity of the response cache in bytes.",
+				responses.maxBytes);
+		writer.writeCounter("filmapi_response_cache_hits_total", "List and search requests answered from the cache.",
+				responses.hits);
+		writer.writeCounter("filmapi_response_cache_misses_total", "List and search requests that were encoded.",
+				responses.misses);
+		writer.writeCounter("filmapi_response_cache_evictions_total", "Response cache entries evicted for space.",
+				responses.evictions);
+
+		SearchResultCache.Statistics searches = SearchResultCache.getInstance().getStatistics();
+		writer.writeGauge("filmapi_search_cache_entries", "Search results held in the search result cache.",
+				searches.size);
+		writer.writeGauge("filmapi_search_cache_entries_max", "Capacity of the search result cache.",
+				searches.maxSize);
+		writer.writeGauge("filmapi_search_cache_in_flight", "Searches currently being loaded from the database.",
+				searches.inFlight);
+		writer.writeCounter("filmapi_search_cache_hits_total", "Searches answered from the cache.", searches.hits);
+		writer.writeCounter("filmapi_search_cache_misses_total", "Searches that ran a database query.",
+				searches.misses);
+		writer.writeCounter("filmapi_search_cache_coalesced_total",
+				"Searches that waited for an identical running query instead of starting their own.",
+				searches.coalesced);
+		writer.writeCounter("filmapi_search_cache_oversized_total",
+				"Searches that matched too many films to cache and were paged with keyset queries.",
+				searches.oversized);
+		writer.writeCounter("filmapi_search_cache_evictions_total", "Search result cache entries evicted for space.",
+				searches.evictions);
+	}
+
+	private void writeLimiterMetrics(PrometheusWriter writer) throws IOException {
+		AdaptiveLimiter[] limiters = ConcurrencyLimitFilter.getLimiters();
+		if (limiters == null) {
+			return;
+		}
+		writer.writeHeader("filmapi_limiter_limit", "gauge", "Current concurrency limit of each limiter.");
+		for (AdaptiveLimiter limiter : limiters) {
+			AdaptiveLimiter.Statistics stats = limiter.getStatistics();
+			writer.writeSample("filmapi_limiter_limit", "limiter=\"" + stats.name + "\"", stats.limit);
+		}
+		writer.writeHeader("filmapi_limiter_in_flight", "gauge", "Requests currently admitted by each limiter.");
+		for (AdaptiveLimiter limiter : limiters) {
+			AdaptiveLimiter.Statistics stats = limiter.getStatistics();
+			writer.writeSample("filmapi_limiter_in_flight", "limiter=\"" + stats.name + "\"", stats.inFlight);
+		}
+		writer.writeHeader("filmapi_limiter_rejected_total", "counter", "Requests rejected by each limiter.");
+		for (AdaptiveLimiter limiter : limiters) {
+			AdaptiveLimiter.Statistics stats = limiter.getStatistics();
+			writer.writeSample("filmapi_limiter_rejected_total", "limiter=\"" + stats.name + "\"", stats.rejected);
+		}
+	}
+}
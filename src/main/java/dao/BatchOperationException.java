@@ -0,0 +1,25 @@
+package dao;
+
+import java.sql.SQLException;
+
+/*
+ * Thrown when one operation of a batch fails, after the whole batch has been rolled back.
+ * Identifies the failing operation by its position in the batch.
+ */
+public class BatchOperationException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    private final int index;
+
+    public BatchOperationException(int index, String reason, Throwable cause) {
+        super(reason, cause instanceof SQLException ? ((SQLException) cause).getSQLState() : null, cause);
+        this.index = index;
+    }
+
+    /*
+     * Returns the zero-based position of the failing operation in the batch.
+     */
+    public int getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,456 @@
+package dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import logging.Logger;
+import util.AppConfig;
+
+/*
+ * A bounded pool of JDBC connections shared by every FilmDAO instance.
+ * Connections are handed out as proxies whose close() method returns them to the pool,
+ * so DAO code can keep using try-with-resources exactly as it would with DriverManager.
+ * A background housekeeper evicts idle connections, keeps the minimum size topped up
+ * and reports connections that have been borrowed for longer than the leak threshold. The borrower's
+ * stack trace is only captured when pool.leakDetectionStackTraces is set, since filling it in costs
+ * every borrow.
+ * Statements created through a pooled connection get a query timeout, by default the request timeout,
+ * so a query left running by a timed-out request does not keep its connection indefinitely.
+ */
+public class ConnectionPool {
+    private static ConnectionPool instance;
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class);
+
+    private final String jdbcUrl;
+    private final String jdbcUser;
+    private final String jdbcPassword;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final boolean validateOnBorrow;
+    private final int validationTimeoutSeconds;
+    private final long idleTimeoutMillis;
+    private final long leakDetectionThresholdMillis;
+    private final boolean leakDetectionStackTraces;
+    private final int queryTimeoutSeconds;
+
+    // Idle connections, most recently returned first so hot connections are reused.
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    // One permit per connection the pool is allowed to hand out.
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+
+    /*
+     * Creates a pool using the settings in config.properties and opens the minimum number of connections.
+     */
+    private ConnectionPool(AppConfig config) {
+        this.jdbcUrl = config.getString("jdbcUrl", null);
+        this.jdbcUser = config.getString("jdbcUser", null);
+        this.jdbcPassword = config.getString("jdbcPassword", null);
+        this.maxSize = Math.max(1, config.getInt("pool.maxSize", 10));
+        this.minSize = Math.min(maxSize, Math.max(0, config.getInt("pool.minSize", 2)));
+        this.acquireTimeoutMillis = config.getLong("pool.acquireTimeoutMillis", 5000);
+        this.validateOnBorrow = config.getBoolean("pool.validateOnBorrow", true);
+        this.validationTimeoutSeconds = config.getInt("pool.validationTimeoutSeconds", 2);
+        this.idleTimeoutMillis = config.getLong("pool.idleTimeoutMillis", 600000);
+        this.leakDetectionThresholdMillis = config.getLong("pool.leakDetectionThresholdMillis", 60000);
+        this.leakDetectionStackTraces = config.getBoolean("pool.leakDetectionStackTraces", false);
+        long requestTimeoutMillis = Math.max(0, config.getLong("request.timeoutMillis", 30000));
+        this.queryTimeoutSeconds = Math.max(0, config.getInt("pool.queryTimeoutSeconds",
+                (int) TimeUnit.MILLISECONDS.toSeconds(requestTimeoutMillis + 999)));
+        this.permits = new Semaphore(maxSize, true);
+
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            logger.error("MySQL JDBC driver not found: {}", e.getMessage());
+        }
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1000, config.getLong("pool.housekeepingIntervalMillis", 30000));
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+     * Provides a global access point to the shared pool, creating it on first use.
+     */
+    public static synchronized ConnectionPool getInstance() {
+        if (instance == null) {
+            instance = new ConnectionPool(AppConfig.getInstance());
+        }
+        return instance;
+    }
+
+    /*
+     * Returns the shared pool without creating it, or null if nothing has used it yet
+     * (as when films are kept in memory).
+     */
+    public static synchronized ConnectionPool getExistingInstance() {
+        return instance;
+    }
+
+    /*
+     * Closes the shared pool if it has been created. Called when the web application is stopped.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /*
+     * Borrows a connection, waiting up to the configured acquisition timeout for one to become available.
+     * @return A pooled connection; closing it returns it to the pool.
+     * @throws SQLException If the pool is closed, the timeout expires or a new connection cannot be opened.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        long start = System.nanoTime();
+        waiters.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new SQLTransientConnectionException(
+                    "Timed out after " + acquireTimeoutMillis + "ms waiting for a database connection");
+        }
+
+        try {
+            PooledConnection pooled = takeIdleOrCreate();
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowSite = leakDetectionThresholdMillis > 0 && leakDetectionStackTraces
+                    ? new Exception("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            acquisitions.incrementAndGet();
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /*
+     * Returns a validated idle connection, or opens a new one if none are available.
+     */
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (!validateOnBorrow || isValid(pooled)) {
+                return pooled;
+            }
+            validationFailures.incrementAndGet();
+            destroy(pooled);
+        }
+        return createConnection();
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.raw.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection raw = DriverManager.getConnection(jdbcUrl, jdbcUser, jdbcPassword);
+        totalConnections.incrementAndGet();
+        created.incrementAndGet();
+        return new PooledConnection(raw);
+    }
+
+    /*
+     * Returns a borrowed connection to the idle queue, resetting any state left behind by the caller.
+     */
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            if (closed || pooled.raw.isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            if (!pooled.raw.getAutoCommit()) {
+                // Never hand an open transaction to the next borrower.
+                pooled.raw.rollback();
+                pooled.raw.setAutoCommit(true);
+            }
+            pooled.raw.clearWarnings();
+            pooled.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+            destroyIfClosed(pooled);
+        } catch (SQLException e) {
+            logger.warn("Discarding connection that could not be reset: {}", e.getMessage());
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /*
+     * Closes a connection just made idle if close() ran in the meantime and so did not drain it.
+     * Whichever of the two removes it from the idle queue destroys it, so it is closed exactly once.
+     */
+    private void destroyIfClosed(PooledConnection pooled) {
+        if (closed && idle.remove(pooled)) {
+            destroy(pooled);
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        destroyed.incrementAndGet();
+        try {
+            pooled.raw.close();
+        } catch (SQLException e) {
+            logger.warn("Error closing pooled connection: {}", e.getMessage());
+        }
+    }
+
+    /*
+     * Periodic maintenance: evicts connections idle for too long, tops the pool up to its minimum size
+     * and reports borrowed connections that look leaked.
+     */
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+
+            if (idleTimeoutMillis > 0) {
+                List<PooledConnection> expired = new ArrayList<>();
+                for (PooledConnection pooled : idle) {
+                    if (totalConnections.get() - expired.size() <= minSize) {
+                        break;
+                    }
+                    if (now - pooled.lastReturnedAt > idleTimeoutMillis) {
+                        expired.add(pooled);
+                    }
+                }
+                for (PooledConnection pooled : expired) {
+                    if (idle.remove(pooled)) {
+                        destroy(pooled);
+                    }
+                }
+            }
+
+            while (!closed && totalConnections.get() < minSize && permits.tryAcquire()) {
+                try {
+                    PooledConnection pooled = createConnection();
+                    pooled.lastReturnedAt = now;
+                    idle.offerLast(pooled);
+                    destroyIfClosed(pooled);
+                } finally {
+                    permits.release();
+                }
+            }
+
+            if (leakDetectionThresholdMillis > 0) {
+                for (PooledConnection pooled : borrowed) {
+                    if (!pooled.leakReported && now - pooled.borrowedAt > leakDetectionThresholdMillis) {
+                        pooled.leakReported = true;
+                        leaksDetected.incrementAndGet();
+                        // Without pool.leakDetectionStackTraces the borrow site is not captured and no trace is logged.
+                        String hint = pooled.borrowSite == null
+                                ? " (set pool.leakDetectionStackTraces=true to log where)" : "";
+                        logger.warn("Possible connection leak: connection borrowed " + (now - pooled.borrowedAt)
+                                + "ms ago has not been returned" + hint, pooled.borrowSite);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Connection pool maintenance error: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Unexpected connection pool maintenance error: " + e, e);
+        }
+    }
+
+    /*
+     * Stops the housekeeper and closes every idle connection. Borrowed connections are closed when returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+        logger.info("Connection pool shut down: {}", getStatistics());
+    }
+
+    /*
+     * Takes a point-in-time snapshot of the pool's counters.
+     */
+    public Statistics getStatistics() {
+        Statistics stats = new Statistics();
+        stats.active = borrowed.size();
+        stats.idle = idle.size();
+        stats.total = totalConnections.get();
+        stats.maxSize = maxSize;
+        stats.waiters = waiters.get();
+        stats.acquisitions = acquisitions.get();
+        stats.totalWaitMillis = TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+        stats.maxWaitMillis = TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+        stats.timeouts = timeouts.get();
+        stats.created = created.get();
+        stats.destroyed = destroyed.get();
+        stats.validationFailures = validationFailures.get();
+        stats.leaksDetected = leaksDetected.get();
+        return stats;
+    }
+
+    /*
+     * Snapshot of pool counters, suitable for exporting to monitoring.
+     */
+    public static class Statistics {
+        public int active;
+        public int idle;
+        public int total;
+        public int maxSize;
+        public int waiters;
+        public long acquisitions;
+        public long totalWaitMillis;
+        public long maxWaitMillis;
+        public long timeouts;
+        public long created;
+        public long destroyed;
+        public long validationFailures;
+        public long leaksDetected;
+
+        @Override
+        public String toString() {
+            return "active=" + active + ", idle=" + idle + ", total=" + total + "/" + maxSize
+                    + ", waiters=" + waiters + ", acquisitions=" + acquisitions
+                    + ", totalWaitMillis=" + totalWaitMillis + ", maxWaitMillis=" + maxWaitMillis
+                    + ", timeouts=" + timeouts + ", created=" + created + ", destroyed=" + destroyed
+                    + ", validationFailures=" + validationFailures + ", leaksDetected=" + leaksDetected;
+        }
+    }
+
+    /*
+     * A physical connection owned by the pool together with its bookkeeping.
+     */
+    private class PooledConnection {
+        private final Connection raw;
+        private volatile long borrowedAt;
+        private volatile long lastReturnedAt;
+        private volatile Exception borrowSite;
+        private volatile boolean leakReported;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+        }
+
+        /*
+         * Creates the proxy handed to callers. Each borrow gets its own handle so a stale
+         * reference closed twice cannot return the connection on behalf of the next borrower.
+         */
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Handle(this));
+        }
+    }
+
+    /*
+     * Invocation handler behind the connection proxy: intercepts close() and forwards everything else.
+     */
+    private class Handle implements InvocationHandler {
+        // Cleared under the handle's lock on close; volatile so other threads see a closed handle as closed.
+        private volatile PooledConnection pooled;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            PooledConnection current = pooled;
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (pooled != null) {
+                            PooledConnection returning = pooled;
+                            pooled = null;
+                            release(returning);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return current == null || current.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + (current == null ? "closed" : current.raw) + "]";
+                default:
+                    break;
+            }
+
+            if (current == null) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            Object result;
+            try {
+                result = method.invoke(current.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement && queryTimeoutSeconds > 0) {
+                ((Statement) result).setQueryTimeout(queryTimeoutSeconds);
+            }
+            return result;
+        }
+    }
+}
@@ -1,128 +1,508 @@
 package dao;
 
-import java.io.InputStream;
+import java.io.IOException;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 
 import jakarta.xml.bind.annotation.XmlRootElement;
+import logging.Logger;
+import metrics.DaoOperation;
+import metrics.Metrics;
+import models.BatchOperation;
 import models.Film;
+import models.FilmFields;
+import util.AppConfig;
 
 /*
  * DAO class for managing database operations for the Film entities.
  * Provides functionality to connect to a database and perform CRUD operations.
+ * This is the FilmRepository used unless repository=memory is configured.
  */
 @XmlRootElement
-public class FilmDAO {
-	 private String jdbcUrl;
-	 private String jdbcUser;
-	 private String jdbcPassword;
-	
+public class FilmDAO implements FilmRepository {
+	private static final Logger logger = Logger.getLogger(FilmDAO.class);
+
+	private final ConnectionPool connectionPool;
+	private final int streamFetchSize;
+	private final Metrics metrics = Metrics.getInstance();
+
     /*
-     * Initialises the JDBC driver.
+     * Binds the DAO to the shared connection pool, which loads the JDBC settings and driver.
      */
 	public FilmDAO() {
-		 try {
-	            Properties props = new Properties();
-	            InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties");
-	            props.load(input);
-	            this.jdbcUrl = props.getProperty("jdbcUrl");
-	            this.jdbcUser = props.getProperty("jdbcUser");
-	            this.jdbcPassword = props.getProperty("jdbcPassword");
-	            Class.forName("com.mysql.cj.jdbc.Driver");
-	        } catch (Exception e) {
-	            e.printStackTrace();
-	        }
-	    }
+		this.connectionPool = ConnectionPool.getInstance();
+		// 0 selects MySQL row-by-row streaming; a positive value needs useCursorFetch=true on the JDBC URL.
+		int fetchSize = AppConfig.getInstance().getInt("dao.streamFetchSize", 0);
+		this.streamFetchSize = fetchSize > 0 ? fetchSize : Integer.MIN_VALUE;
+	}
 
-	    public Connection getConnection() throws SQLException {
-	        return DriverManager.getConnection(jdbcUrl, jdbcUser, jdbcPassword);
-	    }
+    /*
+     * Borrows a connection from the pool. Closing the connection returns it to the pool.
+     */
+	public Connection getConnection() throws SQLException {
+		return connectionPool.getConnection();
+	}
 
 	private Film getNextFilm(ResultSet rs) throws SQLException {
 		return new Film(rs.getInt("id"), rs.getString("title"), rs.getInt("year"), rs.getString("director"),
 				rs.getString("stars"), rs.getString("review"));
 	}
 
+	// Maps a row selected with fields.columns(); columns that were not selected are left unset.
+	private Film getNextFilm(ResultSet rs, FilmFields fields) throws SQLException {
+		if (fields.isAll()) {
+			return getNextFilm(rs);
+		}
+		Film film = new Film();
+		film.setId(rs.getInt("id"));
+		if (fields.includes(FilmFields.Field.TITLE)) {
+			film.setTitle(rs.getString("title"));
+		}
+		if (fields.includes(FilmFields.Field.YEAR)) {
+			film.setYear(rs.getInt("year"));
+		}
+		if (fields.includes(FilmFields.Field.DIRECTOR)) {
+			film.setDirector(rs.getString("director"));
+		}
+		if (fields.includes(FilmFields.Field.STARS)) {
+			film.setStars(rs.getString("stars"));
+		}
+		if (fields.includes(FilmFields.Field.REVIEW)) {
+			film.setReview(rs.getString("review"));
+		}
+		return film;
+	}
+
     /*
      * Retrieves all films from the database and returns them as a list.
      */
 	public ArrayList<Film> getAllFilms() throws SQLException {
-		String sql = "SELECT * FROM films";
-		ArrayList<Film> films = new ArrayList<>();
-		try (Connection conn = getConnection();
-				PreparedStatement pstmt = conn.prepareStatement(sql);
-				ResultSet rs = pstmt.executeQuery()) {
-			while (rs.next()) {
-				films.add(getNextFilm(rs));
+		long startNanos = System.nanoTime();
+		try {
+			String sql = "SELECT * FROM films";
+			ArrayList<Film> films = new ArrayList<>();
+			try (Connection conn = getConnection();
+					PreparedStatement pstmt = conn.prepareStatement(sql);
+					ResultSet rs = pstmt.executeQuery()) {
+				while (rs.next()) {
+					films.add(getNextFilm(rs));
+				}
+			} catch (SQLException e) {
+				logger.error("SQL Error: {}", e.getMessage());
+				throw e;
 			}
-		} catch (SQLException e) {
-			System.err.println("SQL Error: " + e.getMessage());
-			throw e;
+			return films;
+		} finally {
+			metrics.recordDao(DaoOperation.GET_ALL_FILMS, startNanos);
+		}
+	}
+
+    /*
+     * Streams every film in the database to the handler as rows arrive, without materialising the table.
+     * The connection stays borrowed until the handler has consumed the last row.
+     */
+	public void forEachFilm(FilmRowHandler handler) throws SQLException, IOException {
+		long startNanos = System.nanoTime();
+		try {
+			String sql = "SELECT * FROM films";
+			try (Connection conn = getConnection();
+					PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+							ResultSet.CONCUR_READ_ONLY)) {
+				pstmt.setFetchSize(streamFetchSize);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next()) {
+						handler.handle(getNextFilm(rs));
+					}
+				}
+			} catch (SQLException e) {
+				logger.error("SQL Error: {}", e.getMessage());
+				throw e;
+			}
+		} finally {
+			metrics.recordDao(DaoOperation.FOR_EACH_FILM, startNanos);
+		}
+	}
+
+    /*
+     * Streams one page of films in ID order, starting after the given ID (keyset pagination).
+     * The cost is the same for every page, however deep, because the seek uses the primary key.
+     * Only the selected columns are read.
+     */
+	public void forEachFilm(int afterId, int limit, FilmFields fields, FilmRowHandler handler)
+			throws SQLException, IOException {
+		long startNanos = System.nanoTime();
+		try {
+			String sql = "SELECT " + fields.columns() + " FROM films WHERE id > ? ORDER BY id LIMIT ?";
+			try (Connection conn = getConnection();
+					PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+							ResultSet.CONCUR_READ_ONLY)) {
+				pstmt.setInt(1, afterId);
+				pstmt.setInt(2, limit);
+				pstmt.setFetchSize(streamFetchSize);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next()) {
+						handler.handle(getNextFilm(rs, fields));
+					}
+				}
+			} catch (SQLException e) {
+				logger.error("SQL Error: {}", e.getMessage());
+				throw e;
+			}
+		} finally {
+			metrics.recordDao(DaoOperation.FOR_EACH_FILM, startNanos);
+		}
+	}
+
+    /*
+     * Retrieves one page of films in ID order, starting after the given ID, reading only the selected columns.
+     */
+	public List<Film> getFilmsAfter(int afterId, int limit, FilmFields fields) throws SQLException {
+		long startNanos = System.nanoTime();
+		try {
+			String sql = "SELECT " + fields.columns() + " FROM films WHERE id > ? ORDER BY id LIMIT ?";
+			List<Film> films = new ArrayList<>();
+			try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+				pstmt.setInt(1, afterId);
+				pstmt.setInt(2, limit);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next()) {
+						films.add(getNextFilm(rs, fields));
+					}
+				}
+			} catch (SQLException e) {
+				logger.error("SQL Error: {}", e.getMessage());
+				throw e;
+			}
+			return films;
+		} finally {
+			metrics.recordDao(DaoOperation.GET_FILMS_AFTER, startNanos);
+		}
+	}
+
+    /*
+     * Streams the searchable columns of every film (everything except the review) to the handler.
+     * Used to build the in-memory search index without pulling review text into memory.
+     */
+	public void forEachFilmSearchFields(FilmRowHandler handler) throws SQLException, IOException {
+		long startNanos = System.nanoTime();
+		try {
+			String sql = "SELECT id, title, year, director, stars FROM films";
+			try (Connection conn = getConnection();
+					PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+							ResultSet.CONCUR_READ_ONLY)) {
+				pstmt.setFetchSize(streamFetchSize);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next()) {
+						handler.handle(new Film(rs.getInt("id"), rs.getString("title"), rs.getInt("year"),
+								rs.getString("director"), rs.getString("stars"), null));
+					}
+				}
+			} catch (SQLException e) {
+				logger.error("SQL Error: {}", e.getMessage());
+				throw e;
+			}
+		} finally {
+			metrics.recordDao(DaoOperation.FOR_EACH_FILM_SEARCH_FIELDS, startNanos);
+		}
+	}
+
+    /*
+     * Retrieves the films with the given IDs, ordered by ID, reading only the selected columns.
+     * IDs that do not exist are skipped.
+     */
+	public List<Film> getFilmsByIds(int[] ids, FilmFields fields) throws SQLException {
+		long startNanos = System.nanoTime();
+		try {
+			List<Film> films = new ArrayList<>(ids.length);
+			int chunkSize = 500;
+			try (Connection conn = getConnection()) {
+				for (int start = 0; start < ids.length; start += chunkSize) {
+					int count = Math.min(chunkSize, ids.length - start);
+					StringBuilder sql = new StringBuilder("SELECT ").append(fields.columns())
+							.append(" FROM films WHERE id IN (");
+					for (int i = 0; i < count; i++) {
+						sql.append(i == 0 ? "?" : ", ?");
+					}
+					sql.append(") ORDER BY id");
+					try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+						for (int i = 0; i < count; i++) {
+							pstmt.setInt(i + 1, ids[start + i]);
+						}
+						try (ResultSet rs = pstmt.executeQuery()) {
+							while (rs.next()) {
+								films.add(getNextFilm(rs, fields));
+							}
+						}
+					}
+				}
+			} catch (SQLException e) {
+				logger.error("SQL Error: {}", e.getMessage());
+				throw e;
+			}
+			return films;
+		} finally {
+			metrics.recordDao(DaoOperation.GET_FILMS_BY_IDS, startNanos);
 		}
-		return films;
 	}
 
     /*
      * Retrieves a single film by its ID from the database.
      */
 	public Film getFilmByID(int id) throws SQLException {
-		String sql = "SELECT * FROM films WHERE id = ?";
-		Film film = null;
-		try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-			pstmt.setInt(1, id);
-			try (ResultSet rs = pstmt.executeQuery()) {
-				if (rs.next()) {
-					film = getNextFilm(rs);
+		long startNanos = System.nanoTime();
+		try {
+			String sql = "SELECT * FROM films WHERE id = ?";
+			Film film = null;
+			try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+				pstmt.setInt(1, id);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					if (rs.next()) {
+						film = getNextFilm(rs);
+					}
 				}
+			} catch (SQLException e) {
+				logger.error("SQL Error: {}", e.getMessage());
+				throw e;
 			}
-		} catch (SQLException e) {
-			System.err.println("SQL Error: " + e.getMessage());
-			throw e;
+			return film;
+		} finally {
+			metrics.recordDao(DaoOperation.GET_FILM_BY_ID, startNanos);
 		}
-		return film;
 	}
 
     /*
-     * Inserts a film into the database based on a Film object.
+     * Inserts a film into the database based on a Film object, and sets the generated ID on it.
      */
 	public void insertFilm(Film film) throws SQLException {
-		String sql = "INSERT INTO films (title, year, director, stars, review) VALUES (?, ?, ?, ?, ?)";
-		try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-			pstmt.setString(1, film.getTitle());
-			pstmt.setInt(2, film.getYear());
-			pstmt.setString(3, film.getDirector());
-			pstmt.setString(4, film.getStars());
-			pstmt.setString(5, film.getReview());
-			pstmt.executeUpdate();
-		} catch (SQLException e) {
-			System.err.println("Insert Error: " + e.getMessage());
+		long startNanos = System.nanoTime();
+		try {
+			String sql = "INSERT INTO films (title, year, director, stars, review) VALUES (?, ?, ?, ?, ?)";
+			try (Connection conn = getConnection();
+					PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+				pstmt.setString(1, film.getTitle());
+				pstmt.setInt(2, film.getYear());
+				pstmt.setString(3, film.getDirector());
+				pstmt.setString(4, film.getStars());
+				pstmt.setString(5, film.getReview());
+				pstmt.executeUpdate();
+				try (ResultSet keys = pstmt.getGeneratedKeys()) {
+					if (keys.next()) {
+						film.setId(keys.getInt(1));
+					}
+				}
+			} catch (SQLException e) {
+				logger.error("Insert Error: {}", e.getMessage());
+				throw e;
+			}
+		} finally {
+			metrics.recordDao(DaoOperation.INSERT_FILM, startNanos);
+		}
+	}
+
+    /*
+     * Inserts several films with a single batched statement inside one transaction, setting the
+     * generated ID on each film. Either every film is inserted or, on failure, none are.
+     * Add rewriteBatchedStatements=true to the MySQL JDBC URL to send the batch as multi-row INSERTs.
+     */
+	public void insertFilms(List<Film> films) throws SQLException {
+		long startNanos = System.nanoTime();
+		try {
+			if (films.isEmpty()) {
+				return;
+			}
+			String sql = "INSERT INTO films (title, year, director, stars, review) VALUES (?, ?, ?, ?, ?)";
+			try (Connection conn = getConnection()) {
+				conn.setAutoCommit(false);
+				try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+					for (Film film : films) {
+						pstmt.setString(1, film.getTitle());
+						pstmt.setInt(2, film.getYear());
+						pstmt.setString(3, film.getDirector());
+						pstmt.setString(4, film.getStars());
+						pstmt.setString(5, film.getReview());
+						pstmt.addBatch();
+					}
+					pstmt.executeBatch();
+					try (ResultSet keys = pstmt.getGeneratedKeys()) {
+						for (Film film : films) {
+							if (!keys.next()) {
+								throw new SQLException("Driver returned fewer generated keys than inserted rows");
+							}
+							film.setId(keys.getInt(1));
+						}
+					}
+					conn.commit();
+				} catch (SQLException e) {
+					conn.rollback();
+					throw e;
+				}
+			} catch (SQLException e) {
+				logger.error("Batch Insert Error: {}", e.getMessage());
+				throw e;
+			}
+		} finally {
+			metrics.recordDao(DaoOperation.INSERT_FILMS, startNanos);
+		}
+	}
+
+    /*
+     * Executes an ordered list of create, update and delete operations in a single transaction on one
+     * connection. Consecutive operations of the same type are sent as one JDBC batch, so the order of
+     * operations is preserved while round-trips are kept to one per run of the same type.
+     * Creates have the generated ID set on their film. Updating or deleting a film that does not exist
+     * fails the batch. Operations must already be validated.
+     * @throws BatchOperationException If an operation fails; nothing in the batch is committed.
+     */
+	public void executeBatch(List<BatchOperation> operations) throws SQLException {
+		long startNanos = System.nanoTime();
+		try {
+			if (operations.isEmpty()) {
+				return;
+			}
+			try (Connection conn = getConnection()) {
+				conn.setAutoCommit(false);
+				try {
+					int start = 0;
+					while (start < operations.size()) {
+						String op = operations.get(start).getOp();
+						int end = start + 1;
+						while (end < operations.size() && op.equals(operations.get(end).getOp())) {
+							end++;
+						}
+						executeGroup(conn, operations, start, end);
+						start = end;
+					}
+					conn.commit();
+				} catch (SQLException | RuntimeException e) {
+					conn.rollback();
+					throw e;
+				}
+			} catch (SQLException e) {
+				logger.error("Batch Error: {}", e.getMessage());
+				throw e;
+			}
+		} finally {
+			metrics.recordDao(DaoOperation.EXECUTE_BATCH, startNanos);
+		}
+	}
+
+    /*
+     * Executes operations [start, end), which all have the same type, as one JDBC batch.
+     */
+	private void executeGroup(Connection conn, List<BatchOperation> operations, int start, int end)
+			throws SQLException {
+		String op = operations.get(start).getOp();
+		String sql;
+		switch (op) {
+			case BatchOperation.CREATE:
+				sql = "INSERT INTO films (title, year, director, stars, review) VALUES (?, ?, ?, ?, ?)";
+				break;
+			case BatchOperation.UPDATE:
+				sql = "UPDATE films SET title = ?, year = ?, director = ?, stars = ?, review = ? WHERE id = ?";
+				break;
+			case BatchOperation.DELETE:
+				sql = "DELETE FROM films WHERE id = ?";
+				break;
+			default:
+				throw new BatchOperationException(start, "Unknown operation: " + op, null);
+		}
+
+		boolean create = BatchOperation.CREATE.equals(op);
+		try (PreparedStatement pstmt = create ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+				: conn.prepareStatement(sql)) {
+			for (int i = start; i < end; i++) {
+				BatchOperation operation = operations.get(i);
+				if (BatchOperation.DELETE.equals(op)) {
+					pstmt.setInt(1, operation.targetId());
+				} else {
+					Film film = operation.getFilm();
+					pstmt.setString(1, film.getTitle());
+					pstmt.setInt(2, film.getYear());
+					pstmt.setString(3, film.getDirector());
+					pstmt.setString(4, film.getStars());
+					pstmt.setString(5, film.getReview());
+					if (!create) {
+						pstmt.setInt(6, operation.targetId());
+					}
+				}
+				pstmt.addBatch();
+			}
+
+			int[] counts;
+			try {
+				counts = pstmt.executeBatch();
+			} catch (BatchUpdateException e) {
+				int failed = Math.min(start + firstFailure(e.getUpdateCounts()), end - 1);
+				throw new BatchOperationException(failed, e.getMessage(), e);
+			}
+
+			if (create) {
+				try (ResultSet keys = pstmt.getGeneratedKeys()) {
+					for (int i = start; i < end; i++) {
+						if (!keys.next()) {
+							throw new BatchOperationException(i, "Driver returned no generated key", null);
+						}
+						operations.get(i).getFilm().setId(keys.getInt(1));
+					}
+				}
+			} else {
+				for (int i = 0; i < counts.length; i++) {
+					if (counts[i] == 0) {
+						throw new BatchOperationException(start + i,
+								"No film found with ID " + operations.get(start + i).targetId(), null);
+					}
+				}
+			}
+		} catch (BatchOperationException e) {
 			throw e;
+		} catch (SQLException e) {
+			throw new BatchOperationException(start, e.getMessage(), e);
+		}
+	}
+
+    /*
+     * Returns the position of the first failed statement in a batch, given the update counts of a
+     * BatchUpdateException: drivers either stop at the failure or mark it with EXECUTE_FAILED.
+     */
+	private static int firstFailure(int[] counts) {
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] == Statement.EXECUTE_FAILED) {
+				return i;
+			}
 		}
+		return counts.length;
 	}
 
     /*
      * Updates an existing film in the database.
+     * @return true if a row with the film's ID was found and updated.
      */
-	public void updateFilm(Film film) throws SQLException {
-		String sql = "UPDATE films SET title = ?, year = ?, director = ?, stars = ?, review = ? WHERE id = ?";
-		try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-			pstmt.setString(1, film.getTitle());
-			pstmt.setInt(2, film.getYear());
-			pstmt.setString(3, film.getDirector());
-			pstmt.setString(4, film.getStars());
-			pstmt.setString(5, film.getReview());
-			pstmt.setInt(6, film.getId());
-			pstmt.executeUpdate();
-		} catch (SQLException e) {
-			System.err.println("Update Error: " + e.getMessage());
-			throw e;
+	public boolean updateFilm(Film film) throws SQLException {
+		long startNanos = System.nanoTime();
+		try {
+			String sql = "UPDATE films SET title = ?, year = ?, director = ?, stars = ?, review = ? WHERE id = ?";
+			try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+				pstmt.setString(1, film.getTitle());
+				pstmt.setInt(2, film.getYear());
+				pstmt.setString(3, film.getDirector());
+				pstmt.setString(4, film.getStars());
+				pstmt.setString(5, film.getReview());
+				pstmt.setInt(6, film.getId());
+				// Connector/J reports matched rows, so an update that changes nothing still counts.
+				return pstmt.executeUpdate() > 0;
+			} catch (SQLException e) {
+				logger.error("Update Error: {}", e.getMessage());
+				throw e;
+			}
+		} finally {
+			metrics.recordDao(DaoOperation.UPDATE_FILM, startNanos);
 		}
 	}
 
@@ -130,14 +510,19 @@ public class FilmDAO {
      * Deletes a film from the database by ID.
      */
 	public boolean deleteFilm(int id) throws SQLException {
-		String sql = "DELETE FROM films WHERE id = ?";
-		try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-			pstmt.setInt(1, id);
-			int affectedRows = pstmt.executeUpdate();
-			return affectedRows > 0;
-		} catch (SQLException e) {
-			System.err.println("Delete Error: " + e.getMessage());
-			throw e;
+		long startNanos = System.nanoTime();
+		try {
+			String sql = "DELETE FROM films WHERE id = ?";
+			try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+				pstmt.setInt(1, id);
+				int affectedRows = pstmt.executeUpdate();
+				return affectedRows > 0;
+			} catch (SQLException e) {
+				logger.error("Delete Error: {}", e.getMessage());
+				throw e;
+			}
+		} finally {
+			metrics.recordDao(DaoOperation.DELETE_FILM, startNanos);
 		}
 	}
 
@@ -145,31 +530,36 @@ public class FilmDAO {
      * Searches films by various attributes using a map of search criteria.
      */
 	public List<Film> searchFilms(Map<String, String> searchParams) {
-	    List<Film> films = new ArrayList<>();
-	    StringBuilder sql = new StringBuilder("SELECT * FROM films WHERE 1=1");
+	    long startNanos = System.nanoTime();
+	    try {
+	        List<Film> films = new ArrayList<>();
+	        StringBuilder sql = new StringBuilder("SELECT * FROM films WHERE 1=1");
 
-	    searchParams.forEach((key, value) -> {
-	        if (!value.isEmpty()) {
-	            sql.append(" AND ").append(key).append(" LIKE ?");
-	        }
-	    });
+	        searchParams.forEach((key, value) -> {
+	            if (!value.isEmpty()) {
+	                sql.append(" AND ").append(key).append(" LIKE ?");
+	            }
+	        });
 
-	    try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
-	        int index = 1;
-	        for (String key : searchParams.keySet()) {
-	            if (!searchParams.get(key).isEmpty()) {
-	                pstmt.setString(index++, "%" + searchParams.get(key) + "%");
+	        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+	            int index = 1;
+	            for (String key : searchParams.keySet()) {
+	                if (!searchParams.get(key).isEmpty()) {
+	                    pstmt.setString(index++, "%" + searchParams.get(key) + "%");
+	                }
 	            }
+	            ResultSet rs = pstmt.executeQuery();
+	            while (rs.next()) {
+	                films.add(getNextFilm(rs));
+	            }
+	        } catch (SQLException e) {
+	            logger.error("SQL Error: " + e.getMessage(), e);
+	            return null;
 	        }
-	        ResultSet rs = pstmt.executeQuery();
-	        while (rs.next()) {
-	            films.add(getNextFilm(rs));
-	        }
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	        return null;
+	        return films;
+	    } finally {
+	        metrics.recordDao(DaoOperation.SEARCH_FILMS, startNanos);
 	    }
-	    return films;
 	}
 
 	
@@ -177,107 +567,211 @@ public class FilmDAO {
      * Searches for films using a general query that matches multiple fields.
      */
 	public List<Film> searchFilmsGeneral(String query) throws SQLException {
-	    List<Film> films = new ArrayList<>();
-	    String sql = "SELECT * FROM films WHERE id LIKE ? or title LIKE ? OR director LIKE ? OR stars LIKE ? OR CAST(year AS CHAR) LIKE ?";
-
-	    try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-	        String searchQuery = "%" + query + "%";
-	        pstmt.setString(1, searchQuery);
-	        pstmt.setString(2, searchQuery);
-	        pstmt.setString(3, searchQuery);
-	        pstmt.setString(4, searchQuery);
-	        pstmt.setString(5, searchQuery);
-
-	        ResultSet rs = pstmt.executeQuery();
-	        while (rs.next()) {
-	            films.add(getNextFilm(rs));
+	    long startNanos = System.nanoTime();
+	    try {
+	        List<Film> films = new ArrayList<>();
+	        String sql = "SELECT * FROM films WHERE id LIKE ? or title LIKE ? OR director LIKE ? OR stars LIKE ? OR CAST(year AS CHAR) LIKE ?";
+
+	        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+	            String searchQuery = "%" + query + "%";
+	            pstmt.setString(1, searchQuery);
+	            pstmt.setString(2, searchQuery);
+	            pstmt.setString(3, searchQuery);
+	            pstmt.setString(4, searchQuery);
+	            pstmt.setString(5, searchQuery);
+
+	            ResultSet rs = pstmt.executeQuery();
+	            while (rs.next()) {
+	                films.add(getNextFilm(rs));
+	            }
+	        } catch (SQLException e) {
+	            logger.error("SQL Error: " + e.getMessage(), e);
+	            return null;
 	        }
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	        return null;
+	        return films;
+	    } finally {
+	        metrics.recordDao(DaoOperation.SEARCH_FILMS_GENERAL, startNanos);
 	    }
-	    return films;
 	}
 	
 	/*
 	 * Searches for films using a specific query type and value.
 	 */
     public List<Film> searchFilms(String searchQuery, String searchType) throws SQLException {
-        List<Film> films = new ArrayList<>();
-        StringBuilder sql = new StringBuilder("SELECT * FROM films");
-
-        switch (searchType) {
-            case "All":
-                sql.append(" WHERE id LIKE ? OR title LIKE ? OR director LIKE ? OR stars LIKE ? OR CAST(year AS CHAR) LIKE ?");
-                break;
-            case "ID":
-                sql.append(" WHERE id = ?");
-                break;
-            case "Title":
-                sql.append(" WHERE title LIKE ?");
-                break;
-            case "Director":
-                sql.append(" WHERE director LIKE ?");
-                break;
-            case "Year":
-                sql.append(" WHERE year = ?");
-                break;
-            case "Stars":
-                sql.append(" WHERE stars LIKE ?");
-                break;
-            default:
-                return getAllFilms();
-        }
+        long startNanos = System.nanoTime();
+        try {
+            List<Film> films = new ArrayList<>();
+            StringBuilder sql = new StringBuilder("SELECT * FROM films");
 
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
-            if (searchType.equals("All")) {
-                String wildcardQuery = "%" + searchQuery + "%";
-                pstmt.setString(1, wildcardQuery);
-                pstmt.setString(2, wildcardQuery);
-                pstmt.setString(3, wildcardQuery);
-                pstmt.setString(4, wildcardQuery);
-                pstmt.setString(5, wildcardQuery);
-            } else {
-                if ("Year".equals(searchType) || "ID".equals(searchType)) {
-                    pstmt.setInt(1, Integer.parseInt(searchQuery));
+            switch (searchType) {
+                case "All":
+                    sql.append(" WHERE id LIKE ? OR title LIKE ? OR director LIKE ? OR stars LIKE ? OR CAST(year AS CHAR) LIKE ?");
+                    break;
+                case "ID":
+                    sql.append(" WHERE id = ?");
+                    break;
+                case "Title":
+                    sql.append(" WHERE title LIKE ?");
+                    break;
+                case "Director":
+                    sql.append(" WHERE director LIKE ?");
+                    break;
+                case "Year":
+                    sql.append(" WHERE year = ?");
+                    break;
+                case "Stars":
+                    sql.append(" WHERE stars LIKE ?");
+                    break;
+                default:
+                    return getAllFilms();
+            }
+
+            try (Connection conn = getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                if (searchType.equals("All")) {
+                    String wildcardQuery = "%" + searchQuery + "%";
+                    pstmt.setString(1, wildcardQuery);
+                    pstmt.setString(2, wildcardQuery);
+                    pstmt.setString(3, wildcardQuery);
+                    pstmt.setString(4, wildcardQuery);
+                    pstmt.setString(5, wildcardQuery);
                 } else {
-                    pstmt.setString(1, "%" + searchQuery + "%");
+                    if ("Year".equals(searchType) || "ID".equals(searchType)) {
+                        pstmt.setInt(1, Integer.parseInt(searchQuery));
+                    } else {
+                        pstmt.setString(1, "%" + searchQuery + "%");
+                    }
                 }
-            }
 
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Film film = getNextFilm(rs);
-                    films.add(film);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Film film = getNextFilm(rs);
+                        films.add(film);
+                    }
                 }
             }
-        }
 
-        return films;
+            return films;
+        } finally {
+            metrics.recordDao(DaoOperation.SEARCH_FILMS, startNanos);
+        }
     }
 
 	/*
-	 * Retrieves a paginated list of films from the database.
+	 * Retrieves one page of films matching the general query across multiple fields, in ID order,
+	 * starting after the given ID, reading only the selected columns.
+	 */
+	public List<Film> searchFilmsGeneral(String query, int afterId, int limit, FilmFields fields)
+			throws SQLException {
+	    long startNanos = System.nanoTime();
+	    try {
+	        List<Film> films = new ArrayList<>();
+	        String sql = "SELECT " + fields.columns() + " FROM films WHERE (id LIKE ? OR title LIKE ? OR director LIKE ? OR stars LIKE ?"
+	                + " OR CAST(year AS CHAR) LIKE ?) AND id > ? ORDER BY id LIMIT ?";
+
+	        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+	            String searchQuery = "%" + query + "%";
+	            for (int i = 1; i <= 5; i++) {
+	                pstmt.setString(i, searchQuery);
+	            }
+	            pstmt.setInt(6, afterId);
+	            pstmt.setInt(7, limit);
+	            try (ResultSet rs = pstmt.executeQuery()) {
+	                while (rs.next()) {
+	                    films.add(getNextFilm(rs, fields));
+	                }
+	            }
+	        } catch (SQLException e) {
+	            logger.error("SQL Error: {}", e.getMessage());
+	            throw e;
+	        }
+	        return films;
+	    } finally {
+	        metrics.recordDao(DaoOperation.SEARCH_FILMS_GENERAL, startNanos);
+	    }
+	}
+
+	/*
+	 * Retrieves one page of films matching a specific query type and value, in ID order,
+	 * starting after the given ID, reading only the selected columns.
+	 */
+	public List<Film> searchFilms(String searchQuery, String searchType, int afterId, int limit, FilmFields fields)
+			throws SQLException {
+	    long startNanos = System.nanoTime();
+	    try {
+	        String condition;
+	        switch (searchType) {
+	            case "All":
+	                return searchFilmsGeneral(searchQuery, afterId, limit, fields);
+	            case "ID":
+	                condition = "id = ?";
+	                break;
+	            case "Title":
+	                condition = "title LIKE ?";
+	                break;
+	            case "Director":
+	                condition = "director LIKE ?";
+	                break;
+	            case "Year":
+	                condition = "year = ?";
+	                break;
+	            case "Stars":
+	                condition = "stars LIKE ?";
+	                break;
+	            default:
+	                return getFilmsAfter(afterId, limit, fields);
+	        }
+
+	        List<Film> films = new ArrayList<>();
+	        String sql = "SELECT " + fields.columns() + " FROM films WHERE " + condition
+	                + " AND id > ? ORDER BY id LIMIT ?";
+	        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+	            if ("Year".equals(searchType) || "ID".equals(searchType)) {
+	                pstmt.setInt(1, Integer.parseInt(searchQuery));
+	            } else {
+	                pstmt.setString(1, "%" + searchQuery + "%");
+	            }
+	            pstmt.setInt(2, afterId);
+	            pstmt.setInt(3, limit);
+	            try (ResultSet rs = pstmt.executeQuery()) {
+	                while (rs.next()) {
+	                    films.add(getNextFilm(rs, fields));
+	                }
+	            }
+	        }
+	        return films;
+	    } finally {
+	        metrics.recordDao(DaoOperation.SEARCH_FILMS, startNanos);
+	    }
+	}
+
+	/*
+	 * Retrieves a paginated list of films from the database using LIMIT offset, size.
+	 * Deep pages get slower as the offset grows; the keyset methods above do not.
 	 */
 	public List<Film> getFilmsPaginated(int page, int pageSize) throws SQLException {
-	    List<Film> films = new ArrayList<>();
-	    String sql = "SELECT * FROM films LIMIT ?, ?";
-	    int offset = (page - 1) * pageSize;
-
-	    try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-	        pstmt.setInt(1, offset);
-	        pstmt.setInt(2, pageSize);
-	        try (ResultSet rs = pstmt.executeQuery()) {
-	            while (rs.next()) {
-	                films.add(getNextFilm(rs));
+	    long startNanos = System.nanoTime();
+	    try {
+	        List<Film> films = new ArrayList<>();
+	        String sql = "SELECT * FROM films LIMIT ?, ?";
+	        int offset = (page - 1) * pageSize;
+
+	        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+	            pstmt.setInt(1, offset);
+	            pstmt.setInt(2, pageSize);
+	            try (ResultSet rs = pstmt.executeQuery()) {
+	                while (rs.next()) {
+	                    films.add(getNextFilm(rs));
+	                }
 	            }
+	        } catch (SQLException e) {
+	            logger.error("SQL Error: {}", e.getMessage());
+	            throw e;
 	        }
-	    } catch (SQLException e) {
-	        System.err.println("SQL Error: " + e.getMessage());
-	        throw e;
+	        return films;
+	    } finally {
+	        metrics.recordDao(DaoOperation.GET_FILMS_PAGINATED, startNanos);
 	    }
-	    return films;
 	}
 
 }
\ No newline at end of file
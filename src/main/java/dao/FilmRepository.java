@@ -0,0 +1,139 @@
+package dao;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import models.BatchOperation;
+import models.Film;
+import models.FilmFields;
+import util.AppConfig;
+
+/*
+ * Storage operations for Film entities, implemented by FilmDAO over JDBC and by InMemoryFilmRepository.
+ * The implementation is chosen with the repository setting: "jdbc" (the default) or "memory".
+ * Searches use SQL LIKE semantics: a value matches anywhere in the field, case-insensitively,
+ * with '%' and '_' in the query acting as wildcards. Paged reads take the FilmFields to load, so that
+ * list responses that do not need the review never read it.
+ */
+public interface FilmRepository {
+
+    /*
+     * Creates the repository selected by the repository setting.
+     */
+    static FilmRepository fromConfig(AppConfig config) {
+        String type = config.getString("repository", "jdbc");
+        if ("memory".equalsIgnoreCase(type)) {
+            return InMemoryFilmRepository.getInstance();
+        }
+        if (!"jdbc".equalsIgnoreCase(type)) {
+            throw new IllegalArgumentException("Unknown repository type: " + type);
+        }
+        return new FilmDAO();
+    }
+
+    /*
+     * Retrieves every film.
+     */
+    List<Film> getAllFilms() throws SQLException;
+
+    /*
+     * Streams every film to the handler one at a time, without materialising the whole catalog.
+     */
+    void forEachFilm(FilmRowHandler handler) throws SQLException, IOException;
+
+    /*
+     * Streams one page of films in ID order, starting after the given ID, with only the selected fields set.
+     */
+    void forEachFilm(int afterId, int limit, FilmFields fields, FilmRowHandler handler)
+            throws SQLException, IOException;
+
+    /*
+     * Retrieves one page of films in ID order, starting after the given ID, with only the selected fields set.
+     */
+    List<Film> getFilmsAfter(int afterId, int limit, FilmFields fields) throws SQLException;
+
+    /*
+     * Streams every film without its review, for building the search index.
+     */
+    void forEachFilmSearchFields(FilmRowHandler handler) throws SQLException, IOException;
+
+    /*
+     * Retrieves the films with the given IDs, ordered by ID, with only the selected fields set.
+     * IDs that do not exist are skipped.
+     */
+    List<Film> getFilmsByIds(int[] ids, FilmFields fields) throws SQLException;
+
+    /*
+     * Retrieves a single film by ID.
+     * @return The film, or null if there is none with that ID.
+     */
+    Film getFilmByID(int id) throws SQLException;
+
+    /*
+     * Inserts a film and sets the generated ID on it.
+     */
+    void insertFilm(Film film) throws SQLException;
+
+    /*
+     * Inserts several films, setting the generated ID on each. Either every film is inserted or none are.
+     */
+    void insertFilms(List<Film> films) throws SQLException;
+
+    /*
+     * Executes an ordered list of create, update and delete operations as one unit.
+     * Creates have the generated ID set on their film.
+     * @throws BatchOperationException If an operation fails, including an update or delete of a film that
+     * does not exist; none of the batch is applied.
+     */
+    void executeBatch(List<BatchOperation> operations) throws SQLException;
+
+    /*
+     * Updates the film with the film's ID. Does nothing if there is no such film.
+     * @return true if a film was updated, false if there is no film with that ID.
+     */
+    boolean updateFilm(Film film) throws SQLException;
+
+    /*
+     * Deletes a film by ID.
+     * @return true if a film was deleted.
+     */
+    boolean deleteFilm(int id) throws SQLException;
+
+    /*
+     * Searches by several fields at once: every non-empty value must match its field (id, title, year,
+     * director or stars).
+     * @return The matching films, or null if the search could not be run.
+     */
+    List<Film> searchFilms(Map<String, String> searchParams) throws SQLException;
+
+    /*
+     * Searches for films whose id, title, director, stars or year matches the query.
+     */
+    List<Film> searchFilmsGeneral(String query) throws SQLException;
+
+    /*
+     * Retrieves one page of a general search, in ID order, starting after the given ID,
+     * with only the selected fields set.
+     */
+    List<Film> searchFilmsGeneral(String query, int afterId, int limit, FilmFields fields) throws SQLException;
+
+    /*
+     * Searches one field, chosen by searchType: All, ID, Title, Director, Year or Stars.
+     * ID and Year match exactly; any other type returns every film.
+     */
+    List<Film> searchFilms(String searchQuery, String searchType) throws SQLException;
+
+    /*
+     * Retrieves one page of a search on one field, in ID order, starting after the given ID,
+     * with only the selected fields set.
+     */
+    List<Film> searchFilms(String searchQuery, String searchType, int afterId, int limit, FilmFields fields)
+            throws SQLException;
+
+    /*
+     * Retrieves a page of films by page number (from 1) and page size.
+     */
+    List<Film> getFilmsPaginated(int page, int pageSize) throws SQLException;
+}
@@ -0,0 +1,20 @@
+package dao;
+
+import java.io.IOException;
+
+import models.Film;
+
+/*
+ * Callback that receives films one at a time as rows are read from the database,
+ * allowing results to be processed without first collecting them into a list.
+ */
+@FunctionalInterface
+public interface FilmRowHandler {
+
+    /*
+     * Handles a single film read from the result set.
+     * @param film The film mapped from the current row.
+     * @throws IOException If the film cannot be written to its destination.
+     */
+    void handle(Film film) throws IOException;
+}
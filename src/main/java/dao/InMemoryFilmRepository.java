@@ -0,0 +1,684 @@
+package dao;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import metrics.DaoOperation;
+import metrics.Metrics;
+import models.BatchOperation;
+import models.Film;
+import models.FilmFields;
+
+/*
+ * Film repository held entirely in memory, for running without a database or as a test double.
+ *
+ * IDs are handed out in ascending order like an auto-increment column, so films are stored by ID in
+ * fixed-size segments of an array rather than in a boxed map: a lookup is two array reads and needs no lock,
+ * and scans in ID order come for free. Writes to the same ID are serialised by one of a set of striped locks;
+ * writes to different IDs run in parallel. A batch takes the store exclusively and undoes what it has applied
+ * if an operation fails, so it is all-or-nothing, although readers may see it part-way through.
+ * Secondary indexes by year and by director narrow down searches on those fields.
+ *
+ * Films are copied going in and coming out, so callers can never change stored state by accident.
+ * The store starts empty and is lost when the application stops.
+ */
+public class InMemoryFilmRepository implements FilmRepository {
+    private static final int SEGMENT_SHIFT = 12;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int STRIPES = 64;
+
+    private static InMemoryFilmRepository instance;
+
+    private final Object growLock = new Object();
+    // Segment i holds the films with IDs [i * SEGMENT_SIZE, (i + 1) * SEGMENT_SIZE); replaced as a whole to grow.
+    private volatile AtomicReferenceArray<Film>[] segments = newDirectory(16);
+    // The highest ID handed out so far; scans stop here.
+    private final AtomicInteger lastId = new AtomicInteger();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    // Single writes share this lock; batches hold it exclusively.
+    private final ReadWriteLock batchLock = new ReentrantReadWriteLock();
+
+    private final Map<Integer, Set<Integer>> idsByYear = new ConcurrentHashMap<>();
+    // Keyed by lower-cased director.
+    private final Map<String, Set<Integer>> idsByDirector = new ConcurrentHashMap<>();
+
+    private final Metrics metrics = Metrics.getInstance();
+
+    /*
+     * Creates an empty store of its own, e.g. as a test double. The application shares getInstance().
+     */
+    public InMemoryFilmRepository() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /*
+     * Provides a thread-safe way to access the shared store.
+     */
+    public static synchronized InMemoryFilmRepository getInstance() {
+        if (instance == null) {
+            instance = new InMemoryFilmRepository();
+        }
+        return instance;
+    }
+
+    /*
+     * Returns the number of films stored.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        long startNanos = System.nanoTime();
+        try {
+            List<Film> films = new ArrayList<>(size.get());
+            int last = lastId.get();
+            for (int id = 1; id <= last; id++) {
+                Film film = slot(id);
+                if (film != null) {
+                    films.add(copy(film));
+                }
+            }
+            return films;
+        } finally {
+            metrics.recordDao(DaoOperation.GET_ALL_FILMS, startNanos);
+        }
+    }
+
+    @Override
+    public void forEachFilm(FilmRowHandler handler) throws IOException {
+        forEachFilm(0, Integer.MAX_VALUE, FilmFields.ALL, handler);
+    }
+
+    @Override
+    public void forEachFilm(int afterId, int limit, FilmFields fields, FilmRowHandler handler) throws IOException {
+        long startNanos = System.nanoTime();
+        try {
+            int last = lastId.get();
+            int count = 0;
+            for (int id = Math.max(1, afterId + 1); id <= last && count < limit; id++) {
+                Film film = slot(id);
+                if (film != null) {
+                    handler.handle(copy(film, fields));
+                    count++;
+                }
+            }
+        } finally {
+            metrics.recordDao(DaoOperation.FOR_EACH_FILM, startNanos);
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsAfter(int afterId, int limit, FilmFields fields) {
+        long startNanos = System.nanoTime();
+        try {
+            return scan(afterId, limit, fields, null);
+        } finally {
+            metrics.recordDao(DaoOperation.GET_FILMS_AFTER, startNanos);
+        }
+    }
+
+    @Override
+    public void forEachFilmSearchFields(FilmRowHandler handler) throws IOException {
+        long startNanos = System.nanoTime();
+        try {
+            int last = lastId.get();
+            for (int id = 1; id <= last; id++) {
+                Film film = slot(id);
+                if (film != null) {
+                    handler.handle(new Film(film.getId(), film.getTitle(), film.getYear(), film.getDirector(),
+                            film.getStars(), null));
+                }
+            }
+        } finally {
+            metrics.recordDao(DaoOperation.FOR_EACH_FILM_SEARCH_FIELDS, startNanos);
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(int[] ids, FilmFields fields) {
+        long startNanos = System.nanoTime();
+        try {
+            int[] sorted = ids.clone();
+            Arrays.sort(sorted);
+            List<Film> films = new ArrayList<>(sorted.length);
+            for (int i = 0; i < sorted.length; i++) {
+                if (i > 0 && sorted[i] == sorted[i - 1]) {
+                    continue;
+                }
+                Film film = slot(sorted[i]);
+                if (film != null) {
+                    films.add(copy(film, fields));
+                }
+            }
+            return films;
+        } finally {
+            metrics.recordDao(DaoOperation.GET_FILMS_BY_IDS, startNanos);
+        }
+    }
+
+    @Override
+    public Film getFilmByID(int id) {
+        long startNanos = System.nanoTime();
+        try {
+            Film film = slot(id);
+            return film == null ? null : copy(film);
+        } finally {
+            metrics.recordDao(DaoOperation.GET_FILM_BY_ID, startNanos);
+        }
+    }
+
+    @Override
+    public void insertFilm(Film film) {
+        long startNanos = System.nanoTime();
+        batchLock.readLock().lock();
+        try {
+            insert(film);
+        } finally {
+            batchLock.readLock().unlock();
+            metrics.recordDao(DaoOperation.INSERT_FILM, startNanos);
+        }
+    }
+
+    @Override
+    public void insertFilms(List<Film> films) {
+        long startNanos = System.nanoTime();
+        batchLock.readLock().lock();
+        try {
+            for (Film film : films) {
+                insert(film);
+            }
+        } finally {
+            batchLock.readLock().unlock();
+            metrics.recordDao(DaoOperation.INSERT_FILMS, startNanos);
+        }
+    }
+
+    /*
+     * Applies the operations in order while holding the store exclusively. If one fails, the ones already
+     * applied are undone in reverse order before the exception is thrown.
+     */
+    @Override
+    public void executeBatch(List<BatchOperation> operations) throws SQLException {
+        long startNanos = System.nanoTime();
+        batchLock.writeLock().lock();
+        try {
+            // Pairs of (id, film before the operation) for undoing; a null film means the ID was free.
+            List<Object[]> undo = new ArrayList<>(operations.size());
+            try {
+                for (int i = 0; i < operations.size(); i++) {
+                    BatchOperation operation = operations.get(i);
+                    String op = operation.getOp();
+                    if (BatchOperation.CREATE.equals(op)) {
+                        insert(operation.getFilm());
+                        undo.add(new Object[] {operation.getFilm().getId(), null});
+                    } else if (BatchOperation.UPDATE.equals(op) || BatchOperation.DELETE.equals(op)) {
+                        int id = operation.targetId();
+                        Film previous = slot(id);
+                        if (previous == null) {
+                            throw new BatchOperationException(i, "No film found with ID " + id, null);
+                        }
+                        if (BatchOperation.UPDATE.equals(op)) {
+                            Film film = copy(operation.getFilm());
+                            film.setId(id);
+                            replace(id, film);
+                        } else {
+                            replace(id, null);
+                        }
+                        undo.add(new Object[] {id, previous});
+                    } else {
+                        throw new BatchOperationException(i, "Unknown operation: " + op, null);
+                    }
+                }
+            } catch (BatchOperationException | RuntimeException e) {
+                for (int i = undo.size() - 1; i >= 0; i--) {
+                    replace((Integer) undo.get(i)[0], (Film) undo.get(i)[1]);
+                }
+                throw e;
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+            metrics.recordDao(DaoOperation.EXECUTE_BATCH, startNanos);
+        }
+    }
+
+    @Override
+    public boolean updateFilm(Film film) {
+        long startNanos = System.nanoTime();
+        batchLock.readLock().lock();
+        try {
+            ReentrantLock stripe = stripeFor(film.getId());
+            stripe.lock();
+            try {
+                if (slot(film.getId()) == null) {
+                    return false;
+                }
+                replace(film.getId(), copy(film));
+                return true;
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            batchLock.readLock().unlock();
+            metrics.recordDao(DaoOperation.UPDATE_FILM, startNanos);
+        }
+    }
+
+    @Override
+    public boolean deleteFilm(int id) {
+        long startNanos = System.nanoTime();
+        batchLock.readLock().lock();
+        try {
+            ReentrantLock stripe = stripeFor(id);
+            stripe.lock();
+            try {
+                if (slot(id) == null) {
+                    return false;
+                }
+                replace(id, null);
+                return true;
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            batchLock.readLock().unlock();
+            metrics.recordDao(DaoOperation.DELETE_FILM, startNanos);
+        }
+    }
+
+    @Override
+    public List<Film> searchFilms(Map<String, String> searchParams) {
+        long startNanos = System.nanoTime();
+        try {
+            List<String> fields = new ArrayList<>();
+            List<LikePattern> patterns = new ArrayList<>();
+            for (Map.Entry<String, String> param : searchParams.entrySet()) {
+                if (!param.getValue().isEmpty()) {
+                    if (!isSearchField(param.getKey())) {
+                        return null;
+                    }
+                    fields.add(param.getKey());
+                    patterns.add(LikePattern.contains(param.getValue()));
+                }
+            }
+            int directorIndex = fields.indexOf("director");
+            int[] candidates = directorIndex < 0 ? null : directorCandidates(patterns.get(directorIndex));
+            return collect(candidates, 0, Integer.MAX_VALUE, FilmFields.ALL, film -> {
+                for (int i = 0; i < fields.size(); i++) {
+                    if (!patterns.get(i).matches(field(film, fields.get(i)))) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+        } finally {
+            metrics.recordDao(DaoOperation.SEARCH_FILMS, startNanos);
+        }
+    }
+
+    @Override
+    public List<Film> searchFilmsGeneral(String query) {
+        return searchFilmsGeneral(query, 0, Integer.MAX_VALUE, FilmFields.ALL);
+    }
+
+    @Override
+    public List<Film> searchFilmsGeneral(String query, int afterId, int limit, FilmFields fields) {
+        long startNanos = System.nanoTime();
+        try {
+            LikePattern pattern = LikePattern.contains(query);
+            return scan(afterId, limit, fields, film -> pattern.matches(Integer.toString(film.getId()))
+                    || pattern.matches(film.getTitle()) || pattern.matches(film.getDirector())
+                    || pattern.matches(film.getStars()) || pattern.matches(Integer.toString(film.getYear())));
+        } finally {
+            metrics.recordDao(DaoOperation.SEARCH_FILMS_GENERAL, startNanos);
+        }
+    }
+
+    @Override
+    public List<Film> searchFilms(String searchQuery, String searchType) {
+        return searchFilms(searchQuery, searchType, 0, Integer.MAX_VALUE, FilmFields.ALL);
+    }
+
+    @Override
+    public List<Film> searchFilms(String searchQuery, String searchType, int afterId, int limit,
+            FilmFields fields) {
+        long startNanos = System.nanoTime();
+        try {
+            switch (searchType) {
+                case "All":
+                    return searchFilmsGeneral(searchQuery, afterId, limit, fields);
+                case "ID": {
+                    int id = Integer.parseInt(searchQuery);
+                    Film film = id > afterId && limit > 0 ? slot(id) : null;
+                    return film == null ? new ArrayList<>() : new ArrayList<>(List.of(copy(film, fields)));
+                }
+                case "Year": {
+                    int year = Integer.parseInt(searchQuery);
+                    return collect(toSortedArray(idsByYear.get(year)), afterId, limit, fields,
+                            film -> film.getYear() == year);
+                }
+                case "Director": {
+                    LikePattern pattern = LikePattern.contains(searchQuery);
+                    return collect(directorCandidates(pattern), afterId, limit, fields,
+                            film -> pattern.matches(film.getDirector()));
+                }
+                case "Title": {
+                    LikePattern pattern = LikePattern.contains(searchQuery);
+                    return scan(afterId, limit, fields, film -> pattern.matches(film.getTitle()));
+                }
+                case "Stars": {
+                    LikePattern pattern = LikePattern.contains(searchQuery);
+                    return scan(afterId, limit, fields, film -> pattern.matches(film.getStars()));
+                }
+                default:
+                    return scan(afterId, limit, fields, null);
+            }
+        } finally {
+            metrics.recordDao(DaoOperation.SEARCH_FILMS, startNanos);
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsPaginated(int page, int pageSize) {
+        long startNanos = System.nanoTime();
+        try {
+            long toSkip = Math.max(0L, (long) (page - 1) * pageSize);
+            List<Film> films = new ArrayList<>();
+            int last = lastId.get();
+            for (int id = 1; id <= last && films.size() < pageSize; id++) {
+                Film film = slot(id);
+                if (film != null && toSkip-- <= 0) {
+                    films.add(copy(film));
+                }
+            }
+            return films;
+        } finally {
+            metrics.recordDao(DaoOperation.GET_FILMS_PAGINATED, startNanos);
+        }
+    }
+
+    // Films with IDs above afterId that pass the filter (all of them if it is null), in ID order.
+    private List<Film> scan(int afterId, int limit, FilmFields fields, Predicate<Film> filter) {
+        List<Film> films = new ArrayList<>();
+        int last = lastId.get();
+        for (int id = Math.max(1, afterId + 1); id <= last && films.size() < limit; id++) {
+            Film film = slot(id);
+            if (film != null && (filter == null || filter.test(film))) {
+                films.add(copy(film, fields));
+            }
+        }
+        return films;
+    }
+
+    // Like scan, but only visits the given sorted candidate IDs, or every film if candidates is null.
+    // Candidates come from an index that may lag a concurrent write, so each film is checked again.
+    private List<Film> collect(int[] candidates, int afterId, int limit, FilmFields fields,
+            Predicate<Film> filter) {
+        if (candidates == null) {
+            return scan(afterId, limit, fields, filter);
+        }
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < candidates.length && films.size() < limit; i++) {
+            if (candidates[i] > afterId) {
+                Film film = slot(candidates[i]);
+                if (film != null && filter.test(film)) {
+                    films.add(copy(film, fields));
+                }
+            }
+        }
+        return films;
+    }
+
+    // IDs of films whose director matches, found by testing each distinct director once.
+    private int[] directorCandidates(LikePattern pattern) {
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        idsByDirector.forEach((director, directorIds) -> {
+            if (pattern.matches(director)) {
+                ids.addAll(directorIds);
+            }
+        });
+        return toSortedArray(ids);
+    }
+
+    private static int[] toSortedArray(Set<Integer> ids) {
+        if (ids == null) {
+            return new int[0];
+        }
+        int[] sorted = ids.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static boolean isSearchField(String name) {
+        switch (name) {
+            case "id":
+            case "title":
+            case "year":
+            case "director":
+            case "stars":
+            case "review":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String field(Film film, String name) {
+        switch (name) {
+            case "id":
+                return Integer.toString(film.getId());
+            case "title":
+                return film.getTitle();
+            case "year":
+                return Integer.toString(film.getYear());
+            case "director":
+                return film.getDirector();
+            case "stars":
+                return film.getStars();
+            default:
+                return film.getReview();
+        }
+    }
+
+    // Stores a copy of a new film under the next ID and sets that ID on the caller's film.
+    private void insert(Film film) {
+        int id = lastId.incrementAndGet();
+        ReentrantLock stripe = stripeFor(id);
+        stripe.lock();
+        try {
+            Film stored = copy(film);
+            stored.setId(id);
+            replace(id, stored);
+        } finally {
+            stripe.unlock();
+        }
+        film.setId(id);
+    }
+
+    // Puts a film (or null, to delete) in the slot for id and brings the indexes and size up to date.
+    // Callers hold the stripe for id or the batch lock exclusively.
+    private void replace(int id, Film film) {
+        Film previous = segmentFor(id).getAndSet(id & SEGMENT_MASK, film);
+        if (previous != null) {
+            unindex(previous);
+        } else if (film != null) {
+            size.incrementAndGet();
+        }
+        if (film != null) {
+            index(film);
+        } else if (previous != null) {
+            size.decrementAndGet();
+        }
+    }
+
+    private void index(Film film) {
+        idsByYear.compute(film.getYear(), (year, ids) -> addId(ids, film.getId()));
+        if (film.getDirector() != null) {
+            idsByDirector.compute(film.getDirector().toLowerCase(Locale.ROOT),
+                    (director, ids) -> addId(ids, film.getId()));
+        }
+    }
+
+    private void unindex(Film film) {
+        idsByYear.computeIfPresent(film.getYear(), (year, ids) -> removeId(ids, film.getId()));
+        if (film.getDirector() != null) {
+            idsByDirector.computeIfPresent(film.getDirector().toLowerCase(Locale.ROOT),
+                    (director, ids) -> removeId(ids, film.getId()));
+        }
+    }
+
+    private static Set<Integer> addId(Set<Integer> ids, int id) {
+        Set<Integer> set = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+        set.add(id);
+        return set;
+    }
+
+    private static Set<Integer> removeId(Set<Integer> ids, int id) {
+        ids.remove(id);
+        return ids.isEmpty() ? null : ids;
+    }
+
+    private ReentrantLock stripeFor(int id) {
+        return stripes[id & (STRIPES - 1)];
+    }
+
+    // Reads the film stored under id without locking; null if there is none.
+    private Film slot(int id) {
+        if (id <= 0) {
+            return null;
+        }
+        AtomicReferenceArray<Film>[] directory = segments;
+        int index = id >>> SEGMENT_SHIFT;
+        if (index >= directory.length || directory[index] == null) {
+            return null;
+        }
+        return directory[index].get(id & SEGMENT_MASK);
+    }
+
+    // Returns the segment holding id, allocating it (and growing the directory) if needed.
+    private AtomicReferenceArray<Film> segmentFor(int id) {
+        int index = id >>> SEGMENT_SHIFT;
+        AtomicReferenceArray<Film>[] directory = segments;
+        if (index < directory.length && directory[index] != null) {
+            return directory[index];
+        }
+        synchronized (growLock) {
+            directory = segments;
+            if (index >= directory.length || directory[index] == null) {
+                directory = Arrays.copyOf(directory, Math.max(directory.length, Integer.highestOneBit(index) << 1));
+                directory[index] = new AtomicReferenceArray<>(SEGMENT_SIZE);
+                segments = directory;
+            }
+            return directory[index];
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static AtomicReferenceArray<Film>[] newDirectory(int length) {
+        return new AtomicReferenceArray[length];
+    }
+
+    private static Film copy(Film film) {
+        return new Film(film.getId(), film.getTitle(), film.getYear(), film.getDirector(), film.getStars(),
+                film.getReview());
+    }
+
+    // Copies only the selected fields, the way FilmDAO maps a projected row.
+    private static Film copy(Film film, FilmFields fields) {
+        if (fields.isAll()) {
+            return copy(film);
+        }
+        return new Film(film.getId(),
+                fields.includes(FilmFields.Field.TITLE) ? film.getTitle() : null,
+                fields.includes(FilmFields.Field.YEAR) ? film.getYear() : 0,
+                fields.includes(FilmFields.Field.DIRECTOR) ? film.getDirector() : null,
+                fields.includes(FilmFields.Field.STARS) ? film.getStars() : null,
+                fields.includes(FilmFields.Field.REVIEW) ? film.getReview() : null);
+    }
+
+    /*
+     * A compiled SQL LIKE pattern, matched case-insensitively without allocating. Supports '%', '_' and
+     * backslash escapes, as MySQL does with its default escape character.
+     */
+    private static final class LikePattern {
+        private static final int ANY = -1;
+        private static final int ONE = -2;
+
+        // Lower-cased characters, or ANY / ONE for the wildcards.
+        private final int[] tokens;
+
+        private LikePattern(int[] tokens) {
+            this.tokens = tokens;
+        }
+
+        // The pattern '%' + query + '%', as used by every search.
+        static LikePattern contains(String query) {
+            int[] tokens = new int[query.length() + 2];
+            int length = 0;
+            tokens[length++] = ANY;
+            for (int i = 0; i < query.length(); i++) {
+                char c = query.charAt(i);
+                if (c == '\\' && i + 1 < query.length()) {
+                    tokens[length++] = Character.toLowerCase(query.charAt(++i));
+                } else if (c == '%') {
+                    tokens[length++] = ANY;
+                } else if (c == '_') {
+                    tokens[length++] = ONE;
+                } else {
+                    tokens[length++] = Character.toLowerCase(c);
+                }
+            }
+            tokens[length++] = ANY;
+            return new LikePattern(Arrays.copyOf(tokens, length));
+        }
+
+        // Greedy wildcard match that backtracks only to the most recent '%'.
+        boolean matches(String text) {
+            if (text == null) {
+                return false;
+            }
+            int t = 0;
+            int p = 0;
+            int starP = -1;
+            int starT = 0;
+            while (t < text.length()) {
+                if (p < tokens.length && tokens[p] != ANY
+                        && (tokens[p] == ONE || tokens[p] == Character.toLowerCase(text.charAt(t)))) {
+                    t++;
+                    p++;
+                } else if (p < tokens.length && tokens[p] == ANY) {
+                    starP = p++;
+                    starT = t;
+                } else if (starP >= 0) {
+                    p = starP + 1;
+                    t = ++starT;
+                } else {
+                    return false;
+                }
+            }
+            while (p < tokens.length && tokens[p] == ANY) {
+                p++;
+            }
+            return p == tokens.length;
+        }
+    }
+}
@@ -9,42 +9,72 @@ import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 import javax.servlet.annotation.WebListener;
 
+import dao.ConnectionPool;
+import logging.AsyncAppender;
+import logging.Logger;
+import services.FilmService;
+import util.AppConfig;
+import util.RequestExecutor;
+import util.XmlConverter;
+
 /*
  * Web application lifecycle listener that handles cleanup tasks when the web application is stopped.
  */
 @WebListener
 public class AppContextListener implements ServletContextListener {
+    private static final Logger logger = Logger.getLogger(AppContextListener.class);
 
     /*
      * Called when the servlet context is initialised.
-     * Not used in this context, but serves as a placeholder for future initialisation tasks.
+     * Warms up expensive singletons so the first requests do not pay for their construction.
      */
     @Override
     public void contextInitialized(ServletContextEvent sce) {
-    	// No specific initialisation tasks in current setup.
+        // Builds the JAXB contexts for Film and Films once, up front.
+        XmlConverter.getInstance();
+
+        // Builds the search index in the background; searches use SQL until it is ready.
+        if (AppConfig.getInstance().getBoolean("search.index.enabled", true)) {
+            Thread indexBuilder = new Thread(() -> {
+                try {
+                    new FilmService().buildSearchIndex();
+                } catch (SQLException e) {
+                    logger.error("Error building search index: {}", e.getMessage());
+                }
+            }, "search-index-builder");
+            indexBuilder.setDaemon(true);
+            indexBuilder.start();
+        }
     }
 
     /*
      * Handles clean-up tasks when the web application context is destroyed.
-     * This includes deregistering JDBC drivers and stopping abandoned connection cleanup threads.
+     * This includes closing the connection pool, deregistering JDBC drivers and stopping abandoned connection cleanup threads.
      */
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
 
+        // Stop taking requests, then close pooled connections before the driver they belong to is deregistered.
+        RequestExecutor.shutdown();
+        ConnectionPool.shutdown();
+
     	// Deregister all JDBC drivers registered by this web application.
         Enumeration<Driver> drivers = DriverManager.getDrivers();
         while (drivers.hasMoreElements()) {
             Driver driver = drivers.nextElement();
             try {
                 DriverManager.deregisterDriver(driver);
-                System.out.println("Deregistering JDBC driver: " + driver);
+                logger.info("Deregistering JDBC driver: {}", driver);
             } catch (SQLException e) {
-                System.out.println("Error deregistering driver: " + e.getMessage());
+                logger.warn("Error deregistering driver: {}", e.getMessage());
             }
         }
         
      // Explicitly shut down the MySQL abandoned connection cleanup thread to prevent memory leaks.
      com.mysql.cj.jdbc.AbandonedConnectionCleanupThread.checkedShutdown();
-		System.out.println("AbandonedConnectionCleanupThread has been shutdown");
+		logger.info("AbandonedConnectionCleanupThread has been shutdown");
+
+        // Write out anything still buffered before the writer thread goes away with the application.
+        AsyncAppender.shutdown();
     }
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package logging;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import util.AppConfig;
+
+/*
+ * Writes log events from a single background thread, so request threads never block on console output
+ * or contend for the System.out lock.
+ * Events go into a fixed-size ring buffer: producers claim a slot with a compare-and-set on the tail and
+ * the writer thread drains from the head. When the buffer is full the event is dropped rather than
+ * making the caller wait, and the number of dropped events is reported once the writer catches up.
+ * WARN and ERROR go to System.err, everything else to System.out.
+ * This class uses a singleton pattern so all loggers share one buffer and one writer thread.
+ */
+public class AsyncAppender {
+    private static final long IDLE_PARK_NANOS = 10_000_000L;
+
+    private static AsyncAppender instance;
+
+    private final AtomicReferenceArray<LogEvent> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    // Next slot to read; only the writer thread advances it.
+    private volatile long head;
+    private volatile boolean sleeping;
+    private volatile boolean stopped;
+
+    private AsyncAppender(int capacity) {
+        int size = Integer.highestOneBit(Math.max(64, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.writer = new Thread(this::drain, "async-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /*
+     * Provides a thread-safe way to access the shared appender, starting its writer thread on first use.
+     */
+    public static synchronized AsyncAppender getInstance() {
+        if (instance == null) {
+            instance = new AsyncAppender(AppConfig.getInstance().getInt("log.bufferSize", 8192));
+        }
+        return instance;
+    }
+
+    /*
+     * Writes everything still buffered and stops the writer thread; called when the application is stopped.
+     * Events logged afterwards are written synchronously.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.stop();
+        }
+    }
+
+    /*
+     * Queues an event for writing without blocking.
+     * @return false if the buffer was full and the event was dropped.
+     */
+    boolean append(LogEvent event) {
+        if (stopped) {
+            write(event);
+            return true;
+        }
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head >= slots.length()) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        slots.set((int) (claimed & mask), event);
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    private void drain() {
+        while (true) {
+            long next = head;
+            int index = (int) (next & mask);
+            LogEvent event = slots.get(index);
+            if (event != null) {
+                slots.set(index, null);
+                head = next + 1;
+                write(event);
+                continue;
+            }
+            if (next != tail.get()) {
+                // A producer has claimed the slot but not yet filled it.
+                Thread.onSpinWait();
+                continue;
+            }
+            reportDropped();
+            System.out.flush();
+            System.err.flush();
+            if (stopped) {
+                return;
+            }
+            sleeping = true;
+            if (next == tail.get()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            sleeping = false;
+        }
+    }
+
+    private void stop() {
+        stopped = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reportDropped() {
+        long count = dropped.getAndSet(0);
+        if (count > 0) {
+            write(new LogEvent(Level.WARN, AsyncAppender.class.getName(),
+                    count + " log messages dropped because the log buffer was full", null));
+        }
+    }
+
+    private static void write(LogEvent event) {
+        StringBuilder line = new StringBuilder(96 + event.message.length());
+        line.append(Instant.ofEpochMilli(event.timestamp)).append(' ')
+                .append(event.level.name());
+        for (int i = event.level.name().length(); i < 5; i++) {
+            line.append(' ');
+        }
+        line.append(" [").append(event.threadName).append("] ")
+                .append(event.loggerName).append(" - ").append(event.message).append(System.lineSeparator());
+        if (event.error != null) {
+            StringWriter trace = new StringWriter();
+            event.error.printStackTrace(new PrintWriter(trace));
+            line.append(trace);
+        }
+        PrintStream out = event.level.compareTo(Level.WARN) >= 0 ? System.err : System.out;
+        out.print(line);
+    }
+}
@@ -0,0 +1,28 @@
+package logging;
+
+/*
+ * Log levels in increasing order of severity. A logger set to a level writes messages at that level and above;
+ * OFF disables it entirely.
+ */
+public enum Level {
+    TRACE,
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF;
+
+    /*
+     * Parses a level name case-insensitively, falling back to the default value if it is not recognised.
+     */
+    public static Level parse(String name, Level defaultValue) {
+        if (name == null) {
+            return defaultValue;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package logging;
+
+/*
+ * A log message captured on the calling thread, waiting in the ring buffer to be formatted and written.
+ * Only the message text is built by the caller; the timestamp, layout and stack trace are rendered by the appender.
+ */
+final class LogEvent {
+    final long timestamp;
+    final Level level;
+    final String threadName;
+    final String loggerName;
+    final String message;
+    final Throwable error;
+
+    LogEvent(Level level, String loggerName, String message, Throwable error) {
+        this.timestamp = System.currentTimeMillis();
+        this.level = level;
+        this.threadName = Thread.currentThread().getName();
+        this.loggerName = loggerName;
+        this.message = message;
+        this.error = error;
+    }
+}
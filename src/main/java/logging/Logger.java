@@ -0,0 +1,153 @@
+package logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import util.AppConfig;
+
+/*
+ * Leveled logger writing through the shared AsyncAppender.
+ * The level comes from log.level, overridable per package or class with log.level.<name>
+ * (e.g. log.level.dao=DEBUG). Messages use {} placeholders and are only formatted once the level check
+ * has passed, so a disabled call builds no strings. Below WARN, log.sampleRate=N keeps one message in N
+ * per logger, for turning on DEBUG under load; warnings and errors are never sampled.
+ * Request and response bodies are only logged when log.bodies is true, truncated to log.bodyMaxChars.
+ */
+public class Logger {
+    private final String name;
+    private final Level level;
+    private final int sampleRate;
+    private final boolean logBodies;
+    private final int bodyMaxChars;
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    private Logger(String name, AppConfig config) {
+        this.name = name;
+        this.level = levelFor(name, config);
+        this.sampleRate = Math.max(1, config.getInt("log.sampleRate", 1));
+        this.logBodies = config.getBoolean("log.bodies", false);
+        this.bodyMaxChars = Math.max(0, config.getInt("log.bodyMaxChars", 1024));
+    }
+
+    /*
+     * Creates a logger named after a class. Keep it in a static final field; creation reads the configuration.
+     */
+    public static Logger getLogger(Class<?> clazz) {
+        return new Logger(clazz.getName(), AppConfig.getInstance());
+    }
+
+    // Uses the most specific of log.level.<class>, log.level.<package>, ... and log.level.
+    private static Level levelFor(String name, AppConfig config) {
+        Level defaultLevel = Level.parse(config.getString("log.level", null), Level.INFO);
+        String prefix = name;
+        while (true) {
+            String configured = config.getString("log.level." + prefix, null);
+            if (configured != null) {
+                return Level.parse(configured, defaultLevel);
+            }
+            int dot = prefix.lastIndexOf('.');
+            if (dot < 0) {
+                return defaultLevel;
+            }
+            prefix = prefix.substring(0, dot);
+        }
+    }
+
+    /*
+     * Checks whether messages at a level would be written, before any sampling.
+     */
+    public boolean isEnabled(Level messageLevel) {
+        return level != Level.OFF && messageLevel.compareTo(level) >= 0;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void trace(String message, Object... args) {
+        log(Level.TRACE, message, null, args);
+    }
+
+    public void debug(String message, Object... args) {
+        log(Level.DEBUG, message, null, args);
+    }
+
+    public void info(String message, Object... args) {
+        log(Level.INFO, message, null, args);
+    }
+
+    public void warn(String message, Object... args) {
+        log(Level.WARN, message, null, args);
+    }
+
+    public void error(String message, Object... args) {
+        log(Level.ERROR, message, null, args);
+    }
+
+    /*
+     * Logs a warning with the stack trace of its cause.
+     */
+    public void warn(String message, Throwable cause) {
+        log(Level.WARN, message, cause);
+    }
+
+    /*
+     * Logs an error with the stack trace of its cause.
+     */
+    public void error(String message, Throwable cause) {
+        log(Level.ERROR, message, cause);
+    }
+
+    /*
+     * Logs a request or response body at DEBUG, if body logging is enabled, cut to log.bodyMaxChars.
+     * @param label What the body is, e.g. "Request body".
+     * @param body The body text; only read if it is going to be logged.
+     */
+    public void body(String label, CharSequence body) {
+        if (!logBodies || !isEnabled(Level.DEBUG) || !sampled(Level.DEBUG)) {
+            return;
+        }
+        StringBuilder message = new StringBuilder(label).append(": ");
+        if (body.length() > bodyMaxChars) {
+            message.append(body, 0, bodyMaxChars).append("... (").append(body.length() - bodyMaxChars)
+                    .append(" more chars)");
+        } else {
+            message.append(body);
+        }
+        AsyncAppender.getInstance().append(new LogEvent(Level.DEBUG, name, message.toString(), null));
+    }
+
+    /*
+     * Whether body logging is on at all, so callers can avoid building a body that would not be logged.
+     */
+    public boolean isBodyLoggingEnabled() {
+        return logBodies && isEnabled(Level.DEBUG);
+    }
+
+    private void log(Level messageLevel, String message, Throwable cause, Object... args) {
+        if (!isEnabled(messageLevel) || !sampled(messageLevel)) {
+            return;
+        }
+        AsyncAppender.getInstance().append(new LogEvent(messageLevel, name, format(message, args), cause));
+    }
+
+    private boolean sampled(Level messageLevel) {
+        return sampleRate == 1 || messageLevel.compareTo(Level.WARN) >= 0
+                || sampleCounter.getAndIncrement() % sampleRate == 0;
+    }
+
+    // Replaces each {} in order with the next argument.
+    private static String format(String message, Object[] args) {
+        if (args == null || args.length == 0) {
+            return message;
+        }
+        StringBuilder formatted = new StringBuilder(message.length() + 16 * args.length);
+        int argIndex = 0;
+        int from = 0;
+        int placeholder;
+        while (argIndex < args.length && (placeholder = message.indexOf("{}", from)) >= 0) {
+            formatted.append(message, from, placeholder).append(args[argIndex++]);
+            from = placeholder + 2;
+        }
+        return formatted.append(message, from, message.length()).toString();
+    }
+}
@@ -0,0 +1,31 @@
+package metrics;
+
+/*
+ * FilmRepository methods, used as a metrics label for query time.
+ */
+public enum DaoOperation {
+    GET_ALL_FILMS("getAllFilms"),
+    FOR_EACH_FILM("forEachFilm"),
+    FOR_EACH_FILM_SEARCH_FIELDS("forEachFilmSearchFields"),
+    GET_FILMS_AFTER("getFilmsAfter"),
+    GET_FILMS_BY_IDS("getFilmsByIds"),
+    GET_FILM_BY_ID("getFilmByID"),
+    INSERT_FILM("insertFilm"),
+    INSERT_FILMS("insertFilms"),
+    EXECUTE_BATCH("executeBatch"),
+    UPDATE_FILM("updateFilm"),
+    DELETE_FILM("deleteFilm"),
+    SEARCH_FILMS("searchFilms"),
+    SEARCH_FILMS_GENERAL("searchFilmsGeneral"),
+    GET_FILMS_PAGINATED("getFilmsPaginated");
+
+    private final String label;
+
+    DaoOperation(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,23 @@
+package metrics;
+
+/*
+ * Kinds of failed request, counted separately by the metrics endpoint.
+ */
+public enum ErrorType {
+    CLIENT_ERROR("client_error"),
+    SERVER_ERROR("server_error"),
+    DATABASE("database"),
+    TIMEOUT("timeout"),
+    REJECTED("rejected"),
+    CLIENT_ABORT("client_abort");
+
+    private final String label;
+
+    ErrorType(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
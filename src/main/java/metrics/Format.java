@@ -0,0 +1,41 @@
+package metrics;
+
+/*
+ * Response formats, used as a metrics label.
+ */
+public enum Format {
+    JSON("json"),
+    XML("xml"),
+    TEXT("text"),
+    YAML("yaml"),
+    CBOR("cbor");
+
+    private final String label;
+
+    Format(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /*
+     * Maps a format name as returned by ResponseHandler.determineFormat to its constant.
+     */
+    public static Format of(String format) {
+        switch (format) {
+            case "xml":
+                return XML;
+            case "text":
+                return TEXT;
+            case "yaml":
+            case "yaml-stream":
+                return YAML;
+            case "cbor":
+                return CBOR;
+            default:
+                return JSON;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package metrics;
+
+/*
+ * HTTP methods of the film API, used as a metrics label.
+ */
+public enum HttpMethod {
+    GET,
+    POST,
+    PUT,
+    DELETE,
+    OTHER;
+
+    /*
+     * Maps a request method name to its constant without allocating.
+     */
+    public static HttpMethod of(String method) {
+        switch (method) {
+            case "GET":
+            case "HEAD":
+                return GET;
+            case "POST":
+                return POST;
+            case "PUT":
+                return PUT;
+            case "DELETE":
+                return DELETE;
+            default:
+                return OTHER;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Registry of the application's metrics. Every histogram and counter is created up front and indexed
+ * by enum ordinal, so recording is a couple of array lookups and atomic increments with no allocation,
+ * no map lookups and no locks.
+ * This class uses a singleton pattern so every component records into the same registry.
+ */
+public class Metrics {
+    private static final Metrics instance = new Metrics();
+
+    private final Histogram[][] requestLatency =
+            new Histogram[HttpMethod.values().length][Route.values().length];
+    private final Histogram[] responseBytes = new Histogram[Route.values().length];
+    private final Histogram[] daoLatency = new Histogram[DaoOperation.values().length];
+    private final Histogram[] serializationLatency = new Histogram[Format.values().length];
+    private final AtomicLongArray errors = new AtomicLongArray(ErrorType.values().length);
+
+    private Metrics() {
+        for (Histogram[] row : requestLatency) {
+            fill(row);
+        }
+        fill(responseBytes);
+        fill(daoLatency);
+        fill(serializationLatency);
+    }
+
+    private static void fill(Histogram[] histograms) {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    /*
+     * Returns the shared registry.
+     */
+    public static Metrics getInstance() {
+        return instance;
+    }
+
+    /*
+     * Records the latency of a complete HTTP request, from the filter chain to the last byte.
+     */
+    public void recordRequest(HttpMethod method, Route route, long startNanos) {
+        requestLatency[method.ordinal()][route.ordinal()].recordSince(startNanos);
+    }
+
+    /*
+     * Records the size of a response body as written by the serialisers, before any compression.
+     */
+    public void recordResponseBytes(Route route, long bytes) {
+        responseBytes[route.ordinal()].record(bytes);
+    }
+
+    /*
+     * Records how long a FilmRepository method took, including reading its results. For the forEach methods this
+     * also covers the row handler, which usually writes each film to the response as it is read.
+     */
+    public void recordDao(DaoOperation operation, long startNanos) {
+        daoLatency[operation.ordinal()].recordSince(startNanos);
+    }
+
+    /*
+     * Records the time spent serialising one response in a format.
+     */
+    public void recordSerialization(Format format, long nanos) {
+        serializationLatency[format.ordinal()].record(nanos);
+    }
+
+    /*
+     * Counts one error of the given type.
+     */
+    public void recordError(ErrorType type) {
+        errors.incrementAndGet(type.ordinal());
+    }
+
+    Histogram requestLatency(HttpMethod method, Route route) {
+        return requestLatency[method.ordinal()][route.ordinal()];
+    }
+
+    Histogram responseBytes(Route route) {
+        return responseBytes[route.ordinal()];
+    }
+
+    Histogram daoLatency(DaoOperation operation) {
+        return daoLatency[operation.ordinal()];
+    }
+
+    Histogram serializationLatency(Format format) {
+        return serializationLatency[format.ordinal()];
+    }
+
+    long errorCount(ErrorType type) {
+        return errors.get(type.ordinal());
+    }
+}
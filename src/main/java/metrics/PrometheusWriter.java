@@ -0,0 +1,152 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+/*
+ * Writes metrics in the Prometheus text exposition format (version 0.0.4).
+ * Histograms are exported as Prometheus histograms with cumulative _bucket counts plus _sum and _count,
+ * durations in seconds, so quantiles can be computed over any window with histogram_quantile() and
+ * aggregated across instances. Bucket bounds fall on the octave boundaries of the log-linear histograms,
+ * which makes their counts exact: 1 microsecond to about 69s for durations and 64 bytes to 1GiB for sizes.
+ * Series that have never been recorded are left out.
+ */
+public class PrometheusWriter {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final Buckets DURATION_BUCKETS = new Buckets(10, 36, NANOS_PER_SECOND);
+    private static final Buckets SIZE_BUCKETS = new Buckets(6, 30, 1);
+
+    private final Writer out;
+
+    public PrometheusWriter(Writer out) {
+        this.out = out;
+    }
+
+    /*
+     * Writes every histogram and counter held by the registry.
+     */
+    public void writeRegistry(Metrics metrics) throws IOException {
+        writeHeader("filmapi_request_duration_seconds", "histogram",
+                "Latency of film API requests by HTTP method and route.");
+        for (HttpMethod method : HttpMethod.values()) {
+            for (Route route : Route.values()) {
+                writeHistogram("filmapi_request_duration_seconds",
+                        "method=\"" + method.name() + "\",route=\"" + route.getLabel() + "\"",
+                        metrics.requestLatency(method, route).snapshot(), DURATION_BUCKETS);
+            }
+        }
+
+        writeHeader("filmapi_response_bytes", "histogram",
+                "Size of response bodies before compression by route.");
+        for (Route route : Route.values()) {
+            writeHistogram("filmapi_response_bytes", "route=\"" + route.getLabel() + "\"",
+                    metrics.responseBytes(route).snapshot(), SIZE_BUCKETS);
+        }
+
+        writeHeader("filmapi_dao_duration_seconds", "histogram", "Time spent in FilmRepository methods.");
+        for (DaoOperation operation : DaoOperation.values()) {
+            writeHistogram("filmapi_dao_duration_seconds", "operation=\"" + operation.getLabel() + "\"",
+                    metrics.daoLatency(operation).snapshot(), DURATION_BUCKETS);
+        }
+
+        writeHeader("filmapi_serialization_duration_seconds", "histogram",
+                "Time spent serialising responses by format.");
+        for (Format format : Format.values()) {
+            writeHistogram("filmapi_serialization_duration_seconds", "format=\"" + format.getLabel() + "\"",
+                    metrics.serializationLatency(format).snapshot(), DURATION_BUCKETS);
+        }
+
+        writeHeader("filmapi_errors_total", "counter", "Failed requests by type.");
+        for (ErrorType type : ErrorType.values()) {
+            writeSample("filmapi_errors_total", "type=\"" + type.getLabel() + "\"", metrics.errorCount(type));
+        }
+    }
+
+    /*
+     * Writes a single gauge with its HELP and TYPE lines.
+     */
+    public void writeGauge(String name, String help, double value) throws IOException {
+        writeHeader(name, "gauge", help);
+        writeSample(name, null, value);
+    }
+
+    /*
+     * Writes a single counter with its HELP and TYPE lines.
+     */
+    public void writeCounter(String name, String help, double value) throws IOException {
+        writeHeader(name, "counter", help);
+        writeSample(name, null, value);
+    }
+
+    /*
+     * Writes the HELP and TYPE lines of a metric family whose samples follow.
+     */
+    public void writeHeader(String name, String type, String help) throws IOException {
+        out.write("# HELP ");
+        out.write(name);
+        out.write(' ');
+        out.write(help);
+        out.write("\n# TYPE ");
+        out.write(name);
+        out.write(' ');
+        out.write(type);
+        out.write('\n');
+    }
+
+    /*
+     * Writes one sample line; labels are written as given, e.g. limiter="read", or omitted if null.
+     */
+    public void writeSample(String name, String labels, double value) throws IOException {
+        out.write(name);
+        if (labels != null) {
+            out.write('{');
+            out.write(labels);
+            out.write('}');
+        }
+        out.write(' ');
+        out.write(format(value));
+        out.write('\n');
+    }
+
+    private void writeHistogram(String name, String labels, Histogram.Snapshot snapshot, Buckets buckets)
+            throws IOException {
+        if (snapshot.getCount() == 0) {
+            return;
+        }
+        long[] cumulative = snapshot.countsAtMost(buckets.bounds);
+        for (int i = 0; i < cumulative.length; i++) {
+            writeSample(name + "_bucket", labels + ",le=\"" + buckets.labels[i] + "\"", cumulative[i]);
+        }
+        writeSample(name + "_bucket", labels + ",le=\"+Inf\"", snapshot.getCount());
+        writeSample(name + "_sum", labels, (double) snapshot.getSum() / buckets.divisor);
+        writeSample(name + "_count", labels, snapshot.getCount());
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /*
+     * Bucket bounds of an exported histogram: 2^k - 1 recorded units for each k from minExponent to
+     * maxExponent, with their le labels in exported units.
+     */
+    private static class Buckets {
+        private final long[] bounds;
+        private final String[] labels;
+        private final long divisor;
+
+        Buckets(int minExponent, int maxExponent, long divisor) {
+            this.bounds = new long[maxExponent - minExponent + 1];
+            this.labels = new String[bounds.length];
+            this.divisor = divisor;
+            for (int i = 0; i < bounds.length; i++) {
+                bounds[i] = (1L << (minExponent + i)) - 1;
+                labels[i] = BigDecimal.valueOf(bounds[i]).divide(BigDecimal.valueOf(divisor)).toPlainString();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package metrics;
+
+/*
+ * Routes of the film API, used as a metrics label.
+ */
+public enum Route {
+    LIST("list"),
+    SEARCH("search"),
+    FILM("film"),
+    BULK("bulk"),
+    BATCH("batch"),
+    OTHER("other");
+
+    private final String label;
+
+    Route(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /*
+     * Maps a /filmapi path info to its route without allocating.
+     */
+    public static Route of(String pathInfo) {
+        if (pathInfo == null || pathInfo.equals("/")) {
+            return LIST;
+        }
+        if (pathInfo.contains("/search")) {
+            return SEARCH;
+        }
+        if (pathInfo.startsWith("/films/")) {
+            return FILM;
+        }
+        if (pathInfo.equals("/bulk")) {
+            return BULK;
+        }
+        if (pathInfo.equals("/batch")) {
+            return BATCH;
+        }
+        return OTHER;
+    }
+}
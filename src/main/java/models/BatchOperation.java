@@ -0,0 +1,79 @@
+package models;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/*
+ * Represents one create, update or delete operation of a batch request, with annotations for XML binding.
+ * Creates and updates carry the film; updates and deletes identify it by id, falling back to the film's own ID.
+ */
+@XmlRootElement(name = "operation")
+public class BatchOperation {
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+
+    private String op;
+    private Integer id;
+    private Film film;
+
+    /*
+     * Default constructor required for JAXB, Gson and SnakeYAML.
+     */
+    public BatchOperation() {}
+
+    /*
+     * Constructs an operation on the film with the given ID.
+     */
+    public BatchOperation(String op, Integer id, Film film) {
+        this.op = op;
+        this.id = id;
+        this.film = film;
+    }
+
+    /*
+     * Gets the operation type: "create", "update" or "delete".
+     */
+    @XmlElement
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    /*
+     * Gets the ID of the film to update or delete.
+     */
+    @XmlElement
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    /*
+     * Gets the film to create, or the new values of the film to update.
+     */
+    @XmlElement
+    public Film getFilm() {
+        return film;
+    }
+
+    public void setFilm(Film film) {
+        this.film = film;
+    }
+
+    /*
+     * Returns the ID the operation targets: the explicit id if given, otherwise the film's ID.
+     */
+    public int targetId() {
+        if (id != null) {
+            return id;
+        }
+        return film == null ? 0 : film.getId();
+    }
+}
@@ -0,0 +1,31 @@
+package models;
+
+import java.util.List;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/*
+ * Represents the ordered list of operations of a batch request with annotations for XML binding.
+ */
+@XmlRootElement(name = "operations")
+public class BatchOperations {
+    private List<BatchOperation> operations;
+
+    /*
+     * Default constructor which is necessary for JAXB serialisation and deserialisation processes.
+     */
+    public BatchOperations() {}
+
+    /*
+     * Returns the operations, mapped under the <operation> tag in the generated XML.
+     */
+    @XmlElement(name = "operation")
+    public List<BatchOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<BatchOperation> operations) {
+        this.operations = operations;
+    }
+}
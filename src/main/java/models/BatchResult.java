@@ -0,0 +1,81 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/*
+ * Represents the response to a bulk or batch request: one result per record or operation, in request order,
+ * with annotations for XML binding.
+ */
+@XmlRootElement(name = "batch")
+public class BatchResult {
+    private int succeeded;
+    private int failed;
+    private List<OperationResult> results = new ArrayList<>();
+
+    /*
+     * Default constructor required for JAXB.
+     */
+    public BatchResult() {}
+
+    /*
+     * Appends a result and updates the success and failure counts.
+     */
+    public void add(OperationResult result) {
+        results.add(result);
+        if (result.getError() == null) {
+            succeeded++;
+        } else {
+            failed++;
+        }
+    }
+
+    /*
+     * Gets the number of records or operations that succeeded.
+     */
+    @XmlElement
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(int succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    /*
+     * Gets the number of records or operations that failed.
+     */
+    @XmlElement
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    /*
+     * Returns the per-record results, mapped under the <result> tag in the generated XML.
+     */
+    @XmlElement(name = "result")
+    public List<OperationResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<OperationResult> results) {
+        this.results = results;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Succeeded: ").append(succeeded).append("\nFailed: ").append(failed).append("\n");
+        for (OperationResult result : results) {
+            sb.append("---\n").append(result);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package models;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/*
+ * The set of Film properties a response should carry, taken from the "fields" query parameter
+ * (e.g. fields=title,year). Used to narrow the columns read from the database and the properties written
+ * by every serialiser. The id is always included, since paging and caching rely on it.
+ * Instances are immutable; ALL selects every property and reproduces the unprojected output exactly.
+ */
+public final class FilmFields {
+
+    /*
+     * A Film property, named as its database column and serialised property.
+     */
+    public enum Field {
+        ID("id"),
+        TITLE("title"),
+        YEAR("year"),
+        DIRECTOR("director"),
+        STARS("stars"),
+        REVIEW("review");
+
+        private final String column;
+
+        Field(String column) {
+            this.column = column;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+    }
+
+    public static final FilmFields ALL = new FilmFields(EnumSet.allOf(Field.class));
+
+    private final Set<Field> fields;
+    private final String columns;
+    private final String key;
+
+    private FilmFields(EnumSet<Field> fields) {
+        this.fields = fields;
+        StringBuilder columnList = new StringBuilder();
+        for (Field field : fields) {
+            if (columnList.length() > 0) {
+                columnList.append(',');
+            }
+            columnList.append(field.getColumn());
+        }
+        this.key = columnList.toString();
+        this.columns = fields.size() == Field.values().length ? "*" : key.replace(",", ", ");
+    }
+
+    /*
+     * Parses a comma-separated list of property names, ignoring case, blanks and repeats.
+     * @param list The value of the fields parameter, or null.
+     * @return The selected fields, or ALL if the list is null or blank.
+     * @throws IllegalArgumentException If the list names a property Film does not have.
+     */
+    public static FilmFields parse(String list) {
+        if (list == null || list.isBlank()) {
+            return ALL;
+        }
+        EnumSet<Field> fields = EnumSet.of(Field.ID);
+        for (String name : list.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            fields.add(forName(name));
+        }
+        return fields.size() == Field.values().length ? ALL : new FilmFields(fields);
+    }
+
+    private static Field forName(String name) {
+        String column = name.toLowerCase(Locale.ROOT);
+        for (Field field : Field.values()) {
+            if (field.getColumn().equals(column)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown field: " + name);
+    }
+
+    /*
+     * Checks whether every property is selected.
+     */
+    public boolean isAll() {
+        return this == ALL;
+    }
+
+    public boolean includes(Field field) {
+        return fields.contains(field);
+    }
+
+    /*
+     * Checks whether a property is selected by its name, as used by bean-based serialisers.
+     */
+    public boolean includes(String property) {
+        for (Field field : fields) {
+            if (field.getColumn().equals(property)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Returns the SELECT column list: "*" for ALL, otherwise the selected columns in table order.
+     */
+    public String columns() {
+        return columns;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof FilmFields && fields.equals(((FilmFields) other).fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return fields.hashCode();
+    }
+
+    /*
+     * Returns a canonical form of the selection, e.g. "id,title,year", for ETags and cache keys.
+     */
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -12,6 +12,7 @@ import jakarta.xml.bind.annotation.XmlRootElement;
 @XmlRootElement(name = "films")
 public class Films {
     private List<Film> films;
+    private String nextCursor;
 
     /*
      * Default constructor which is necessary for JAXB serialisation and deserialisation processes.
@@ -42,4 +43,17 @@ public class Films {
     public void setFilms(List<Film> films) {
         this.films = films;
     }
-}
\ No newline at end of file
+
+    /*
+     * Returns the cursor of the next page when this collection is one page of a paged response.
+     * Null values are omitted from the generated XML.
+     */
+    @XmlElement
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
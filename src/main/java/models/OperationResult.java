@@ -0,0 +1,99 @@
+package models;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/*
+ * Represents the outcome of one record or operation in a bulk or batch request, with annotations for XML binding.
+ */
+@XmlRootElement(name = "result")
+public class OperationResult {
+	private int index;
+	private String operation;
+	private Integer id;
+	private String status;
+	private String error;
+
+    /*
+     * Default constructor required for JAXB.
+     */
+	public OperationResult() {
+	}
+
+    /*
+     * Constructs an OperationResult for the record at the given position in the request.
+     */
+	public OperationResult(int index, String operation, Integer id, String status, String error) {
+		this.index = index;
+		this.operation = operation;
+		this.id = id;
+		this.status = status;
+		this.error = error;
+	}
+
+    /*
+     * Gets the zero-based position of the record in the request.
+     */
+	@XmlElement
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+    /*
+     * Gets the operation that was performed ("create", "update" or "delete").
+     */
+	@XmlElement
+	public String getOperation() {
+		return operation;
+	}
+
+	public void setOperation(String operation) {
+		this.operation = operation;
+	}
+
+    /*
+     * Gets the ID of the affected film, or null if none was assigned.
+     */
+	@XmlElement
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+    /*
+     * Gets the outcome of the operation, such as "created" or "error".
+     */
+	@XmlElement
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+    /*
+     * Gets the reason the operation failed, or null if it succeeded.
+     */
+	@XmlElement
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	@Override
+	public String toString() {
+		return "Index: " + index + "\nOperation: " + operation + "\nId: " + (id == null ? "" : id) + "\nStatus: "
+				+ status + (error == null ? "" : "\nError: " + error) + "\n";
+	}
+}
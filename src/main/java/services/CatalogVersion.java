@@ -0,0 +1,65 @@
+package services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Version counters for the film catalog, used to build ETags without touching the database.
+ * The catalog version is bumped by every write made through FilmService. Single films are versioned
+ * through a fixed number of stripes keyed by ID: a write to a film moves its stripe to the new
+ * catalog version, so two films sharing a stripe can only make each other's ETags change spuriously,
+ * never stay the same across a write.
+ * Versions are prefixed with the time the application started, so tags issued before a restart are
+ * never mistaken for current ones. Writes made to the database outside this application are not seen.
+ */
+public class CatalogVersion {
+    private static CatalogVersion instance;
+
+    private static final int STRIPES = 4096;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLongArray filmVersions = new AtomicLongArray(STRIPES);
+
+    // Private constructor; the version starts at zero for every film.
+    private CatalogVersion() {}
+
+    /*
+     * Provides a thread-safe way to access the shared catalog version.
+     */
+    public static synchronized CatalogVersion getInstance() {
+        if (instance == null) {
+            instance = new CatalogVersion();
+        }
+        return instance;
+    }
+
+    /*
+     * Records that films were created, updated or deleted, moving the catalog on by one version however many
+     * films a write touched. Must be called after the write is committed.
+     */
+    public void filmsChanged(int... ids) {
+        long current = version.incrementAndGet();
+        for (int id : ids) {
+            filmVersions.accumulateAndGet(stripe(id), current, Math::max);
+        }
+    }
+
+    /*
+     * Returns a tag identifying the current state of the whole catalog, for lists and searches.
+     */
+    public String catalogTag() {
+        return epoch + "-" + Long.toString(version.get(), 36);
+    }
+
+    /*
+     * Returns a tag identifying the current state of a single film.
+     */
+    public String filmTag(int id) {
+        return epoch + "-f" + Long.toString(filmVersions.get(stripe(id)), 36);
+    }
+
+    private static int stripe(int id) {
+        return id & (STRIPES - 1);
+    }
+}
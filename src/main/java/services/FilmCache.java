@@ -0,0 +1,198 @@
+package services;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import models.Film;
+import util.AppConfig;
+
+/*
+ * Bounded, read-through cache of films keyed by ID, shared by every FilmService instance.
+ * Entries are evicted in least-recently-used order once the configured size is reached and can
+ * optionally expire after a time-to-live. IDs that do not exist are cached as negative entries
+ * with their own, shorter time-to-live. Write operations invalidate the affected ID.
+ * Films are copied on the way in and out, so callers may modify what they receive.
+ */
+public class FilmCache {
+    private static FilmCache instance;
+
+    /*
+     * Loads a film from the backing store when it is not cached.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Film load(int id) throws SQLException;
+    }
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Map<Integer, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Private constructor that reads the cache settings from config.properties.
+    private FilmCache(AppConfig config) {
+        this.enabled = config.getBoolean("cache.film.enabled", true);
+        this.maxSize = Math.max(1, config.getInt("cache.film.maxSize", 1000));
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(config.getLong("cache.film.ttlSeconds", 0));
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(config.getLong("cache.film.negativeTtlSeconds", 30));
+        // Access-ordered map, so iteration starts at the least recently used entry.
+        this.entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /*
+     * Provides a thread-safe way to access the shared cache.
+     */
+    public static synchronized FilmCache getInstance() {
+        if (instance == null) {
+            instance = new FilmCache(AppConfig.getInstance());
+        }
+        return instance;
+    }
+
+    /*
+     * Returns the film with the given ID from the cache, calling the loader on a miss.
+     * @param id The film ID.
+     * @param loader Loads the film from the database; may return null for missing IDs.
+     * @return A copy of the cached or loaded film, or null if the film does not exist.
+     * @throws SQLException If the loader fails.
+     */
+    public Film get(int id, Loader loader) throws SQLException {
+        if (!enabled) {
+            return loader.load(id);
+        }
+
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                if (entry.expiresAt == 0 || now - entry.expiresAt < 0) {
+                    if (entry.film == null) {
+                        negativeHits.incrementAndGet();
+                        return null;
+                    }
+                    hits.incrementAndGet();
+                    return copy(entry.film);
+                }
+                entries.remove(id);
+                expirations.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        // Load outside the lock so a slow query does not block lookups of other IDs.
+        long generation = invalidations.get();
+        Film film = loader.load(id);
+        long ttl = film == null ? negativeTtlNanos : ttlNanos;
+        if (film != null || negativeTtlNanos > 0) {
+            synchronized (entries) {
+                // Skip caching if a write happened while loading, since the row may now be stale.
+                if (generation == invalidations.get()) {
+                    entries.put(id, new Entry(copy(film), ttl == 0 ? 0 : now + ttl));
+                }
+            }
+        }
+        return copy(film);
+    }
+
+    /*
+     * Removes the cached entry (positive or negative) for an ID after it has been written.
+     */
+    public void invalidate(int id) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(id);
+        }
+    }
+
+    /*
+     * Removes every cached entry.
+     */
+    public void clear() {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    private static Film copy(Film film) {
+        if (film == null) {
+            return null;
+        }
+        return new Film(film.getId(), film.getTitle(), film.getYear(), film.getDirector(), film.getStars(),
+                film.getReview());
+    }
+
+    /*
+     * Takes a point-in-time snapshot of the cache's counters.
+     */
+    public Statistics getStatistics() {
+        Statistics stats = new Statistics();
+        synchronized (entries) {
+            stats.size = entries.size();
+        }
+        stats.maxSize = maxSize;
+        stats.hits = hits.get();
+        stats.negativeHits = negativeHits.get();
+        stats.misses = misses.get();
+        stats.evictions = evictions.get();
+        stats.expirations = expirations.get();
+        stats.invalidations = invalidations.get();
+        return stats;
+    }
+
+    /*
+     * Snapshot of cache counters, suitable for exporting to monitoring.
+     */
+    public static class Statistics {
+        public int size;
+        public int maxSize;
+        public long hits;
+        public long negativeHits;
+        public long misses;
+        public long evictions;
+        public long expirations;
+        public long invalidations;
+
+        @Override
+        public String toString() {
+            return "size=" + size + "/" + maxSize + ", hits=" + hits + ", negativeHits=" + negativeHits
+                    + ", misses=" + misses + ", evictions=" + evictions + ", expirations=" + expirations
+                    + ", invalidations=" + invalidations;
+        }
+    }
+
+    /*
+     * A cached film, or a negative entry when film is null. An expiresAt of 0 means the entry never expires.
+     */
+    private static class Entry {
+        private final Film film;
+        private final long expiresAt;
+
+        Entry(Film film, long expiresAt) {
+            this.film = film;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package services;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import dao.FilmRepository;
+import logging.Logger;
+import models.Film;
+
+/*
+ * In-memory trigram index over the fields matched by the general film search
+ * (id, title, director, stars and year), used to answer substring queries without scanning the films table.
+ *
+ * Every field is normalised the way MySQL's default case- and accent-insensitive collation compares it,
+ * split into overlapping three-character grams, and each gram maps to a sorted list of film IDs.
+ * A query is answered by intersecting the posting lists of its own grams and then confirming each
+ * candidate with a substring check, which gives the same matches as "field LIKE '%query%'".
+ * Only IDs are returned; the caller loads the rows themselves by primary key.
+ */
+public class FilmSearchIndex {
+    private static FilmSearchIndex instance;
+    private static final Logger logger = Logger.getLogger(FilmSearchIndex.class);
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Normalised searchable fields of every indexed film, used to confirm candidate matches.
+    private final Map<Integer, String[]> documents = new HashMap<>();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+
+    private volatile boolean ready;
+    private boolean building;
+    // IDs written while the index was being built; their rows from the build query may be stale.
+    private final Set<Integer> writtenDuringBuild = new HashSet<>();
+
+    // Private constructor; the index is populated by build().
+    private FilmSearchIndex() {}
+
+    /*
+     * Provides a thread-safe way to access the shared index.
+     */
+    public static synchronized FilmSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new FilmSearchIndex();
+        }
+        return instance;
+    }
+
+    /*
+     * Loads every film from the repository into the index. Searches fall back to SQL until this completes.
+     * Writes made while the build is running are applied directly and take precedence over the rows it reads.
+     */
+    public void build(FilmRepository filmRepository) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            building = true;
+            writtenDuringBuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            filmRepository.forEachFilmSearchFields(film -> {
+                lock.writeLock().lock();
+                try {
+                    if (!writtenDuringBuild.contains(film.getId())) {
+                        addDocument(film);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        } catch (IOException e) {
+            throw new SQLException("Error building search index", e);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                building = false;
+                writtenDuringBuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        ready = true;
+        lock.readLock().lock();
+        try {
+            logger.info("Search index built with {} films and {} trigrams in {}ms", documents.size(),
+                    postings.size(), System.currentTimeMillis() - start);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Returns true once the index has been built and can answer queries.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /*
+     * Adds a film to the index, replacing any previous version of it.
+     */
+    public void put(Film film) {
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                writtenDuringBuild.add(film.getId());
+            }
+            removeDocument(film.getId());
+            addDocument(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Removes a film from the index.
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                writtenDuringBuild.add(id);
+            }
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Returns the number of films in the index.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Finds the films with at least one searchable field containing the query.
+     * @param query The substring to look for.
+     * @return The matching film IDs in ascending order, or null if the index is not ready, the query
+     * contains LIKE wildcards ('%', '_' or '\') or it is shorter than a trigram, in which case the caller
+     * should run the SQL search instead.
+     */
+    public int[] search(String query) {
+        if (!ready || query.indexOf('%') >= 0 || query.indexOf('_') >= 0 || query.indexOf('\\') >= 0) {
+            return null;
+        }
+        String needle = normalise(query);
+        if (needle.length() < 3) {
+            // No trigram to look up, so every document would have to be checked; the cached SQL search is cheaper.
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[needle.length() - 2];
+            for (int i = 0; i < lists.length; i++) {
+                PostingList list = postings.get(trigram(needle, i));
+                if (list == null) {
+                    return new int[0];
+                }
+                lists[i] = list;
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+            // Walk the shortest list and keep the IDs present in every other list.
+            PostingList shortest = lists[0];
+            int[] candidates = new int[shortest.size];
+            int count = 0;
+            for (int i = 0; i < shortest.size; i++) {
+                int id = shortest.ids[i];
+                boolean inAll = true;
+                for (int j = 1; j < lists.length && inAll; j++) {
+                    inAll = lists[j].contains(id);
+                }
+                if (inAll) {
+                    candidates[count++] = id;
+                }
+            }
+            return collectMatches(Arrays.copyOf(candidates, count), needle);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Keeps the candidates whose fields really contain the needle, preserving their order.
+     */
+    private int[] collectMatches(int[] candidates, String needle) {
+        int[] matches = new int[candidates.length];
+        int count = 0;
+        for (int id : candidates) {
+            for (String field : documents.get(id)) {
+                if (field != null && field.contains(needle)) {
+                    matches[count++] = id;
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    private void addDocument(Film film) {
+        String[] fields = {
+            Integer.toString(film.getId()),
+            normalise(film.getTitle()),
+            normalise(film.getDirector()),
+            normalise(film.getStars()),
+            Integer.toString(film.getYear())
+        };
+        documents.put(film.getId(), fields);
+        for (String field : fields) {
+            if (field == null) {
+                continue;
+            }
+            for (int i = 0; i + 3 <= field.length(); i++) {
+                postings.computeIfAbsent(trigram(field, i), key -> new PostingList()).add(film.getId());
+            }
+        }
+    }
+
+    private void removeDocument(int id) {
+        String[] fields = documents.remove(id);
+        if (fields == null) {
+            return;
+        }
+        for (String field : fields) {
+            if (field == null) {
+                continue;
+            }
+            for (int i = 0; i + 3 <= field.length(); i++) {
+                Long key = trigram(field, i);
+                PostingList list = postings.get(key);
+                if (list != null) {
+                    list.remove(id);
+                    if (list.size == 0) {
+                        postings.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Lower-cases the text and strips accents, approximating MySQL's accent- and case-insensitive comparison.
+     */
+    static String normalise(String text) {
+        if (text == null) {
+            return null;
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /*
+     * Packs the three characters starting at the given offset into a single key.
+     */
+    private static long trigram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+
+    /*
+     * Sorted, duplicate-free list of film IDs backed by a growable int array.
+     */
+    private static class PostingList {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == 0 || ids[size - 1] < id) {
+                // IDs are assigned in increasing order, so appending is the common case.
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            ensureCapacity();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+    }
+}
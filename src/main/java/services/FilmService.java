@@ -1,43 +1,164 @@
 package services;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
-import dao.FilmDAO;
+import dao.BatchOperationException;
+import dao.FilmRepository;
+import dao.FilmRowHandler;
+import logging.Logger;
+import models.BatchOperation;
+import models.BatchResult;
 import models.Film;
+import models.FilmFields;
+import models.OperationResult;
+import util.AppConfig;
+import util.FilmRecordReader;
+import util.RequestBodyTooLargeException;
+import util.ResponseCache;
 
 /*
  * A service class for handling business logic related to film operations.
- * It integrates with the FilmDAO for database operations.
+ * It integrates with the FilmRepository chosen by the repository setting for storage.
  */
 public class FilmService {
-	private FilmDAO filmDAO = new FilmDAO();
+	private static final Logger logger = Logger.getLogger(FilmService.class);
+	private static final FilmFields ID_ONLY = FilmFields.parse("id");
+
+	private final FilmRepository filmRepository;
+	private FilmCache filmCache = FilmCache.getInstance();
+	private FilmSearchIndex searchIndex = FilmSearchIndex.getInstance();
+	private CatalogVersion catalogVersion = CatalogVersion.getInstance();
+	private ResponseCache responseCache = ResponseCache.getInstance();
+	private SearchResultCache searchResultCache = SearchResultCache.getInstance();
+	private int bulkChunkSize = Math.max(1, AppConfig.getInstance().getInt("bulk.chunkSize", 500));
+
+    /*
+     * Creates a service over the repository selected in the configuration.
+     */
+	public FilmService() {
+		this(FilmRepository.fromConfig(AppConfig.getInstance()));
+	}
+
+    /*
+     * Creates a service over the given repository, e.g. an InMemoryFilmRepository standing in for the database.
+     */
+	public FilmService(FilmRepository filmRepository) {
+		this.filmRepository = filmRepository;
+	}
+
+    /*
+     * Builds the in-memory search index from the films table. Called once at application startup.
+     */
+	public void buildSearchIndex() throws SQLException {
+		searchIndex.build(filmRepository);
+	}
 
     /*
      * Conducts a general search for films based on a query that matches across multiple fields.
+     * Answered from the in-memory trigram index when it is available, otherwise through the search result cache.
      */
 	public List<Film> searchFilmsGeneral(String query) throws SQLException {
-		return filmDAO.searchFilmsGeneral(query);
+		int[] ids = searchIndex.search(query);
+		if (ids == null) {
+			ids = searchIds(query, "All");
+			if (ids == null) {
+				return filmRepository.searchFilmsGeneral(query);
+			}
+		}
+		return filmRepository.getFilmsByIds(ids, FilmFields.ALL);
+	}
+
+    /*
+     * Retrieves one page of a general search, in ID order, starting after the given ID,
+     * with only the selected fields loaded. Answered from the in-memory trigram index when it is available,
+     * otherwise through the search result cache.
+     */
+	public List<Film> searchFilmsGeneral(String query, int afterId, int limit, FilmFields fields)
+			throws SQLException {
+		int[] ids = searchIndex.search(query);
+		if (ids == null) {
+			// Index not built yet, or a query the index cannot answer: LIKE wildcards or under three characters.
+			ids = searchIds(query, "All");
+			if (ids == null) {
+				return filmRepository.searchFilmsGeneral(query, afterId, limit, fields);
+			}
+		}
+		return getPage(ids, afterId, limit, fields);
+	}
+
+    /*
+     * Retrieves one page of a search on a specific field, in ID order, starting after the given ID,
+     * with only the selected fields loaded. The matching IDs come from the search result cache, unless the
+     * search is too broad to cache and the page is read with a LIMIT-bounded query instead.
+     */
+	public List<Film> searchFilms(String searchQuery, String searchType, int afterId, int limit, FilmFields fields)
+			throws SQLException {
+		if ("All".equals(searchType)) {
+			return searchFilmsGeneral(searchQuery, afterId, limit, fields);
+		}
+		int[] ids = searchIds(searchQuery, searchType);
+		if (ids == null) {
+			return filmRepository.searchFilms(searchQuery, searchType, afterId, limit, fields);
+		}
+		return getPage(ids, afterId, limit, fields);
 	}
 
     /*
      * Searches films based on specific fields provided through a map of parameters.
      */
 	public List<Film> searchFilms(Map<String, String> searchParams) throws SQLException {
-        return filmDAO.searchFilms(searchParams);
+        return filmRepository.searchFilms(searchParams);
     }
 	
     /*
      * Searches for films based on a specific field, defined by 'searchType'.
      */
 	public List<Film> searchFilms(String searchQuery, String searchType) throws SQLException {
-        return filmDAO.searchFilms(searchQuery, searchType);
+		if ("All".equals(searchType)) {
+			return searchFilmsGeneral(searchQuery);
+		}
+		int[] ids = searchIds(searchQuery, searchType);
+		if (ids == null) {
+			return filmRepository.searchFilms(searchQuery, searchType);
+		}
+		return filmRepository.getFilmsByIds(ids, FilmFields.ALL);
     }
 
+	// IDs matching a search, read with one bounded ID-only query on a miss; identical concurrent misses share it.
+	// Null if the search result cache is disabled or the search matches too many films to cache.
+	private int[] searchIds(String searchQuery, String searchType) throws SQLException {
+		return searchResultCache.get(searchType, searchQuery, catalogVersion.catalogTag(), maxResults -> {
+			List<Film> films = filmRepository.searchFilms(searchQuery, searchType, 0, maxResults, ID_ONLY);
+			int[] ids = new int[films.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = films.get(i).getId();
+			}
+			return ids;
+		});
+	}
+
+	// One page of a sorted ID array: up to limit films with IDs greater than afterId, loaded with the selected
+	// fields. IDs whose film has gone are skipped and more are read, so the page is only short at the end.
+	private List<Film> getPage(int[] ids, int afterId, int limit, FilmFields fields) throws SQLException {
+		int from = Arrays.binarySearch(ids, afterId);
+		from = from >= 0 ? from + 1 : -from - 1;
+		List<Film> page = new ArrayList<>(Math.min(limit, ids.length - from));
+		while (from < ids.length && page.size() < limit) {
+			int to = (int) Math.min(ids.length, (long) from + limit - page.size());
+			page.addAll(filmRepository.getFilmsByIds(Arrays.copyOfRange(ids, from, to), fields));
+			from = to;
+		}
+		return page;
+	}
+
     /*
      * Determines the type of film retrieval required based on the request path and parameters, and executes the appropriate search or retrieval operation.
      */
@@ -60,7 +181,7 @@ public class FilmService {
 			}
 		}
 
-		return filmDAO.getAllFilms();
+		return filmRepository.getAllFilms();
 	}
 
 	/*
@@ -79,38 +200,289 @@ public class FilmService {
 		return params;
 	}
 
+    /*
+     * Returns a tag for the current state of the whole catalog, used as the ETag basis for lists and searches.
+     */
+	public String getCatalogTag() {
+		return catalogVersion.catalogTag();
+	}
+
+    /*
+     * Returns a tag for the current state of a single film, used as the ETag basis for /films/{id}.
+     */
+	public String getFilmTag(int id) {
+		return catalogVersion.filmTag(id);
+	}
+
     /*
      * Retrieves all films from the database.
      */
 	public List<Film> getAllFilms() throws SQLException {
-        return filmDAO.getAllFilms();
+        return filmRepository.getAllFilms();
     }
 
+    /*
+     * Retrieves a single film by ID, served from the film cache when possible.
+     */
+	public Film getFilmByID(int id) throws SQLException {
+		return filmCache.get(id, filmRepository::getFilmByID);
+	}
+
+    /*
+     * Streams all films from the database to the handler one at a time.
+     */
+	public void forEachFilm(FilmRowHandler handler) throws SQLException, IOException {
+		filmRepository.forEachFilm(handler);
+	}
+
+    /*
+     * Streams one page of films in ID order, starting after the given ID, with only the selected fields loaded.
+     */
+	public void forEachFilm(int afterId, int limit, FilmFields fields, FilmRowHandler handler)
+			throws SQLException, IOException {
+		filmRepository.forEachFilm(afterId, limit, fields, handler);
+	}
+
+    /*
+     * Retrieves one page of films in ID order, starting after the given ID, with only the selected fields loaded.
+     */
+	public List<Film> getFilmsAfter(int afterId, int limit, FilmFields fields) throws SQLException {
+		return filmRepository.getFilmsAfter(afterId, limit, fields);
+	}
+
     /*
      * Inserts a new film into the database.
      */
 	public void insertFilm(Film film) throws SQLException {
-		filmDAO.insertFilm(film);
+		filmRepository.insertFilm(film);
+		searchIndex.put(film);
+		// The new ID may have been cached as missing before it existed.
+		filmsChanged(film.getId());
+	}
+
+    /*
+     * Inserts every film read from a bulk request body. Records are written in batches of bulk.chunkSize,
+     * each in its own transaction, so memory use stays flat however large the body is.
+     * If a batch fails, its records are retried one at a time so only the offending records are rejected.
+     * A body that becomes unreadable part way through ends the import with an error result; the
+     * records before it are kept.
+     * @param records The records of the request body.
+     * @param result Receives one result per record, in request order, with the generated ID or the reason
+     * it was rejected.
+     * @throws RequestBodyTooLargeException If the body passes its size limit; the records read before it
+     * have been inserted and their results added.
+     */
+	public void insertFilms(FilmRecordReader records, BatchResult result) throws RequestBodyTooLargeException {
+		List<OperationResult> chunkResults = new ArrayList<>();
+		List<Film> chunkFilms = new ArrayList<>();
+		int index = 0;
+		while (true) {
+			try {
+				if (!records.next()) {
+					break;
+				}
+			} catch (RequestBodyTooLargeException e) {
+				flushChunk(chunkFilms, chunkResults, result);
+				throw e;
+			} catch (IOException e) {
+				flushChunk(chunkFilms, chunkResults, result);
+				result.add(new OperationResult(index, "create", null, "error", e.getMessage()));
+				return;
+			}
+
+			Film film = records.getFilm();
+			String error = film == null ? records.getError() : validate(film);
+			if (error != null) {
+				chunkResults.add(new OperationResult(index, "create", null, "error", error));
+			} else {
+				chunkResults.add(new OperationResult(index, "create", null, null, null));
+				chunkFilms.add(film);
+				if (chunkFilms.size() >= bulkChunkSize) {
+					flushChunk(chunkFilms, chunkResults, result);
+				}
+			}
+			index++;
+		}
+		flushChunk(chunkFilms, chunkResults, result);
+	}
+
+    /*
+     * Writes a chunk of valid films and moves the chunk's results, valid and invalid, into the batch result.
+     */
+	private void flushChunk(List<Film> films, List<OperationResult> results, BatchResult batch) {
+		boolean batched = false;
+		if (!films.isEmpty()) {
+			try {
+				filmRepository.insertFilms(films);
+				batched = true;
+			} catch (SQLException e) {
+				logger.warn("Batch insert failed, retrying {} films individually: {}", films.size(), e.getMessage());
+			}
+		}
+
+		int[] created = new int[films.size()];
+		int count = 0;
+		int next = 0;
+		for (OperationResult result : results) {
+			if (result.getStatus() == null) {
+				Film film = films.get(next++);
+				try {
+					if (!batched) {
+						filmRepository.insertFilm(film);
+					}
+					searchIndex.put(film);
+					created[count++] = film.getId();
+					result.setId(film.getId());
+					result.setStatus("created");
+				} catch (SQLException e) {
+					result.setStatus("error");
+					result.setError("Database error: " + e.getMessage());
+				}
+			}
+			batch.add(result);
+		}
+		if (count > 0) {
+			filmsChanged(Arrays.copyOf(created, count));
+		}
+		films.clear();
+		results.clear();
+	}
+
+    /*
+     * Executes an ordered list of create, update and delete operations atomically: either every
+     * operation is applied or, if any is invalid or fails, none are.
+     * @return One result per operation, in request order. When the batch is rejected, the offending
+     * operation carries the error and every other operation is reported as rolled back.
+     * @throws SQLException If the database fails outside of any single operation.
+     */
+	public BatchResult executeBatch(List<BatchOperation> operations) throws SQLException {
+		for (int i = 0; i < operations.size(); i++) {
+			String error = validate(operations.get(i));
+			if (error != null) {
+				return rejectBatch(operations, i, error);
+			}
+		}
+
+		try {
+			filmRepository.executeBatch(operations);
+		} catch (BatchOperationException e) {
+			return rejectBatch(operations, e.getIndex(), e.getMessage());
+		}
+
+		BatchResult result = new BatchResult();
+		int[] changed = new int[operations.size()];
+		for (int i = 0; i < operations.size(); i++) {
+			BatchOperation operation = operations.get(i);
+			String op = operation.getOp();
+			// Creates ignore any client-supplied ID; the DAO has set the generated one on the film.
+			int id = BatchOperation.CREATE.equals(op) ? operation.getFilm().getId() : operation.targetId();
+			if (BatchOperation.DELETE.equals(op)) {
+				searchIndex.remove(id);
+			} else {
+				Film film = operation.getFilm();
+				film.setId(id);
+				searchIndex.put(film);
+			}
+			changed[i] = id;
+			String status = BatchOperation.CREATE.equals(op) ? "created"
+					: BatchOperation.UPDATE.equals(op) ? "updated" : "deleted";
+			result.add(new OperationResult(i, op, id, status, null));
+		}
+		filmsChanged(changed);
+		return result;
+	}
+
+	private BatchResult rejectBatch(List<BatchOperation> operations, int failedIndex, String error) {
+		BatchResult result = new BatchResult();
+		for (int i = 0; i < operations.size(); i++) {
+			BatchOperation operation = operations.get(i);
+			Integer id = BatchOperation.CREATE.equals(operation.getOp()) ? null : operation.targetId();
+			if (i == failedIndex) {
+				result.add(new OperationResult(i, operation.getOp(), id, "error", error));
+			} else {
+				result.add(new OperationResult(i, operation.getOp(), id, "rolled_back", "Batch rolled back"));
+			}
+		}
+		return result;
+	}
+
+    /*
+     * Checks that a batch operation is complete, returning the reason it is invalid or null if it is valid.
+     */
+	private String validate(BatchOperation operation) {
+		String op = operation.getOp();
+		if (BatchOperation.CREATE.equals(op)) {
+			return operation.getFilm() == null ? "Missing film" : validate(operation.getFilm());
+		} else if (BatchOperation.UPDATE.equals(op)) {
+			if (operation.targetId() <= 0) {
+				return "Missing film ID";
+			}
+			return operation.getFilm() == null ? "Missing film" : validate(operation.getFilm());
+		} else if (BatchOperation.DELETE.equals(op)) {
+			return operation.targetId() <= 0 ? "Missing film ID" : null;
+		}
+		return "Unknown operation: " + op;
+	}
+
+    /*
+     * Checks the fields a new film needs, returning the reason it is invalid or null if it is valid.
+     */
+	private String validate(Film film) {
+		if (film.getTitle() == null || film.getTitle().trim().isEmpty()) {
+			return "Missing title";
+		}
+		return null;
 	}
 
     /*
      * Updates an existing film in the database.
+     * @return true if the film was updated, false if there is no film with its ID.
      */
-	public void updateFilm(Film film) throws SQLException {
-		filmDAO.updateFilm(film);
+	public boolean updateFilm(Film film) throws SQLException {
+		try {
+			boolean updated = filmRepository.updateFilm(film);
+			if (updated) {
+				// A missing ID must not enter the index, or searches would page over a film that does not exist.
+				searchIndex.put(film);
+			}
+			return updated;
+		} finally {
+			filmsChanged(film.getId());
+		}
 	}
 
     /*
      * Deletes a film from the database based on the film ID.
      */
 	public boolean deleteFilm(int id) throws SQLException {
-		return filmDAO.deleteFilm(id);
+		try {
+			boolean deleted = filmRepository.deleteFilm(id);
+			searchIndex.remove(id);
+			return deleted;
+		} finally {
+			filmsChanged(id);
+		}
+	}
+
+    /*
+     * Publishes committed writes to the given films: drops them from the film cache, moves the catalog on
+     * by one version and clears the response and search result caches, once for the whole write.
+     * The search index must already hold the change, or a search made under the new catalog tag could miss
+     * it and have its page cached as current.
+     */
+	private void filmsChanged(int... ids) {
+		for (int id : ids) {
+			filmCache.invalidate(id);
+		}
+		catalogVersion.filmsChanged(ids);
+		responseCache.clear();
+		searchResultCache.clear();
 	}
 	
     /*
      * Retrieves films in a paginated manner based on the page number and size.
      */
 	public List<Film> getFilmsPaginated(int page, int pageSize) throws SQLException {
-	    return filmDAO.getFilmsPaginated(page, pageSize);
+	    return filmRepository.getFilmsPaginated(page, pageSize);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,280 @@
+package services;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import util.AppConfig;
+
+/*
+ * Bounded cache of search results for the searches the trigram index cannot answer: field searches and
+ * general queries using LIKE wildcards. A result is the sorted array of matching film IDs, keyed by search
+ * type and query, so one entry serves every page and field selection of the same search. Queries are
+ * compared ignoring case, matching the case-insensitive LIKE semantics of the repository.
+ * Results are read with a bounded query; a search matching more than the configured number of films is
+ * remembered as too broad instead, so its pages go straight to the database's LIMIT-bounded keyset query.
+ * Each entry remembers the catalog tag it was built under and is only served while that tag is current,
+ * and it expires after the configured time-to-live; FilmService also clears the cache on every write.
+ * Concurrent misses for the same search are coalesced: the first caller runs the query and the others
+ * wait for and share its result, so a burst of identical searches runs one query instead of one each.
+ */
+public class SearchResultCache {
+    private static SearchResultCache instance;
+
+    /*
+     * Runs a search against the backing store, returning at most maxResults matching IDs in ascending order.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        int[] load(int maxResults) throws SQLException;
+    }
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final int maxResultSize;
+    private final long ttlNanos;
+    private final Map<Key, Entry> entries;
+    // Searches being loaded, so that identical misses wait for the running query instead of starting their own.
+    private final ConcurrentHashMap<Key, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong oversized = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Private constructor that reads the cache settings from config.properties.
+    private SearchResultCache(AppConfig config) {
+        this.enabled = config.getBoolean("cache.search.enabled", true);
+        this.maxSize = Math.max(1, config.getInt("cache.search.maxSize", 500));
+        this.maxResultSize = Math.max(0, config.getInt("cache.search.maxResultSize", 10000));
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(config.getLong("cache.search.ttlSeconds", 60));
+        // Access-ordered map, so iteration starts at the least recently used entry.
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /*
+     * Provides a thread-safe way to access the shared cache.
+     */
+    public static synchronized SearchResultCache getInstance() {
+        if (instance == null) {
+            instance = new SearchResultCache(AppConfig.getInstance());
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /*
+     * Returns the IDs matching a search, from the cache when an entry built under the given catalog tag is
+     * present, otherwise from the loader. Only one loader runs at a time for the same search and tag.
+     * @param type The search type, e.g. "All" or "Title".
+     * @param query The search query.
+     * @param tag The current catalog tag.
+     * @param loader Runs the search against the database, asked for one ID more than the result size limit.
+     * @return The matching IDs in ascending order, which are shared and must not be modified; or null if
+     * the cache is disabled or the search matches too many films, in which case the caller queries directly.
+     * @throws SQLException If the loader fails, in this call or in the call whose result it waited for.
+     */
+    public int[] get(String type, String query, String tag, Loader loader) throws SQLException {
+        if (!enabled) {
+            return null;
+        }
+
+        Key key = new Key(type, query);
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (!entry.tag.equals(tag)) {
+                    // Built before a write that this cache has not yet been cleared for.
+                    entries.remove(key);
+                } else if (ttlNanos == 0 || now - entry.expiresAt < 0) {
+                    hits.incrementAndGet();
+                    return entry.ids;
+                } else {
+                    entries.remove(key);
+                    expirations.incrementAndGet();
+                }
+            }
+        }
+
+        // A flight started under an older tag may return rows from before a write, so it is not joined.
+        Flight mine = new Flight(tag);
+        Flight flight = inFlight.compute(key,
+                (k, current) -> current != null && current.tag.equals(tag) ? current : mine);
+        if (flight != mine) {
+            coalesced.incrementAndGet();
+            return await(flight.result);
+        }
+
+        misses.incrementAndGet();
+        try {
+            int[] ids = loader.load((int) Math.min(Integer.MAX_VALUE, maxResultSize + 1L));
+            if (ids.length > maxResultSize) {
+                // Too broad to hold; remembered as such so later pages skip this probe.
+                oversized.incrementAndGet();
+                ids = null;
+            }
+            synchronized (entries) {
+                entries.put(key, new Entry(tag, ids, now + ttlNanos));
+            }
+            mine.result.complete(ids);
+            return ids;
+        } catch (SQLException | RuntimeException | Error e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /*
+     * Removes every cached result. Called after each write to the catalog; searches already running
+     * are not joined by later callers, since those carry the new catalog tag.
+     */
+    public void clear() {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    // Waits for another caller's load, rethrowing its failure as it was thrown there.
+    private static int[] await(CompletableFuture<int[]> result) throws SQLException {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /*
+     * Takes a point-in-time snapshot of the cache's counters.
+     */
+    public Statistics getStatistics() {
+        Statistics stats = new Statistics();
+        synchronized (entries) {
+            stats.size = entries.size();
+        }
+        stats.maxSize = maxSize;
+        stats.inFlight = inFlight.size();
+        stats.hits = hits.get();
+        stats.misses = misses.get();
+        stats.coalesced = coalesced.get();
+        stats.oversized = oversized.get();
+        stats.evictions = evictions.get();
+        stats.expirations = expirations.get();
+        stats.invalidations = invalidations.get();
+        return stats;
+    }
+
+    /*
+     * Snapshot of cache counters, suitable for exporting to monitoring.
+     */
+    public static class Statistics {
+        public int size;
+        public int maxSize;
+        public int inFlight;
+        public long hits;
+        public long misses;
+        public long coalesced;
+        public long oversized;
+        public long evictions;
+        public long expirations;
+        public long invalidations;
+
+        @Override
+        public String toString() {
+            return "size=" + size + "/" + maxSize + ", inFlight=" + inFlight + ", hits=" + hits + ", misses="
+                    + misses + ", coalesced=" + coalesced + ", oversized=" + oversized + ", evictions=" + evictions + ", expirations="
+                    + expirations + ", invalidations=" + invalidations;
+        }
+    }
+
+    /*
+     * A search type and its query, lower-cased so that queries differing only in case share an entry.
+     */
+    private static final class Key {
+        private final String type;
+        private final String query;
+
+        Key(String type, String query) {
+            this.type = type;
+            this.query = query.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return type.equals(key.type) && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, query);
+        }
+    }
+
+    /*
+     * A cached result and the catalog tag it was built under; ids is null for a search that matched too many films.
+     */
+    private static class Entry {
+        private final String tag;
+        private final int[] ids;
+        private final long expiresAt;
+
+        Entry(String tag, int[] ids, long expiresAt) {
+            this.tag = tag;
+            this.ids = ids;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /*
+     * A running load and the catalog tag it was started under.
+     */
+    private static class Flight {
+        private final String tag;
+        private final CompletableFuture<int[]> result = new CompletableFuture<>();
+
+        Flight(String tag) {
+            this.tag = tag;
+        }
+    }
+}
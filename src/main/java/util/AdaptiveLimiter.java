@@ -0,0 +1,157 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Concurrency limit that adapts to observed latency, used for admission control.
+ * Requests are admitted while fewer than the current limit are in flight, and rejected otherwise.
+ *
+ * The limit follows a gradient: latencies are averaged over short windows and compared with a baseline,
+ * the lowest window average seen, which drifts up slowly so lasting changes in query cost are absorbed.
+ * While the window latency stays within tolerance of the baseline the limit grows by roughly its square
+ * root per window; once requests start queueing (window latency above tolerance x baseline) the limit
+ * shrinks in proportion. Failed requests (timeouts, database errors) cut the limit multiplicatively,
+ * as in AIMD. The limit stays within [minLimit, maxLimit]. Start with a low initial limit: the baseline
+ * is learned from the first windows, and a limit that already queues requests inflates it.
+ */
+public class AdaptiveLimiter {
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+    private final int minWindowSamples;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile int limit;
+
+    // Window and estimator state, guarded by this.
+    private double estimatedLimit;
+    private double longRttNanos;
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private int windowSamples;
+    private boolean windowDropped;
+    private int maxInFlightInWindow;
+
+    /*
+     * Creates a limiter reading its settings from config.properties under the given prefix,
+     * e.g. "limiter.read" for limiter.read.initialLimit, limiter.read.minLimit and limiter.read.maxLimit.
+     */
+    public AdaptiveLimiter(String name, AppConfig config, String prefix, int initialLimit, int minLimit,
+            int maxLimit) {
+        this.name = name;
+        this.minLimit = Math.max(1, config.getInt(prefix + ".minLimit", minLimit));
+        this.maxLimit = Math.max(this.minLimit, config.getInt(prefix + ".maxLimit", maxLimit));
+        this.tolerance = Math.max(1.0, config.getDouble("limiter.tolerance", 2.0));
+        this.windowNanos = config.getLong("limiter.windowMillis", 250) * 1_000_000L;
+        this.minWindowSamples = Math.max(1, config.getInt("limiter.minWindowSamples", 10));
+        int initial = config.getInt(prefix + ".initialLimit", initialLimit);
+        this.estimatedLimit = Math.max(this.minLimit, Math.min(this.maxLimit, initial));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /*
+     * Admits a request if the in-flight count is below the current limit.
+     * @return true if admitted, in which case release() must be called exactly once when it completes.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /*
+     * Records the completion of an admitted request and updates the limit.
+     * @param latencyNanos How long the request took.
+     * @param dropped True if the request failed in a way that signals overload (timeout or server error).
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        int before = inFlight.getAndDecrement();
+        synchronized (this) {
+            maxInFlightInWindow = Math.max(maxInFlightInWindow, before);
+            if (dropped) {
+                windowDropped = true;
+            } else {
+                windowRttSum += latencyNanos;
+                windowSamples++;
+            }
+            long now = System.nanoTime();
+            if (now - windowStart >= windowNanos && (windowSamples >= minWindowSamples || windowDropped)) {
+                updateLimit();
+                windowStart = now;
+                windowRttSum = 0;
+                windowSamples = 0;
+                windowDropped = false;
+                maxInFlightInWindow = 0;
+            }
+        }
+    }
+
+    private void updateLimit() {
+        double newLimit;
+        if (windowDropped) {
+            newLimit = estimatedLimit * 0.9;
+        } else {
+            double shortRtt = (double) windowRttSum / windowSamples;
+            if (longRttNanos == 0 || shortRtt < longRttNanos) {
+                longRttNanos = shortRtt;
+            } else {
+                // Let the baseline drift up slowly, so a lasting change in query cost becomes the new normal.
+                longRttNanos += (shortRtt - longRttNanos) / 100;
+            }
+            // Don't grow the limit when demand never came near it; the latency says nothing about a higher limit.
+            if (maxInFlightInWindow < estimatedLimit / 2) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRtt));
+            double queueAllowance = Math.sqrt(estimatedLimit);
+            newLimit = estimatedLimit * gradient + queueAllowance;
+            // Smooth the change so a single noisy window does not swing the limit.
+            newLimit = estimatedLimit * 0.8 + newLimit * 0.2;
+        }
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    /*
+     * Takes a point-in-time snapshot of the limiter's state.
+     */
+    public Statistics getStatistics() {
+        Statistics stats = new Statistics();
+        stats.name = name;
+        stats.limit = limit;
+        stats.inFlight = inFlight.get();
+        stats.rejected = rejected.get();
+        synchronized (this) {
+            stats.baselineLatencyMillis = longRttNanos / 1_000_000.0;
+        }
+        return stats;
+    }
+
+    /*
+     * Snapshot of limiter state, suitable for exporting to monitoring.
+     */
+    public static class Statistics {
+        public String name;
+        public int limit;
+        public int inFlight;
+        public long rejected;
+        public double baselineLatencyMillis;
+
+        @Override
+        public String toString() {
+            return name + ": limit=" + limit + ", inFlight=" + inFlight + ", rejected=" + rejected
+                    + ", baselineLatencyMillis=" + String.format("%.2f", baselineLatencyMillis);
+        }
+    }
+}
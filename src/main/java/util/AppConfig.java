@@ -0,0 +1,119 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/*
+ * Utility class that loads config.properties once and exposes typed accessors for its settings.
+ * Any key can be overridden with a JVM system property of the form "filmrestful.<key>".
+ * Implements the Singleton pattern so the file is only read a single time per application.
+ */
+public class AppConfig {
+    private static final String SYSTEM_PROPERTY_PREFIX = "filmrestful.";
+
+    private static AppConfig instance;
+    private final Properties props = new Properties();
+
+    // Private constructor that reads config.properties from the classpath.
+    // Loggers are configured from this class, so it reports its own problems directly on System.err.
+    private AppConfig() {
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (input != null) {
+                props.load(input);
+            } else {
+                System.err.println("config.properties not found on the classpath, using defaults");
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading config.properties: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Provides a thread-safe way to access the singleton instance of AppConfig.
+     * @return The single instance of AppConfig.
+     */
+    public static synchronized AppConfig getInstance() {
+        if (instance == null) {
+            instance = new AppConfig();
+        }
+        return instance;
+    }
+
+    /*
+     * Returns the raw value of a setting, or the default value if it is not configured.
+     * @param key The name of the setting.
+     * @param defaultValue The value returned when the setting is missing or blank.
+     * @return The configured value with surrounding whitespace removed.
+     */
+    public String getString(String key, String defaultValue) {
+        String value = System.getProperty(SYSTEM_PROPERTY_PREFIX + key, props.getProperty(key));
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    /*
+     * Returns a setting as an int, falling back to the default value if it is missing or malformed.
+     */
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid integer for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /*
+     * Returns a setting as a long, falling back to the default value if it is missing or malformed.
+     */
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /*
+     * Returns a setting as a double, falling back to the default value if it is missing, malformed or not finite.
+     */
+    public double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            double parsed = Double.parseDouble(value);
+            if (Double.isFinite(parsed)) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below, like a value that is not finite.
+        }
+        System.err.println("Invalid number for " + key + ": " + value);
+        return defaultValue;
+    }
+
+    /*
+     * Returns a setting as a boolean ("true" or "false"), falling back to the default value if it is missing.
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+}
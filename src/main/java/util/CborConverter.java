@@ -0,0 +1,305 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+
+import models.Film;
+import models.FilmFields;
+
+/*
+ * Utility class for converting objects to and from CBOR (RFC 8949, media type application/cbor),
+ * a compact binary format for service-to-service clients.
+ * A film is a map with the same keys as its JSON form; lists are indefinite-length arrays, so they
+ * are streamed film by film, and pages are {"films": [...], "nextCursor": "..."} as in JSON.
+ * Films are encoded directly; other responses and all request bodies go through Gson's tree model,
+ * so they have exactly the structure and mapping rules of their JSON equivalents.
+ * Implements the Singleton pattern to provide a single globally accessible instance.
+ */
+public class CborConverter {
+    private static CborConverter instance;
+
+    private final Gson gson = new Gson();
+
+    // Private constructor to enforce Singleton design pattern.
+    private CborConverter() {}
+
+    /*
+     * Provides a thread-safe way to access the singleton instance of CborConverter.
+     */
+    public static synchronized CborConverter getInstance() {
+        if (instance == null) {
+            instance = new CborConverter();
+        }
+        return instance;
+    }
+
+    /*
+     * Writes the CBOR representation of an object to the given output.
+     * @param object The film, list of films or other response object to encode.
+     * @param out The destination the CBOR is written to.
+     * @throws IOException If there is an error writing to the output.
+     */
+    public void writeCbor(Object object, OutputStream out) throws IOException {
+        CborWriter cbor = new CborWriter(out);
+        if (object instanceof Film) {
+            writeFilm(cbor, (Film) object, FilmFields.ALL);
+        } else if (object instanceof List<?> && isFilmList((List<?>) object)) {
+            List<?> films = (List<?>) object;
+            cbor.startArray(films.size());
+            for (Object film : films) {
+                writeFilm(cbor, (Film) film, FilmFields.ALL);
+            }
+        } else {
+            writeTree(cbor, gson.toJsonTree(object));
+        }
+        cbor.flush();
+    }
+
+    /*
+     * Writes a single film as a CBOR map holding only the selected fields.
+     */
+    public void writeFilm(Film film, FilmFields fields, OutputStream out) throws IOException {
+        CborWriter cbor = new CborWriter(out);
+        writeFilm(cbor, film, fields);
+        cbor.flush();
+    }
+
+    /*
+     * Creates a writer that streams films as an indefinite-length CBOR array.
+     */
+    public FilmStreamWriter newStreamWriter(OutputStream out) throws IOException {
+        return newStreamWriter(out, FilmFields.ALL);
+    }
+
+    /*
+     * Creates a writer that streams films holding only the selected fields as an indefinite-length CBOR array.
+     * @param out The destination the array is written to.
+     * @param fields The fields written for each film.
+     * @return A FilmStreamWriter for an unpaged list.
+     */
+    public FilmStreamWriter newStreamWriter(OutputStream out, FilmFields fields) throws IOException {
+        CborWriter cbor = new CborWriter(out);
+        cbor.startIndefiniteArray();
+        return new FilmStreamWriter() {
+            @Override
+            public void write(Film film) throws IOException {
+                writeFilm(cbor, film, fields);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                cbor.writeBreak();
+                cbor.flush();
+            }
+        };
+    }
+
+    /*
+     * Creates a writer that streams one page of films as a map with a "films" array,
+     * followed by a "nextCursor" entry unless it is the last page.
+     */
+    public FilmStreamWriter newPageWriter(OutputStream out) throws IOException {
+        return newPageWriter(out, FilmFields.ALL);
+    }
+
+    /*
+     * Creates a writer that streams one page of films holding only the selected fields.
+     * @param out The destination the page is written to.
+     * @param fields The fields written for each film.
+     * @return A FilmStreamWriter for a paged response.
+     */
+    public FilmStreamWriter newPageWriter(OutputStream out, FilmFields fields) throws IOException {
+        CborWriter cbor = new CborWriter(out);
+        cbor.startIndefiniteMap();
+        cbor.writeString("films");
+        cbor.startIndefiniteArray();
+        return new FilmStreamWriter() {
+            private String nextCursor;
+
+            @Override
+            public void write(Film film) throws IOException {
+                writeFilm(cbor, film, fields);
+            }
+
+            @Override
+            public void setNextCursor(String cursor) {
+                this.nextCursor = cursor;
+            }
+
+            @Override
+            public void finish() throws IOException {
+                cbor.writeBreak();
+                if (nextCursor != null) {
+                    cbor.writeString("nextCursor");
+                    cbor.writeString(nextCursor);
+                }
+                cbor.writeBreak();
+                cbor.flush();
+            }
+        };
+    }
+
+    /*
+     * Reads one CBOR data item from the given input as an object of the specified type.
+     * @param in The input holding the CBOR item.
+     * @param classOfT The class of the object to which the item is mapped.
+     * @return The object read, or null if the input is empty.
+     * @throws IOException If the input is not well-formed CBOR or does not map to the type.
+     */
+    public <T> T readCbor(InputStream in, Class<T> classOfT) throws IOException {
+        CborReader cbor = new CborReader(in);
+        if (cbor.atEnd()) {
+            return null;
+        }
+        JsonElement tree = cbor.readItem();
+        if (!cbor.atEnd()) {
+            throw new IOException("Malformed CBOR: unexpected data after the first item");
+        }
+        try {
+            return gson.fromJson(tree, classOfT);
+        } catch (JsonParseException e) {
+            throw new IOException("Malformed CBOR: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Creates a reader over a CBOR request body holding either a single film map or an array of them.
+     * Array elements are decoded one at a time; an element that does not map to a Film is reported
+     * as an invalid record, while malformed CBOR ends the read with an IOException.
+     * @param in The request body.
+     * @return A FilmRecordReader over the films in the body.
+     * @throws IOException If the body cannot be read.
+     */
+    public FilmRecordReader newRecordReader(InputStream in) throws IOException {
+        CborReader cbor = new CborReader(in);
+        long length = cbor.startArray();
+        boolean array = length != -2;
+
+        return new FilmRecordReader() {
+            private long remaining = length;
+            private boolean done = !array && cbor.atEnd();
+            private Film film;
+            private String error;
+
+            @Override
+            public boolean next() throws IOException {
+                if (done) {
+                    return false;
+                }
+                if (array && (remaining == -1 ? cbor.readBreak() : remaining-- == 0)) {
+                    done = true;
+                    return false;
+                }
+                JsonElement element = cbor.readItem();
+                done = !array;
+                try {
+                    film = gson.fromJson(element, Film.class);
+                    error = film == null ? "Empty record" : null;
+                } catch (JsonParseException e) {
+                    film = null;
+                    error = "Invalid film: " + e.getMessage();
+                }
+                return true;
+            }
+
+            @Override
+            public Film getFilm() {
+                return film;
+            }
+
+            @Override
+            public String getError() {
+                return error;
+            }
+        };
+    }
+
+    // Same keys, order and null handling as Gson's reflective output for Film.
+    private void writeFilm(CborWriter cbor, Film film, FilmFields fields) throws IOException {
+        boolean title = fields.includes(FilmFields.Field.TITLE) && film.getTitle() != null;
+        boolean year = fields.includes(FilmFields.Field.YEAR);
+        boolean director = fields.includes(FilmFields.Field.DIRECTOR) && film.getDirector() != null;
+        boolean stars = fields.includes(FilmFields.Field.STARS) && film.getStars() != null;
+        boolean review = fields.includes(FilmFields.Field.REVIEW) && film.getReview() != null;
+        cbor.startMap(1 + count(title) + count(year) + count(director) + count(stars) + count(review));
+        cbor.writeString("id");
+        cbor.writeInt(film.getId());
+        if (title) {
+            cbor.writeString("title");
+            cbor.writeString(film.getTitle());
+        }
+        if (year) {
+            cbor.writeString("year");
+            cbor.writeInt(film.getYear());
+        }
+        if (director) {
+            cbor.writeString("director");
+            cbor.writeString(film.getDirector());
+        }
+        if (stars) {
+            cbor.writeString("stars");
+            cbor.writeString(film.getStars());
+        }
+        if (review) {
+            cbor.writeString("review");
+            cbor.writeString(film.getReview());
+        }
+    }
+
+    private static int count(boolean present) {
+        return present ? 1 : 0;
+    }
+
+    private static boolean isFilmList(List<?> list) {
+        for (Object item : list) {
+            if (!(item instanceof Film)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeTree(CborWriter cbor, JsonElement element) throws IOException {
+        if (element == null || element.isJsonNull()) {
+            cbor.writeNull();
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            cbor.startArray(array.size());
+            for (JsonElement item : array) {
+                writeTree(cbor, item);
+            }
+        } else if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            cbor.startMap(object.size());
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                cbor.writeString(entry.getKey());
+                writeTree(cbor, entry.getValue());
+            }
+        } else {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                cbor.writeBoolean(primitive.getAsBoolean());
+            } else if (primitive.isNumber()) {
+                Number number = primitive.getAsNumber();
+                double value = number.doubleValue();
+                if (value == Math.rint(value) && Math.abs(value) < 0x1p53) {
+                    cbor.writeInt(number.longValue());
+                } else {
+                    cbor.writeDouble(value);
+                }
+            } else {
+                cbor.writeString(primitive.getAsString());
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/*
+ * Minimal streaming CBOR (RFC 8949) decoder used by CborConverter.
+ * Data items are decoded into Gson trees, so objects are then mapped by the same rules as JSON bodies.
+ * Tags are ignored, byte strings become Base64 text and map keys are converted to strings.
+ * Lengths are never trusted for allocation: strings are read in bounded chunks, so a forged length
+ * cannot reserve more memory than the body actually holds.
+ */
+class CborReader {
+    private static final int MAX_DEPTH = 64;
+    private static final int CHUNK_SIZE = 8192;
+
+    private final InputStream in;
+    // One byte of look-ahead, or -2 if none has been read.
+    private int peeked = -2;
+
+    CborReader(InputStream in) {
+        this.in = in;
+    }
+
+    /*
+     * Checks whether the input has been read to the end.
+     */
+    boolean atEnd() throws IOException {
+        return peek() < 0;
+    }
+
+    /*
+     * Checks whether the next byte is the break that closes an indefinite-length array or map,
+     * consuming it if it is.
+     */
+    boolean readBreak() throws IOException {
+        if (peek() == CborWriter.BREAK) {
+            peeked = -2;
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * If the next data item is an array, consumes its head and returns its length, or -1 if it has
+     * indefinite length. Returns -2, consuming nothing, if the next item is not an array.
+     */
+    long startArray() throws IOException {
+        int initial = peek();
+        if (initial < 0 || initial >>> 5 != CborWriter.MAJOR_ARRAY) {
+            return -2;
+        }
+        peeked = -2;
+        int info = initial & 0x1f;
+        return info == CborWriter.INDEFINITE ? -1 : readLength(info);
+    }
+
+    /*
+     * Reads the next complete data item.
+     * @throws IOException If the input ends early or is not well-formed CBOR.
+     */
+    JsonElement readItem() throws IOException {
+        return readItem(0);
+    }
+
+    private JsonElement readItem(int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("CBOR nesting is deeper than " + MAX_DEPTH);
+        }
+        int initial = read();
+        int major = initial >>> 5;
+        int info = initial & 0x1f;
+        switch (major) {
+            case CborWriter.MAJOR_UNSIGNED: {
+                long value = readArgument(info);
+                return new JsonPrimitive(value >= 0 ? (Number) value : unsigned(value));
+            }
+            case CborWriter.MAJOR_NEGATIVE: {
+                long value = readArgument(info);
+                return new JsonPrimitive(value >= 0 ? (Number) (-1 - value)
+                        : BigInteger.ONE.negate().subtract(unsigned(value)));
+            }
+            case CborWriter.MAJOR_BYTES:
+                return new JsonPrimitive(Base64.getEncoder().encodeToString(readString(major, info)));
+            case CborWriter.MAJOR_TEXT:
+                return new JsonPrimitive(new String(readString(major, info), StandardCharsets.UTF_8));
+            case CborWriter.MAJOR_ARRAY: {
+                JsonArray array = new JsonArray();
+                if (info == CborWriter.INDEFINITE) {
+                    while (!readBreak()) {
+                        array.add(readItem(depth + 1));
+                    }
+                } else {
+                    for (long i = readLength(info); i > 0; i--) {
+                        array.add(readItem(depth + 1));
+                    }
+                }
+                return array;
+            }
+            case CborWriter.MAJOR_MAP: {
+                JsonObject object = new JsonObject();
+                if (info == CborWriter.INDEFINITE) {
+                    while (!readBreak()) {
+                        readEntry(object, depth);
+                    }
+                } else {
+                    for (long i = readLength(info); i > 0; i--) {
+                        readEntry(object, depth);
+                    }
+                }
+                return object;
+            }
+            case CborWriter.MAJOR_TAG:
+                readArgument(info);
+                return readItem(depth + 1);
+            default:
+                return readSimple(info);
+        }
+    }
+
+    private void readEntry(JsonObject object, int depth) throws IOException {
+        JsonElement key = readItem(depth + 1);
+        String name = key.isJsonPrimitive() ? key.getAsString() : key.toString();
+        object.add(name, readItem(depth + 1));
+    }
+
+    private JsonElement readSimple(int info) throws IOException {
+        switch (info) {
+            case 20:
+                return new JsonPrimitive(false);
+            case 21:
+                return new JsonPrimitive(true);
+            case 22:
+            case 23:
+                return JsonNull.INSTANCE;
+            case 24:
+                read();
+                return JsonNull.INSTANCE;
+            case 25:
+                return new JsonPrimitive(halfToDouble((int) readUnsigned(2)));
+            case 26:
+                return new JsonPrimitive((double) Float.intBitsToFloat((int) readUnsigned(4)));
+            case 27:
+                return new JsonPrimitive(Double.longBitsToDouble(readUnsigned(8)));
+            case CborWriter.INDEFINITE:
+                throw new IOException("Unexpected break in CBOR input");
+            default:
+                if (info < 20) {
+                    return JsonNull.INSTANCE;
+                }
+                throw new IOException("Reserved CBOR simple value " + info);
+        }
+    }
+
+    // Reads a byte or text string, joining the chunks of an indefinite-length one.
+    private byte[] readString(int major, int info) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (info != CborWriter.INDEFINITE) {
+            readChunk(readLength(info), bytes);
+            return bytes.toByteArray();
+        }
+        while (!readBreak()) {
+            int initial = read();
+            if (initial >>> 5 != major || (initial & 0x1f) == CborWriter.INDEFINITE) {
+                throw new IOException("Malformed chunk in indefinite-length CBOR string");
+            }
+            readChunk(readLength(initial & 0x1f), bytes);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void readChunk(long length, ByteArrayOutputStream bytes) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(length, CHUNK_SIZE)];
+        long remaining = length;
+        if (remaining > 0 && peeked >= 0) {
+            bytes.write(peeked);
+            peeked = -2;
+            remaining--;
+        }
+        while (remaining > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(remaining, buffer.length));
+            if (n < 0) {
+                throw new EOFException("CBOR input ends inside a string");
+            }
+            bytes.write(buffer, 0, n);
+            remaining -= n;
+        }
+    }
+
+    private long readLength(int info) throws IOException {
+        long length = readArgument(info);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IOException("CBOR length too large: " + Long.toUnsignedString(length));
+        }
+        return length;
+    }
+
+    // Reads the argument that follows the initial byte; values above Long.MAX_VALUE come back negative.
+    private long readArgument(int info) throws IOException {
+        if (info < 24) {
+            return info;
+        }
+        switch (info) {
+            case 24:
+                return readUnsigned(1);
+            case 25:
+                return readUnsigned(2);
+            case 26:
+                return readUnsigned(4);
+            case 27:
+                return readUnsigned(8);
+            default:
+                throw new IOException("Malformed CBOR argument " + info);
+        }
+    }
+
+    private long readUnsigned(int bytes) throws IOException {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = value << 8 | read();
+        }
+        return value;
+    }
+
+    private static BigInteger unsigned(long value) {
+        return new BigInteger(Long.toUnsignedString(value));
+    }
+
+    private static double halfToDouble(int half) {
+        int exponent = half >> 10 & 0x1f;
+        int mantissa = half & 0x3ff;
+        double value;
+        if (exponent == 0) {
+            value = mantissa * Math.pow(2, -24);
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        } else {
+            value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+        }
+        return (half & 0x8000) != 0 ? -value : value;
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = in.read();
+        }
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int b = peek();
+        if (b < 0) {
+            throw new EOFException("Unexpected end of CBOR input");
+        }
+        peeked = -2;
+        return b;
+    }
+}
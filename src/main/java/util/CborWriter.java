@@ -0,0 +1,161 @@
+package util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/*
+ * Minimal streaming CBOR (RFC 8949) encoder used by CborConverter.
+ * Writes the shortest encoding of every integer and length, and encodes strings as UTF-8 straight
+ * into the stream without building a byte array. Indefinite-length arrays and maps let lists be
+ * written before their size is known; they are closed with writeBreak().
+ */
+class CborWriter {
+    static final int MAJOR_UNSIGNED = 0;
+    static final int MAJOR_NEGATIVE = 1;
+    static final int MAJOR_BYTES = 2;
+    static final int MAJOR_TEXT = 3;
+    static final int MAJOR_ARRAY = 4;
+    static final int MAJOR_MAP = 5;
+    static final int MAJOR_TAG = 6;
+    static final int MAJOR_SIMPLE = 7;
+
+    static final int INDEFINITE = 31;
+    static final int BREAK = 0xff;
+
+    private final OutputStream out;
+
+    CborWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    void writeInt(long value) throws IOException {
+        if (value >= 0) {
+            writeHead(MAJOR_UNSIGNED, value);
+        } else {
+            writeHead(MAJOR_NEGATIVE, -1 - value);
+        }
+    }
+
+    void writeDouble(double value) throws IOException {
+        out.write(MAJOR_SIMPLE << 5 | 27);
+        long bits = Double.doubleToLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (bits >>> shift));
+        }
+    }
+
+    void writeBoolean(boolean value) throws IOException {
+        out.write(MAJOR_SIMPLE << 5 | (value ? 21 : 20));
+    }
+
+    void writeNull() throws IOException {
+        out.write(MAJOR_SIMPLE << 5 | 22);
+    }
+
+    /*
+     * Writes a text string, or null if the value is null.
+     */
+    void writeString(String value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        writeHead(MAJOR_TEXT, utf8Length(value));
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.write(c);
+            } else if (c < 0x800) {
+                out.write(0xc0 | c >> 6);
+                out.write(0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.write(0xf0 | codePoint >> 18);
+                out.write(0x80 | codePoint >> 12 & 0x3f);
+                out.write(0x80 | codePoint >> 6 & 0x3f);
+                out.write(0x80 | codePoint & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate: replaced, as String.getBytes does.
+                out.write('?');
+            } else {
+                out.write(0xe0 | c >> 12);
+                out.write(0x80 | c >> 6 & 0x3f);
+                out.write(0x80 | c & 0x3f);
+            }
+        }
+    }
+
+    void startArray(int size) throws IOException {
+        writeHead(MAJOR_ARRAY, size);
+    }
+
+    void startMap(int size) throws IOException {
+        writeHead(MAJOR_MAP, size);
+    }
+
+    void startIndefiniteArray() throws IOException {
+        out.write(MAJOR_ARRAY << 5 | INDEFINITE);
+    }
+
+    void startIndefiniteMap() throws IOException {
+        out.write(MAJOR_MAP << 5 | INDEFINITE);
+    }
+
+    /*
+     * Closes the innermost indefinite-length array or map.
+     */
+    void writeBreak() throws IOException {
+        out.write(BREAK);
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    // Writes the initial byte of a data item and its argument in the fewest bytes.
+    private void writeHead(int major, long argument) throws IOException {
+        int type = major << 5;
+        if (argument < 24) {
+            out.write(type | (int) argument);
+        } else if (argument < 0x100) {
+            out.write(type | 24);
+            out.write((int) argument);
+        } else if (argument < 0x10000) {
+            out.write(type | 25);
+            out.write((int) (argument >>> 8));
+            out.write((int) argument);
+        } else if (argument < 0x100000000L) {
+            out.write(type | 26);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                out.write((int) (argument >>> shift));
+            }
+        } else {
+            out.write(type | 27);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (argument >>> shift));
+            }
+        }
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
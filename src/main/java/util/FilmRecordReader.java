@@ -0,0 +1,31 @@
+package util;
+
+import java.io.IOException;
+
+import models.Film;
+
+/*
+ * Reads the films of a multi-record request body one at a time, so bulk requests never
+ * have to be held in memory as a whole.
+ * A record that cannot be converted to a film is reported through getError() and reading
+ * continues with the next record; malformed input that makes the rest unreadable throws instead.
+ */
+public interface FilmRecordReader {
+
+    /*
+     * Advances to the next record.
+     * @return false when there are no more records.
+     * @throws IOException If the body cannot be read or is malformed beyond the current record.
+     */
+    boolean next() throws IOException;
+
+    /*
+     * Returns the film of the current record, or null if the record is invalid.
+     */
+    Film getFilm();
+
+    /*
+     * Returns why the current record is invalid, or null if it was read successfully.
+     */
+    String getError();
+}
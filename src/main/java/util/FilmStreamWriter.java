@@ -0,0 +1,34 @@
+package util;
+
+import java.io.IOException;
+
+import models.Film;
+
+/*
+ * Incrementally serialises a list of films, writing each film as soon as it is supplied
+ * instead of building the whole document in memory first.
+ */
+public interface FilmStreamWriter {
+
+    /*
+     * Writes a single film as the next element of the list.
+     * @param film The film to write.
+     * @throws IOException If there is an error writing to the underlying stream.
+     */
+    void write(Film film) throws IOException;
+
+    /*
+     * Sets the cursor of the following page, written in the envelope of paged responses when finished.
+     * Writers for unpaged lists ignore it.
+     * @param cursor The opaque cursor, or null if this is the last page.
+     */
+    default void setNextCursor(String cursor) {
+    }
+
+    /*
+     * Completes the document and flushes it. Not called when the stream fails part way through,
+     * so a truncated response is never closed off as if it were complete.
+     * @throws IOException If there is an error writing to the underlying stream.
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,248 @@
+package util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import models.Film;
+import models.FilmFields;
+
+/*
+ * Hand-written XML codec for Film, used by XmlConverter as a fast path around JAXB.
+ * Output is identical to JAXB's formatted marshalling of Film and Films: properties in
+ * alphabetical order, four-space indentation and null properties omitted.
+ * Input is read with a StAX stream reader with DTDs and external entities disabled.
+ */
+class FilmXmlCodec {
+    static final String PROLOGUE = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    private final XMLInputFactory inputFactory;
+
+    FilmXmlCodec() {
+        inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    }
+
+    /*
+     * Writes a <film> element indented by the given number of levels, followed by a newline.
+     */
+    void writeFilm(Film film, Writer out, int depth) throws IOException {
+        writeFilm(film, FilmFields.ALL, out, depth);
+    }
+
+    /*
+     * Writes a <film> element with only the selected child elements.
+     */
+    void writeFilm(Film film, FilmFields fields, Writer out, int depth) throws IOException {
+        String indent = indent(depth);
+        String childIndent = indent(depth + 1);
+        out.write(indent);
+        out.write("<film>\n");
+        if (fields.includes(FilmFields.Field.DIRECTOR)) {
+            writeElement(out, childIndent, "director", film.getDirector());
+        }
+        writeElement(out, childIndent, "id", Integer.toString(film.getId()));
+        if (fields.includes(FilmFields.Field.REVIEW)) {
+            writeElement(out, childIndent, "review", film.getReview());
+        }
+        if (fields.includes(FilmFields.Field.STARS)) {
+            writeElement(out, childIndent, "stars", film.getStars());
+        }
+        if (fields.includes(FilmFields.Field.TITLE)) {
+            writeElement(out, childIndent, "title", film.getTitle());
+        }
+        if (fields.includes(FilmFields.Field.YEAR)) {
+            writeElement(out, childIndent, "year", Integer.toString(film.getYear()));
+        }
+        out.write(indent);
+        out.write("</film>\n");
+    }
+
+    /*
+     * Writes the <nextCursor> element of a paged <films> document.
+     */
+    void writeNextCursor(String cursor, Writer out, int depth) throws IOException {
+        writeElement(out, indent(depth), "nextCursor", cursor);
+    }
+
+    private static String indent(int depth) {
+        return "    ".repeat(depth);
+    }
+
+    private void writeElement(Writer out, String indent, String name, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        out.write(indent);
+        out.write('<');
+        out.write(name);
+        out.write('>');
+        escape(value, out);
+        out.write("</");
+        out.write(name);
+        out.write(">\n");
+    }
+
+    /*
+     * Escapes character data the same way the JAXB reference implementation does.
+     */
+    private void escape(String value, Writer out) throws IOException {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String replacement;
+            switch (value.charAt(i)) {
+                case '&':
+                    replacement = "&amp;";
+                    break;
+                case '<':
+                    replacement = "&lt;";
+                    break;
+                case '>':
+                    replacement = "&gt;";
+                    break;
+                case '\r':
+                    replacement = "&#13;";
+                    break;
+                default:
+                    continue;
+            }
+            out.write(value, start, i - start);
+            out.write(replacement);
+            start = i + 1;
+        }
+        out.write(value, start, value.length() - start);
+    }
+
+    /*
+     * Reads a single <film> document.
+     * @throws XMLStreamException If the input is not well-formed or its root element is not <film>.
+     */
+    Film readFilm(Reader in) throws XMLStreamException {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+        try {
+            reader.nextTag();
+            if (!"film".equals(reader.getLocalName())) {
+                throw new XMLStreamException("Expected <film> but found <" + reader.getLocalName() + ">",
+                        reader.getLocation());
+            }
+            return readFilmElement(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /*
+     * Reads the children of the <film> element the reader is positioned on, leaving it on the end tag.
+     */
+    Film readFilmElement(XMLStreamReader reader) throws XMLStreamException {
+        Film film = new Film();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            switch (name) {
+                case "id":
+                    film.setId(parseInt(reader.getElementText(), film.getId()));
+                    break;
+                case "title":
+                    film.setTitle(reader.getElementText());
+                    break;
+                case "year":
+                    film.setYear(parseInt(reader.getElementText(), film.getYear()));
+                    break;
+                case "director":
+                    film.setDirector(reader.getElementText());
+                    break;
+                case "stars":
+                    film.setStars(reader.getElementText());
+                    break;
+                case "review":
+                    film.setReview(reader.getElementText());
+                    break;
+                default:
+                    skipElement(reader);
+                    break;
+            }
+        }
+        return film;
+    }
+
+    /*
+     * Opens a reader over a <film> or <films> document that returns one film per record.
+     */
+    FilmRecordReader newRecordReader(Reader in) throws XMLStreamException {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+        reader.nextTag();
+        String root = reader.getLocalName();
+        if (!"film".equals(root) && !"films".equals(root)) {
+            throw new XMLStreamException("Expected <film> or <films> but found <" + root + ">", reader.getLocation());
+        }
+        boolean single = "film".equals(root);
+
+        return new FilmRecordReader() {
+            private boolean done;
+            private Film film;
+
+            @Override
+            public boolean next() throws IOException {
+                if (done) {
+                    return false;
+                }
+                try {
+                    if (single) {
+                        done = true;
+                        film = readFilmElement(reader);
+                        return true;
+                    }
+                    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                        if ("film".equals(reader.getLocalName())) {
+                            film = readFilmElement(reader);
+                            return true;
+                        }
+                        skipElement(reader);
+                    }
+                    done = true;
+                    return false;
+                } catch (XMLStreamException e) {
+                    throw new IOException("Malformed XML: " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public Film getFilm() {
+                return film;
+            }
+
+            @Override
+            public String getError() {
+                return null;
+            }
+        };
+    }
+
+    private int parseInt(String text, int fallback) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            // JAXB silently ignores unparsable numbers, so keep the previous value.
+            return fallback;
+        }
+    }
+
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
@@ -1,6 +1,21 @@
 package util;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import models.Film;
+import models.FilmFields;
 
 /*
  * Utility class for converting objects to JSON and JSON to objects using Google's Gson library.
@@ -37,6 +52,63 @@ public class JsonConverter {
         return gson.toJson(object);
     }
 
+    /*
+     * Writes the JSON representation of an object directly to the given output without building a String.
+     * @param object The object to be converted to JSON.
+     * @param out The destination the JSON is written to.
+     * @throws IOException If there is an error writing to the output.
+     */
+    public void writeJson(Object object, Writer out) throws IOException {
+        try {
+            gson.toJson(object, out);
+        } catch (JsonIOException e) {
+            throw new IOException("Error writing JSON", e.getCause());
+        }
+    }
+
+    /*
+     * Writes a single film as a JSON object holding only the selected fields.
+     * @param film The film to write.
+     * @param fields The fields to include; ALL gives the same output as writeJson.
+     * @param out The destination the JSON is written to.
+     * @throws IOException If there is an error writing to the output.
+     */
+    public void writeFilm(Film film, FilmFields fields, Writer out) throws IOException {
+        JsonWriter jsonWriter = gson.newJsonWriter(out);
+        writeFilm(film, fields, jsonWriter);
+        jsonWriter.flush();
+    }
+
+    private void writeFilm(Film film, FilmFields fields, JsonWriter jsonWriter) throws IOException {
+        if (fields.isAll()) {
+            try {
+                gson.toJson(film, Film.class, jsonWriter);
+            } catch (JsonIOException e) {
+                throw new IOException("Error writing film to JSON stream", e.getCause());
+            }
+            return;
+        }
+        // Same member order and null handling as Gson's reflective output.
+        jsonWriter.beginObject();
+        jsonWriter.name("id").value(film.getId());
+        if (fields.includes(FilmFields.Field.TITLE) && film.getTitle() != null) {
+            jsonWriter.name("title").value(film.getTitle());
+        }
+        if (fields.includes(FilmFields.Field.YEAR)) {
+            jsonWriter.name("year").value(film.getYear());
+        }
+        if (fields.includes(FilmFields.Field.DIRECTOR) && film.getDirector() != null) {
+            jsonWriter.name("director").value(film.getDirector());
+        }
+        if (fields.includes(FilmFields.Field.STARS) && film.getStars() != null) {
+            jsonWriter.name("stars").value(film.getStars());
+        }
+        if (fields.includes(FilmFields.Field.REVIEW) && film.getReview() != null) {
+            jsonWriter.name("review").value(film.getReview());
+        }
+        jsonWriter.endObject();
+    }
+
     /*
      * Converts a JSON string back to an object of the specified type.
      * @param json The JSON string to be converted into an object.
@@ -46,4 +118,170 @@ public class JsonConverter {
     public <T> T convertFromJson(String json, Class<T> classOfT) {
         return gson.fromJson(json, classOfT);
     }
-}
\ No newline at end of file
+
+    /*
+     * Reads a JSON document from the given input as an object of the specified type.
+     * @param in The input holding the JSON document.
+     * @param classOfT The class of the object to which the JSON is to be converted.
+     * @return The object read, or null if the input is empty.
+     * @throws IOException If the input cannot be read or is not valid JSON for the type.
+     */
+    public <T> T readJson(Reader in, Class<T> classOfT) throws IOException {
+        try {
+            return gson.fromJson(in, classOfT);
+        } catch (JsonIOException e) {
+            throw new IOException("Error reading JSON", e.getCause());
+        } catch (JsonParseException e) {
+            throw new IOException("Malformed JSON: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Creates a writer that streams a JSON array of films to the given output, one element at a time.
+     * @param out The destination the JSON array is written to.
+     * @return A FilmStreamWriter producing the same output as convertToJson on a list of films.
+     */
+    public FilmStreamWriter newStreamWriter(Writer out) throws IOException {
+        return newStreamWriter(out, FilmFields.ALL);
+    }
+
+    /*
+     * Creates a writer that streams a JSON array of films holding only the selected fields.
+     * @param out The destination the JSON array is written to.
+     * @param fields The fields written for each film.
+     * @return A FilmStreamWriter for an unpaged list.
+     */
+    public FilmStreamWriter newStreamWriter(Writer out, FilmFields fields) throws IOException {
+        return newArrayWriter(gson.newJsonWriter(out), fields);
+    }
+
+    /*
+     * Opens a JSON array on the writer and returns a FilmStreamWriter that appends films to it.
+     */
+    private FilmStreamWriter newArrayWriter(JsonWriter jsonWriter, FilmFields fields) throws IOException {
+        jsonWriter.beginArray();
+        return new FilmStreamWriter() {
+            @Override
+            public void write(Film film) throws IOException {
+                writeFilm(film, fields, jsonWriter);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                jsonWriter.endArray();
+                jsonWriter.flush();
+            }
+        };
+    }
+
+    /*
+     * Creates a writer that streams one page of films as {"films": [...], "nextCursor": "..."}.
+     * The nextCursor member is left out on the last page.
+     * @param out The destination the JSON object is written to.
+     * @return A FilmStreamWriter for a paged response.
+     */
+    public FilmStreamWriter newPageWriter(Writer out) throws IOException {
+        return newPageWriter(out, FilmFields.ALL);
+    }
+
+    /*
+     * Creates a writer that streams one page of films holding only the selected fields.
+     * @param out The destination the JSON object is written to.
+     * @param fields The fields written for each film.
+     * @return A FilmStreamWriter for a paged response.
+     */
+    public FilmStreamWriter newPageWriter(Writer out, FilmFields fields) throws IOException {
+        JsonWriter jsonWriter = gson.newJsonWriter(out);
+        jsonWriter.beginObject();
+        jsonWriter.name("films");
+        FilmStreamWriter films = newArrayWriter(jsonWriter, fields);
+        return new FilmStreamWriter() {
+            private String nextCursor;
+
+            @Override
+            public void write(Film film) throws IOException {
+                films.write(film);
+            }
+
+            @Override
+            public void setNextCursor(String cursor) {
+                this.nextCursor = cursor;
+            }
+
+            @Override
+            public void finish() throws IOException {
+                jsonWriter.endArray();
+                if (nextCursor != null) {
+                    jsonWriter.name("nextCursor").value(nextCursor);
+                }
+                jsonWriter.endObject();
+                jsonWriter.flush();
+            }
+        };
+    }
+
+    /*
+     * Creates a reader over a JSON request body holding either a single film object or an array of them.
+     * Array elements are parsed one at a time; an element that does not map to a Film is reported
+     * as an invalid record, while malformed JSON ends the read with an IOException.
+     * @param in The request body.
+     * @return A FilmRecordReader over the films in the body.
+     * @throws IOException If the body cannot be read.
+     */
+    public FilmRecordReader newRecordReader(Reader in) throws IOException {
+        JsonReader jsonReader = gson.newJsonReader(in);
+        boolean array;
+        try {
+            array = jsonReader.peek() == JsonToken.BEGIN_ARRAY;
+            if (array) {
+                jsonReader.beginArray();
+            }
+        } catch (MalformedJsonException | IllegalStateException e) {
+            throw new IOException("Malformed JSON: " + e.getMessage(), e);
+        }
+
+        return new FilmRecordReader() {
+            private boolean done;
+            private Film film;
+            private String error;
+
+            @Override
+            public boolean next() throws IOException {
+                if (done) {
+                    return false;
+                }
+                JsonElement element;
+                try {
+                    if (array && !jsonReader.hasNext()) {
+                        jsonReader.endArray();
+                        done = true;
+                        return false;
+                    }
+                    element = JsonParser.parseReader(jsonReader);
+                } catch (JsonParseException | IllegalStateException e) {
+                    throw new IOException("Malformed JSON: " + e.getMessage(), e);
+                }
+                done = !array;
+
+                try {
+                    film = gson.fromJson(element, Film.class);
+                    error = film == null ? "Empty record" : null;
+                } catch (JsonParseException e) {
+                    film = null;
+                    error = "Invalid film: " + e.getMessage();
+                }
+                return true;
+            }
+
+            @Override
+            public Film getFilm() {
+                return film;
+            }
+
+            @Override
+            public String getError() {
+                return error;
+            }
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+ * Passes a request body through until more than a fixed number of bytes have been read, then fails
+ * with RequestBodyTooLargeException, so a parser never consumes more of the body than the limit allows.
+ */
+class LimitedInputStream extends FilterInputStream {
+    private final long limit;
+    private long count;
+
+    LimitedInputStream(InputStream in, long limit) {
+        super(in);
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        // Ask for at most one byte past the limit: enough to detect an oversized body.
+        int n = in.read(b, off, (int) Math.min(len, limit - count + 1));
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(Math.min(n, limit - count + 1));
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long n) throws RequestBodyTooLargeException {
+        count += n;
+        if (count > limit) {
+            throw new RequestBodyTooLargeException(limit);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/*
+ * Bounded pool of reusable objects that are costly to build and not thread-safe, such as JAXB marshallers
+ * and configured Yaml instances. Unlike a ThreadLocal it keeps its objects when every request runs on a
+ * new virtual thread. A borrower has the object to itself until it releases it; when the pool is empty a
+ * new object is created, and objects released into a full pool are dropped, so the pool never grows past
+ * its capacity and an object that is never released (a stream that failed part way) is simply lost.
+ */
+final class ObjectPool<T> {
+
+    /*
+     * Creates a new object when none is idle.
+     */
+    @FunctionalInterface
+    interface Factory<T, E extends Exception> {
+        T create() throws E;
+    }
+
+    private final ArrayBlockingQueue<T> idle;
+
+    ObjectPool(int capacity) {
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /*
+     * Creates a pool sized by the converter.poolSize setting, by default twice the number of processors.
+     */
+    static <T> ObjectPool<T> fromConfig() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return new ObjectPool<>(AppConfig.getInstance().getInt("converter.poolSize", 2 * processors));
+    }
+
+    /*
+     * Takes an idle object, or creates one if there is none.
+     */
+    <E extends Exception> T borrow(Factory<T, E> factory) throws E {
+        T object = idle.poll();
+        return object != null ? object : factory.create();
+    }
+
+    /*
+     * Returns a borrowed object for reuse. The caller must not use it afterwards.
+     */
+    void release(T object) {
+        idle.offer(object);
+    }
+}
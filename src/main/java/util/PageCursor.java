@@ -0,0 +1,43 @@
+package util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/*
+ * Encodes and decodes the opaque cursors used for keyset pagination.
+ * A cursor records the ID of the last film on a page; the next page starts after that ID.
+ * The encoding is versioned so other sort keys can be added without breaking existing cursors.
+ */
+public final class PageCursor {
+    private static final String ID_PREFIX = "i:";
+
+    private PageCursor() {}
+
+    /*
+     * Creates the cursor for the page that follows the film with the given ID.
+     */
+    public static String encode(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((ID_PREFIX + lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /*
+     * Returns the ID a page should start after, or 0 for the first page.
+     * @param cursor The value of the "after" parameter, may be null or empty.
+     * @throws IllegalArgumentException If the cursor was not produced by encode().
+     */
+    public static int decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (decoded.startsWith(ID_PREFIX)) {
+                return Integer.parseInt(decoded.substring(ID_PREFIX.length()));
+            }
+        } catch (IllegalArgumentException e) {
+            // Falls through to the error below; NumberFormatException is an IllegalArgumentException.
+        }
+        throw new IllegalArgumentException("Invalid pagination cursor: " + cursor);
+    }
+}
@@ -0,0 +1,22 @@
+package util;
+
+import java.io.IOException;
+
+/*
+ * Thrown while reading a request body that is larger than the configured limit, either as soon as its
+ * Content-Length is known or once more bytes than the limit have been read. Answered with 413.
+ */
+public class RequestBodyTooLargeException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final long limit;
+
+    public RequestBodyTooLargeException(long limit) {
+        super("Request body is larger than " + limit + " bytes");
+        this.limit = limit;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+}
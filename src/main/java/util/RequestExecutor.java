@@ -0,0 +1,258 @@
+package util;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import logging.Logger;
+import metrics.ErrorType;
+import metrics.Metrics;
+
+/*
+ * Runs servlet request handling off the container's worker threads, so a slow database call does not
+ * hold a container thread for its whole duration.
+ * Requests are put into asynchronous mode and handled on a virtual thread per request when running on
+ * Java 21 or later, or on a bounded thread pool otherwise (executor.type in config.properties). A request
+ * that has not started writing its response within request.timeoutMillis gets a 503 instead, and its worker
+ * is interrupted so it stops waiting for a connection or a query; one that cannot be queued because the pool
+ * is saturated is rejected with a 503 straight away. The request is only completed once its worker has
+ * exited, since the container recycles the request object on completion and a late worker may still be
+ * reading its parameters or body.
+ * This class uses a singleton pattern so every servlet shares the same executor.
+ */
+public class RequestExecutor {
+    private static RequestExecutor instance;
+    private static final Logger logger = Logger.getLogger(RequestExecutor.class);
+
+    /*
+     * Handles one request; the same shape as HttpServlet's doGet/doPost methods.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void handle(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException;
+    }
+
+    private final ExecutorService executor;
+    private final ScheduledThreadPoolExecutor timeouts;
+    private final long timeoutMillis;
+    private final String description;
+
+    // Private constructor that creates the executor described in config.properties.
+    private RequestExecutor(AppConfig config) {
+        this.timeoutMillis = config.getLong("request.timeoutMillis", 30000);
+        String type = config.getString("executor.type", "auto");
+
+        ExecutorService virtual = "pool".equals(type) ? null : newVirtualThreadExecutor();
+        if (virtual != null) {
+            this.executor = virtual;
+            this.description = "virtual threads";
+        } else {
+            if ("virtual".equals(type)) {
+                logger.warn("Virtual threads require Java 21 or later, using a thread pool instead");
+            }
+            int maxThreads = Math.max(1, config.getInt("executor.maxThreads", 200));
+            int queueCapacity = Math.max(1, config.getInt("executor.queueCapacity", 1000));
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), daemonThreads("film-request-"));
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.description = maxThreads + " pooled threads, queue of " + queueCapacity;
+        }
+
+        this.timeouts = new ScheduledThreadPoolExecutor(1, daemonThreads("request-timeout-"));
+        this.timeouts.setRemoveOnCancelPolicy(true);
+        logger.info("Request executor started with {}", description);
+    }
+
+    /*
+     * Provides a thread-safe way to access the shared executor, creating it on first use.
+     */
+    public static synchronized RequestExecutor getInstance() {
+        if (instance == null) {
+            instance = new RequestExecutor(AppConfig.getInstance());
+        }
+        return instance;
+    }
+
+    /*
+     * Stops accepting requests and shuts down the executor threads. Called when the application stops.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.executor.shutdown();
+            instance.timeouts.shutdownNow();
+            try {
+                if (!instance.executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    instance.executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                instance.executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            instance = null;
+        }
+    }
+
+    /*
+     * Handles a request asynchronously on the executor. Falls back to handling it on the calling thread
+     * when the request cannot go asynchronous (a filter in the chain does not support it) or is a HEAD request.
+     * @param request The servlet request.
+     * @param response The servlet response.
+     * @param handler The code that produces the response.
+     */
+    public void dispatch(HttpServletRequest request, HttpServletResponse response, Handler handler)
+            throws ServletException, IOException {
+        if (!request.isAsyncSupported() || "HEAD".equals(request.getMethod())) {
+            handler.handle(request, response);
+            return;
+        }
+
+        TimeoutGuardResponse guarded = new TimeoutGuardResponse(response);
+        AsyncContext asyncContext = request.startAsync(request, guarded);
+        // Timeouts are enforced by this class, so the container never completes the request behind the worker's back.
+        asyncContext.setTimeout(0);
+
+        // The thread running the handler, while it runs; the timeout interrupts it under the same lock.
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        ScheduledFuture<?> timeout = null;
+        if (timeoutMillis > 0) {
+            timeout = timeouts.schedule(() -> {
+                try {
+                    if (guarded.timeOut(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Request timed out")) {
+                        Metrics.getInstance().recordError(ErrorType.TIMEOUT);
+                        logger.warn("Request timed out after {}ms: {} {}", timeoutMillis, request.getMethod(),
+                                request.getRequestURI());
+                        // The worker completes the request once it has stopped using it.
+                        interrupt(worker);
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    logger.warn("Error sending timeout response: {}", e.getMessage());
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        ScheduledFuture<?> pendingTimeout = timeout;
+
+        try {
+            executor.execute(() -> {
+                synchronized (worker) {
+                    worker.set(Thread.currentThread());
+                }
+                try {
+                    // A request that timed out while queued is not handled at all.
+                    if (!guarded.isTimedOut()) {
+                        handler.handle(request, guarded);
+                    }
+                } catch (Exception e) {
+                    if (guarded.isTimedOut()) {
+                        // Interrupted by the timeout, which has already answered the request.
+                        logger.debug("Timed-out request stopped: {}", e.getMessage());
+                    } else {
+                        logger.error("Error handling request: " + e.getMessage(), e);
+                    }
+                    if (!guarded.isCommitted()) {
+                        try {
+                            guarded.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                                    "Error processing request: " + e.getMessage());
+                        } catch (IOException ignored) {
+                            // The request timed out or the client went away.
+                        }
+                    }
+                } finally {
+                    if (pendingTimeout != null) {
+                        pendingTimeout.cancel(false);
+                    }
+                    synchronized (worker) {
+                        worker.set(null);
+                        // Clear an interrupt from the timeout so it does not leak into the thread's next task.
+                        Thread.interrupted();
+                    }
+                    // If the timeout got there first it has already sent the response.
+                    if (guarded.claim()) {
+                        closeQuietly(guarded);
+                    }
+                    asyncContext.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (pendingTimeout != null) {
+                pendingTimeout.cancel(false);
+            }
+            Metrics.getInstance().recordError(ErrorType.REJECTED);
+            logger.warn("Request rejected, executor is saturated: {}", request.getRequestURI());
+            if (guarded.timeOut(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is busy")) {
+                asyncContext.complete();
+            }
+        }
+    }
+
+    /*
+     * Interrupts a timed-out worker, if it is running, so it gives up waiting for a pooled connection and,
+     * on virtual threads, abandons a blocking query. Statements are also bounded by pool.queryTimeoutSeconds
+     * for drivers that ignore interrupts.
+     */
+    private static void interrupt(AtomicReference<Thread> worker) {
+        synchronized (worker) {
+            Thread thread = worker.get();
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /*
+     * Closes the response body, which also lets wrapping filters such as CompressionFilter finish their output.
+     */
+    private static void closeQuietly(HttpServletResponse response) {
+        try {
+            response.getOutputStream().close();
+        } catch (IllegalStateException e) {
+            // The handler used getWriter() instead.
+            try {
+                response.getWriter().close();
+            } catch (IOException | IllegalStateException ignored) {
+                // Nothing more can be done.
+            }
+        } catch (IOException e) {
+            // Flushing the rest of the body failed, almost always because the client disconnected.
+            Metrics.getInstance().recordError(ErrorType.CLIENT_ABORT);
+            logger.debug("Error closing response: {}", e.getMessage());
+        }
+    }
+
+    /*
+     * Creates a virtual-thread-per-task executor when the runtime supports it (Java 21 or later).
+     * Looked up reflectively so the application still builds and runs on Java 17.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
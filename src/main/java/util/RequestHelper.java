@@ -29,4 +29,42 @@ public class RequestHelper {
         }
         return searchParams;
     }
-}
\ No newline at end of file
+
+    /*
+     * Reads the "limit" parameter for paged endpoints.
+     * Defaults to pagination.defaultLimit and is capped at pagination.maxLimit, so no request can return the whole table.
+     *
+     * @param request The HttpServletRequest from which to read the parameter.
+     * @return The number of films to return on the page.
+     * @throws IllegalArgumentException If the parameter is not a positive integer.
+     */
+    public int extractLimit(HttpServletRequest request) {
+        AppConfig config = AppConfig.getInstance();
+        int maxLimit = config.getInt("pagination.maxLimit", 1000);
+        String value = request.getParameter("limit");
+        if (value == null || value.isBlank()) {
+            return Math.min(config.getInt("pagination.defaultLimit", 100), maxLimit);
+        }
+        int limit;
+        try {
+            limit = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid limit: " + value);
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        return Math.min(limit, maxLimit);
+    }
+
+    /*
+     * Reads the "after" cursor for paged endpoints.
+     *
+     * @param request The HttpServletRequest from which to read the parameter.
+     * @return The ID the page starts after, or 0 for the first page.
+     * @throws IllegalArgumentException If the cursor is malformed.
+     */
+    public int extractAfterId(HttpServletRequest request) {
+        return PageCursor.decode(request.getParameter("after"));
+    }
+}
@@ -1,56 +1,266 @@
 package util;
 
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
 
+import logging.Logger;
+import models.BatchOperation;
+import models.BatchOperations;
 import models.Film;
 import models.Films;
 
 /*
  * Utility class for parsing the request bodies and converting content between formats
  * depending on the content type or desired response format specified.
+ * Bodies are parsed straight from the request stream, never read into a String first, and are cut off
+ * with RequestBodyTooLargeException once they exceed request.maxBodyBytes (bulk.maxBodyBytes for bulk
+ * bodies), checked against Content-Length up front and counted while reading.
  */
 public class RequestParser {
+    private static final Logger logger = Logger.getLogger(RequestParser.class);
+
+    private final long maxBodyBytes = AppConfig.getInstance().getLong("request.maxBodyBytes", 1024 * 1024);
+    private final long maxBulkBodyBytes = AppConfig.getInstance().getLong("bulk.maxBodyBytes",
+            256L * 1024 * 1024);
 
     /*
      * Parses the request body based on its content type and converts it to a Film object.
      * @param request The HTTP Servlet request from which to read the request body.
      * @param contentType The content type of the request, used to determine the parsing strategy.
      * @return A Film object parsed from the request body, or null if parsing fails.
+     * @throws RequestBodyTooLargeException If the body is larger than request.maxBodyBytes.
      * @throws IOException If there is an error reading from the request.
      */
     public Film parseRequestBody(HttpServletRequest request, String contentType) throws IOException {
-    	// Read the entire request body into a single string.
-    	String requestData = request.getReader().lines().collect(Collectors.joining(System.lineSeparator()));
-        System.out.println("Received request data: " + requestData);
-
-        if (contentType.contains("application/json")) {
+        if (contentType.contains("application/cbor")) {
+            // Binary body: decoded straight from the byte stream.
             try {
-            	// Parse JSON to a Film object.
-                Film film = JsonConverter.getInstance().convertFromJson(requestData, Film.class);
+                return CborConverter.getInstance().readCbor(openBody(request, maxBodyBytes), Film.class);
+            } catch (IOException e) {
+                rethrowIfTooLarge(e);
+                logger.debug("CBOR parsing error: {}", e.getMessage());
+                return null;
+            }
+        }
+        if (!contentType.contains("application/json") && !contentType.contains("application/xml")
+                && !contentType.contains("text/plain") && !contentType.contains("application/x-yaml")) {
+            return null;
+        }
+
+        Reader in = openReader(request, maxBodyBytes);
+        StringBuilder logged = logger.isBodyLoggingEnabled() ? new StringBuilder() : null;
+        if (logged != null) {
+            in = new CopyingReader(in, logged);
+        }
+        try {
+            if (contentType.contains("application/json")) {
+                // Parse JSON to a Film object.
+                Film film = JsonConverter.getInstance().readJson(in, Film.class);
                 if (film == null) {
-                    System.err.println("Failed to parse JSON data into Film object");
+                    logger.debug("Failed to parse JSON data into Film object");
                 }
                 return film;
-            } catch (Exception e) {
-                System.err.println("JSON parsing error: " + e.getMessage());
+            } else if (contentType.contains("application/xml")) {
+                // Parse XML to a Film object.
+                return XmlConverter.getInstance().readXml(in, Film.class);
+            } else if (contentType.contains("text/plain")) {
+                // Convert plain text to a Film object.
+                return TextConverter.getInstance().readFilm(in);
+            } else {
+                // Convert YAML to a Film object.
+                return YamlConverter.getInstance().readFilm(in);
+            }
+        } catch (IOException e) {
+            rethrowIfTooLarge(e);
+            logger.debug("Request body parsing error: {}", e.getMessage());
+            return null;
+        } finally {
+            if (logged != null) {
+                logger.body("Received request data", logged);
             }
-        } else if (contentType.contains("application/xml")) {
-        	// Parse XML to a Film object.
-            return XmlConverter.getInstance().convertFromXml(requestData, Film.class);
-        } else if (contentType.contains("text/plain")) {
-        	// Convert plain text to a Film object.
-            return TextConverter.getInstance().convertFromText(requestData);
-        } else if (contentType.contains("application/x-yaml")) {
-        	// Convert YAML to a Film object.
-            return YamlConverter.getInstance().convertFromYaml(requestData);
+        }
+    }
+
+    /*
+     * Opens a streaming reader over a request body holding many films, for bulk operations.
+     * Accepts a JSON array, a <films> XML document, multi-document YAML, "---"-separated text records
+     * or a CBOR array.
+     * @param request The HTTP Servlet request from which to read the request body.
+     * @param contentType The content type of the request, used to determine the parsing strategy.
+     * A body that passes bulk.maxBodyBytes part way through makes the reader's next() throw
+     * RequestBodyTooLargeException, whatever the parser wrapped it in.
+     * @return A FilmRecordReader over the films in the body, or null if the content type is not supported.
+     * @throws RequestBodyTooLargeException If the Content-Length is larger than bulk.maxBodyBytes, or the
+     * first record already passes it.
+     * @throws IOException If there is an error reading from the request or the body is malformed.
+     */
+    public FilmRecordReader openFilmRecords(HttpServletRequest request, String contentType) throws IOException {
+        if (contentType == null) {
+            return null;
+        }
+        FilmRecordReader records;
+        try {
+            if (contentType.contains("application/json")) {
+                records = JsonConverter.getInstance().newRecordReader(openReader(request, maxBulkBodyBytes));
+            } else if (contentType.contains("application/xml")) {
+                records = XmlConverter.getInstance().newRecordReader(openReader(request, maxBulkBodyBytes));
+            } else if (contentType.contains("text/plain")) {
+                records = TextConverter.getInstance().newRecordReader(openReader(request, maxBulkBodyBytes));
+            } else if (contentType.contains("application/x-yaml")) {
+                records = YamlConverter.getInstance().newRecordReader(openReader(request, maxBulkBodyBytes));
+            } else if (contentType.contains("application/cbor")) {
+                records = CborConverter.getInstance().newRecordReader(openBody(request, maxBulkBodyBytes));
+            } else {
+                return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            rethrowIfTooLarge(e);
+            throw e;
+        }
+        return new FilmRecordReader() {
+            @Override
+            public boolean next() throws IOException {
+                try {
+                    return records.next();
+                } catch (IOException | RuntimeException e) {
+                    rethrowIfTooLarge(e);
+                    throw e;
+                }
+            }
+
+            @Override
+            public Film getFilm() {
+                return records.getFilm();
+            }
+
+            @Override
+            public String getError() {
+                return records.getError();
+            }
+        };
+    }
+
+    /*
+     * Parses the ordered operations of a batch request: a JSON array, an <operations> XML document,
+     * multi-document YAML with one operation per document, or a CBOR array.
+     * @param request The HTTP Servlet request from which to read the request body.
+     * @param contentType The content type of the request, used to determine the parsing strategy.
+     * @return The operations in request order, or null if the content type is not supported.
+     * @throws RequestBodyTooLargeException If the body is larger than request.maxBodyBytes.
+     * @throws IOException If there is an error reading from the request or the body is malformed.
+     */
+    public List<BatchOperation> parseBatchOperations(HttpServletRequest request, String contentType)
+            throws IOException {
+        if (contentType == null) {
+            return null;
+        }
+        try {
+            if (contentType.contains("application/json")) {
+                BatchOperation[] operations = JsonConverter.getInstance().readJson(
+                        openReader(request, maxBodyBytes), BatchOperation[].class);
+                return operations == null ? Collections.emptyList() : Arrays.asList(operations);
+            } else if (contentType.contains("application/xml")) {
+                BatchOperations operations = XmlConverter.getInstance().readXml(openReader(request, maxBodyBytes),
+                        BatchOperations.class);
+                return operations.getOperations() == null ? Collections.emptyList() : operations.getOperations();
+            } else if (contentType.contains("application/x-yaml")) {
+                return YamlConverter.getInstance().readAll(openReader(request, maxBodyBytes), BatchOperation.class);
+            } else if (contentType.contains("application/cbor")) {
+                BatchOperation[] operations = CborConverter.getInstance().readCbor(openBody(request, maxBodyBytes),
+                        BatchOperation[].class);
+                return operations == null ? Collections.emptyList() : Arrays.asList(operations);
+            }
+        } catch (IOException e) {
+            rethrowIfTooLarge(e);
+            throw e;
         }
         return null;
     }
 
+    /*
+     * Opens the request body as a byte stream that fails once more than limit bytes have been read.
+     * A limit of 0 or less means no limit.
+     * @throws RequestBodyTooLargeException If the declared Content-Length is already over the limit.
+     */
+    private InputStream openBody(HttpServletRequest request, long limit) throws IOException {
+        if (limit <= 0) {
+            return request.getInputStream();
+        }
+        if (request.getContentLengthLong() > limit) {
+            throw new RequestBodyTooLargeException(limit);
+        }
+        return new LimitedInputStream(request.getInputStream(), limit);
+    }
+
+    /*
+     * Opens the request body as characters, decoded with the request's charset as getReader() would,
+     * on top of the size-limited byte stream.
+     */
+    private Reader openReader(HttpServletRequest request, long limit) throws IOException {
+        String encoding = request.getCharacterEncoding();
+        Charset charset;
+        try {
+            charset = encoding == null ? StandardCharsets.ISO_8859_1 : Charset.forName(encoding);
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedEncodingException(encoding);
+        }
+        return new InputStreamReader(openBody(request, limit), charset);
+    }
+
+    /*
+     * Parsers wrap the exceptions of the stream they read from, so the limit being hit can surface as the
+     * cause of a parse error; it is thrown as itself, so it is answered with 413 rather than 400.
+     */
+    private static void rethrowIfTooLarge(Throwable e) throws RequestBodyTooLargeException {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RequestBodyTooLargeException) {
+                throw (RequestBodyTooLargeException) cause;
+            }
+        }
+    }
+
+    /*
+     * Copies the characters a parser reads into a builder, so the body can be logged once it is parsed.
+     * Only used when body logging is enabled.
+     */
+    private static final class CopyingReader extends FilterReader {
+        private final StringBuilder copy;
+
+        CopyingReader(Reader in, StringBuilder copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = in.read();
+            if (c >= 0) {
+                copy.append((char) c);
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int n = in.read(cbuf, off, len);
+            if (n > 0) {
+                copy.append(cbuf, off, n);
+            }
+            return n;
+        }
+    }
+
     /*
      * Serialises the provided data into the specified format.
      * @param data The data object to be serialised.
@@ -0,0 +1,171 @@
+package util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Bounded cache of encoded list and search responses, keyed by route, normalised query, format and field
+ * selection, so a repeated request is answered with one copy of the stored bytes instead of a query and
+ * a serialisation. Each entry remembers the catalog tag it was built under and is only served while that
+ * tag is current; FilmService also clears the cache on every write, so memory is not held by stale pages.
+ * The total size of the stored bodies is capped, evicting least-recently-used entries first, and bodies
+ * larger than the per-entry limit are never stored.
+ */
+public class ResponseCache {
+    private static ResponseCache instance;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    // Access-ordered, so iteration starts at the least recently used entry.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Private constructor that reads the cache settings from config.properties.
+    private ResponseCache(AppConfig config) {
+        this.enabled = config.getBoolean("cache.response.enabled", true);
+        this.maxBytes = Math.max(0, config.getLong("cache.response.maxBytes", 16L * 1024 * 1024));
+        this.maxEntryBytes = (int) Math.min(maxBytes, Math.max(0, config.getInt("cache.response.maxEntryBytes",
+                1024 * 1024)));
+    }
+
+    /*
+     * Provides a thread-safe way to access the shared cache.
+     */
+    public static synchronized ResponseCache getInstance() {
+        if (instance == null) {
+            instance = new ResponseCache(AppConfig.getInstance());
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled && maxEntryBytes > 0;
+    }
+
+    /*
+     * Returns the largest body that will be stored, so writers can stop capturing once a response exceeds it.
+     */
+    public int getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /*
+     * Returns the stored body for a key, if it was built under the given catalog tag.
+     * @param key The request's cache key.
+     * @param tag The current catalog tag.
+     * @return The encoded body, which must not be modified, or null on a miss.
+     */
+    public byte[] get(String key, String tag) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.tag.equals(tag)) {
+                    hits.incrementAndGet();
+                    return entry.body;
+                }
+                // Built before a write that this cache has not yet been cleared for.
+                remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /*
+     * Stores an encoded body built under the given catalog tag; bodies over the entry limit are ignored.
+     * A body whose tag went stale while it was being written is stored but never served, since lookups
+     * compare tags, and is replaced or evicted like any other entry.
+     */
+    public void put(String key, String tag, byte[] body) {
+        if (!isEnabled() || body.length > maxEntryBytes) {
+            return;
+        }
+        synchronized (entries) {
+            remove(key);
+            entries.put(key, new Entry(tag, body));
+            bytes += body.length;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().body.length;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /*
+     * Removes every stored response. Called after each write to the catalog.
+     */
+    public void clear() {
+        synchronized (entries) {
+            if (!entries.isEmpty()) {
+                entries.clear();
+                bytes = 0;
+            }
+        }
+        invalidations.incrementAndGet();
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.body.length;
+        }
+    }
+
+    /*
+     * Takes a point-in-time snapshot of the cache's counters.
+     */
+    public Statistics getStatistics() {
+        Statistics stats = new Statistics();
+        synchronized (entries) {
+            stats.size = entries.size();
+            stats.bytes = bytes;
+        }
+        stats.maxBytes = maxBytes;
+        stats.hits = hits.get();
+        stats.misses = misses.get();
+        stats.evictions = evictions.get();
+        stats.invalidations = invalidations.get();
+        return stats;
+    }
+
+    /*
+     * Snapshot of cache counters, suitable for exporting to monitoring.
+     */
+    public static class Statistics {
+        public int size;
+        public long bytes;
+        public long maxBytes;
+        public long hits;
+        public long misses;
+        public long evictions;
+        public long invalidations;
+
+        @Override
+        public String toString() {
+            return "size=" + size + ", bytes=" + bytes + "/" + maxBytes + ", hits=" + hits + ", misses=" + misses
+                    + ", evictions=" + evictions + ", invalidations=" + invalidations;
+        }
+    }
+
+    /*
+     * A stored response body and the catalog tag it was built under.
+     */
+    private static class Entry {
+        private final String tag;
+        private final byte[] body;
+
+        Entry(String tag, byte[] body) {
+            this.tag = tag;
+            this.body = body;
+        }
+    }
+}
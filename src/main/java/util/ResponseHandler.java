@@ -1,48 +1,506 @@
 package util;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import metrics.Format;
+import metrics.Metrics;
+import metrics.Route;
 import models.Film;
-import models.Films;
+import models.FilmFields;
 
 /*
  * Utility class that handles responses for servlet, managing serialisation based on request headers and parameters,
  * and writing the formatted response to HttpServletResponse.
  */
 public class ResponseHandler {
+    private final int bufferSize = AppConfig.getInstance().getInt("response.bufferSize", 8192);
+    private final Metrics metrics = Metrics.getInstance();
+    private final ResponseCache responseCache = ResponseCache.getInstance();
 
     /*
      * Writes a serialised data response to the HttpServletResponse object,
      * formatting data based on the request's indicated preference (format parameter or Accept header).
-     * Defaults to JSON if no format is specified.
+     * Defaults to JSON if no format is specified. The data is serialised straight into the
+     * response stream, lists element by element, so no intermediate String is built.
+     * Films and lists of films carry only the fields named by the "fields" parameter.
      * @param request The HttpServletRequest which may contain format specification.
      * @param response The HttpServletResponse to which the data is to be written.
      * @param data The data object that needs to be serialised and written to the response.
      * @throws IOException If there is an error writing the response.
      */
+    @SuppressWarnings("unchecked")
     public void writeResponse(HttpServletRequest request, HttpServletResponse response, Object data)
             throws IOException {
         String format = determineFormat(request);
-        String serializedData = serializeData(data, format);
-        response.setContentType(getResponseType(format) + "; charset=UTF-8");
-        response.getWriter().write(serializedData);
-        System.out.println("Response written: " + serializedData); // Log response data
+        response.setContentType(getContentType(format));
+        if (data instanceof List) {
+            FilmStreamWriter writer = openFilmStream(request, response);
+            for (Film film : (List<Film>) data) {
+                writer.write(film);
+            }
+            writer.finish();
+            return;
+        }
+
+        CountingOutputStream body = new CountingOutputStream(response.getOutputStream());
+        long start = System.nanoTime();
+        FilmFields fields = determineFields(request);
+        if ("cbor".equals(format)) {
+            OutputStream out = openBinary(body);
+            if (data instanceof Film) {
+                CborConverter.getInstance().writeFilm((Film) data, fields, out);
+            } else {
+                CborConverter.getInstance().writeCbor(data, out);
+            }
+            out.flush();
+        } else {
+            Writer out = openWriter(body);
+            if (data instanceof Film && !fields.isAll()) {
+                writeFilm((Film) data, fields, format, out);
+            } else {
+                writeObject(data, format, out);
+            }
+            out.flush();
+        }
+        recordResponse(request, format, System.nanoTime() - start, body.getCount());
+    }
+
+    private void writeObject(Object data, String format, Writer out) throws IOException {
+        switch (format) {
+            case "xml":
+                XmlConverter.getInstance().writeXml(data, out);
+                break;
+            case "text":
+                TextConverter.getInstance().writeText(data, out);
+                break;
+            case "yaml":
+                YamlConverter.getInstance().writeYaml(data, out);
+                break;
+            case "yaml-stream":
+                YamlConverter.getInstance().writeDocument(data, FilmFields.ALL, out);
+                break;
+            default:
+                JsonConverter.getInstance().writeJson(data, out);
+                break;
+        }
+    }
+
+    private void writeFilm(Film film, FilmFields fields, String format, Writer out) throws IOException {
+        switch (format) {
+            case "xml":
+                XmlConverter.getInstance().writeFilm(film, fields, out);
+                break;
+            case "text":
+                TextConverter.getInstance().writeFilm(film, fields, out);
+                break;
+            case "yaml":
+                YamlConverter.getInstance().writeFilm(film, fields, out);
+                break;
+            case "yaml-stream":
+                YamlConverter.getInstance().writeDocument(film, fields, out);
+                break;
+            default:
+                JsonConverter.getInstance().writeFilm(film, fields, out);
+                break;
+        }
+    }
+
+    /*
+     * Prepares the response for a list of films that will be supplied one at a time, so the list
+     * never has to be held in memory. Every format writes each film to the response stream as
+     * soon as it is supplied, through a buffer of bounded size.
+     * @param request The HttpServletRequest which may contain format specification.
+     * @param response The HttpServletResponse to which the films are to be written.
+     * @return A FilmStreamWriter that must be finished once the last film has been written.
+     * @throws IOException If there is an error writing the response.
+     */
+    public FilmStreamWriter openFilmStream(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String format = determineFormat(request);
+        response.setContentType(getContentType(format));
+        FilmFields fields = determineFields(request);
+        CountingOutputStream body = new CountingOutputStream(response.getOutputStream());
+        FilmStreamWriter writer;
+        switch (format) {
+            case "xml":
+                writer = XmlConverter.getInstance().newStreamWriter(openWriter(body), fields);
+                break;
+            case "text":
+                writer = TextConverter.getInstance().newStreamWriter(openWriter(body), fields);
+                break;
+            case "yaml":
+                writer = YamlConverter.getInstance().newStreamWriter(openWriter(body), fields);
+                break;
+            case "yaml-stream":
+                writer = YamlConverter.getInstance().newDocumentStreamWriter(openWriter(body), fields);
+                break;
+            case "cbor":
+                writer = CborConverter.getInstance().newStreamWriter(openBinary(body), fields);
+                break;
+            default:
+                writer = JsonConverter.getInstance().newStreamWriter(openWriter(body), fields);
+                break;
+        }
+        return new MeteredStreamWriter(writer, request, format, body);
+    }
+
+    /*
+     * Prepares a paged response for films supplied in ID order, wrapped in an envelope that carries
+     * the cursor of the next page. The caller supplies up to limit + 1 films: the extra film is not
+     * written, it only signals that another page exists. The response body is opened by the first film
+     * written, so the request can still time out while the films are being queried.
+     * @param request The HttpServletRequest which may contain format specification.
+     * @param response The HttpServletResponse to which the page is to be written.
+     * @param limit The maximum number of films on the page.
+     * @return A FilmStreamWriter that must be finished once the last film has been written.
+     * @throws IOException If there is an error writing the response.
+     */
+    public FilmStreamWriter openFilmPage(HttpServletRequest request, HttpServletResponse response, int limit)
+            throws IOException {
+        return openFilmPage(request, response, limit, null);
+    }
+
+    /*
+     * Prepares a paged response like openFilmPage, and also stores the encoded page in the response cache
+     * under the given catalog tag once it is finished, unless it outgrows the cache's entry limit.
+     * @param versionTag The catalog tag read before the films were loaded.
+     */
+    public FilmStreamWriter openCachedFilmPage(HttpServletRequest request, HttpServletResponse response, int limit,
+            String versionTag) throws IOException {
+        return openFilmPage(request, response, limit, responseCache.isEnabled() ? versionTag : null);
+    }
+
+    private FilmStreamWriter openFilmPage(HttpServletRequest request, HttpServletResponse response, int limit,
+            String versionTag) throws IOException {
+        String format = determineFormat(request);
+        response.setContentType(getContentType(format));
+        FilmFields fields = determineFields(request);
+
+        // The body is only opened once the first film arrives (or the page is finished empty), so a slow query
+        // has not yet claimed the response and can still be answered by the request timeout.
+        return new FilmStreamWriter() {
+            private CapturingOutputStream capture;
+            private FilmStreamWriter metered;
+            private int count;
+            private int lastId;
+            private boolean hasMore;
+
+            @Override
+            public void write(Film film) throws IOException {
+                if (count == limit) {
+                    hasMore = true;
+                    return;
+                }
+                open().write(film);
+                lastId = film.getId();
+                count++;
+            }
+
+            @Override
+            public void finish() throws IOException {
+                FilmStreamWriter page = open();
+                page.setNextCursor(hasMore ? PageCursor.encode(lastId) : null);
+                page.finish();
+                if (capture != null && capture.isComplete()) {
+                    responseCache.put(cacheKey(request), versionTag, capture.toByteArray());
+                }
+            }
+
+            private FilmStreamWriter open() throws IOException {
+                if (metered == null) {
+                    capture = versionTag == null ? null
+                            : new CapturingOutputStream(response.getOutputStream(), responseCache.getMaxEntryBytes());
+                    CountingOutputStream body = new CountingOutputStream(
+                            capture != null ? capture : response.getOutputStream());
+                    metered = new MeteredStreamWriter(newPageWriter(format, fields, body), request, format, body);
+                }
+                return metered;
+            }
+        };
+    }
+
+    private FilmStreamWriter newPageWriter(String format, FilmFields fields, OutputStream body) throws IOException {
+        switch (format) {
+            case "xml":
+                return XmlConverter.getInstance().newPageWriter(openWriter(body), fields);
+            case "text":
+                return TextConverter.getInstance().newPageWriter(openWriter(body), fields);
+            case "yaml":
+                return YamlConverter.getInstance().newPageWriter(openWriter(body), fields);
+            case "yaml-stream":
+                return YamlConverter.getInstance().newDocumentPageWriter(openWriter(body), fields);
+            case "cbor":
+                return CborConverter.getInstance().newPageWriter(openBinary(body), fields);
+            default:
+                return JsonConverter.getInstance().newPageWriter(openWriter(body), fields);
+        }
+    }
+
+    /*
+     * Answers a list or search request from the response cache, if a page encoded under the current catalog
+     * tag is stored for it. The stored bytes are written in one call with their exact Content-Length.
+     * @param request The HttpServletRequest whose route, query, format and fields select the stored page.
+     * @param response The HttpServletResponse to which the page is written.
+     * @param versionTag The current catalog tag.
+     * @return true if the response has been written from the cache.
+     * @throws IOException If there is an error writing the response.
+     */
+    public boolean writeCachedResponse(HttpServletRequest request, HttpServletResponse response, String versionTag)
+            throws IOException {
+        if (!responseCache.isEnabled()) {
+            return false;
+        }
+        byte[] cached = responseCache.get(cacheKey(request), versionTag);
+        if (cached == null) {
+            return false;
+        }
+        response.setContentType(getContentType(determineFormat(request)));
+        response.setContentLength(cached.length);
+        response.getOutputStream().write(cached);
+        metrics.recordResponseBytes(Route.of(request.getPathInfo()), cached.length);
+        return true;
+    }
+
+    /*
+     * Builds the response cache key: the route, the query parameters sorted by name with the format and
+     * fields parameters taken out, and the negotiated format and field selection, so requests that differ
+     * only in parameter order, or name the format by parameter or by Accept header, share one entry.
+     */
+    private String cacheKey(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder();
+        key.append(request.getPathInfo() == null ? "/" : request.getPathInfo()).append('?');
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            String name = parameter.getKey();
+            if (name.equals("format") || name.equals("fields")) {
+                continue;
+            }
+            for (String value : parameter.getValue()) {
+                key.append(URLEncoder.encode(name, StandardCharsets.UTF_8)).append('=')
+                        .append(URLEncoder.encode(value, StandardCharsets.UTF_8)).append('&');
+            }
+        }
+        return key.append('|').append(determineFormat(request)).append('|').append(determineFields(request))
+                .toString();
+    }
+
+    /*
+     * Sets a strong ETag, built from a version tag and the response format, on a GET response and answers
+     * 304 Not Modified if the request's If-None-Match already names it. Call before loading any data, so
+     * an unchanged resource is revalidated without touching the database.
+     * @param request The HttpServletRequest that may carry If-None-Match.
+     * @param response The HttpServletResponse to which the ETag and, if matched, the 304 status are written.
+     * @param versionTag A tag that changes whenever the data behind the response changes.
+     * @return true if a 304 response has been sent and nothing more should be written.
+     */
+    public boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, String versionTag) {
+        // Include the format, since the same URL can return different representations depending on Accept,
+        // and the field selection, so projected and full representations are never confused.
+        FilmFields fields = determineFields(request);
+        String etag = "\"" + versionTag + "-" + determineFormat(request)
+                + (fields.isAll() ? "" : "-" + fields) + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "no-cache");
+        response.addHeader("Vary", "Accept");
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null && matchesETag(ifNoneMatch, etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * Checks an If-None-Match header value against an ETag using the weak comparison RFC 7232 requires.
+     */
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*")) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Wraps the response's byte stream in a UTF-8 writer with a bounded buffer.
+     */
+    private Writer openWriter(OutputStream body) {
+        return new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), bufferSize);
+    }
+
+    /*
+     * Wraps the response's byte stream in a bounded buffer for binary formats.
+     */
+    private OutputStream openBinary(OutputStream body) {
+        return new BufferedOutputStream(body, bufferSize);
+    }
+
+    /*
+     * Records the serialisation time and body size of a completed response.
+     */
+    private void recordResponse(HttpServletRequest request, String format, long serializationNanos, long bytes) {
+        metrics.recordSerialization(Format.of(format), serializationNanos);
+        metrics.recordResponseBytes(Route.of(request.getPathInfo()), bytes);
+    }
+
+    /*
+     * Counts the bytes written to the response body, before any compression applied further down.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    /*
+     * Copies the bytes written to the response into a buffer for the response cache, giving up once
+     * more than the entry limit has been written so an oversized page is never held in memory.
+     */
+    private static final class CapturingOutputStream extends FilterOutputStream {
+        private final int limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CapturingOutputStream(OutputStream out, int limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkLimit();
+            }
+        }
+
+        private void checkLimit() {
+            if (copy.size() > limit) {
+                copy = null;
+            }
+        }
+
+        boolean isComplete() {
+            return copy != null;
+        }
+
+        byte[] toByteArray() {
+            return copy.toByteArray();
+        }
+    }
+
+    /*
+     * Times the serialisation of a streamed list. Only the time spent inside write() and finish() is counted,
+     * not the time the caller spends fetching the next film, and the total is recorded once the list is finished.
+     */
+    private final class MeteredStreamWriter implements FilmStreamWriter {
+        private final FilmStreamWriter delegate;
+        private final HttpServletRequest request;
+        private final String format;
+        private final CountingOutputStream body;
+        private long nanos;
+
+        MeteredStreamWriter(FilmStreamWriter delegate, HttpServletRequest request, String format,
+                CountingOutputStream body) {
+            this.delegate = delegate;
+            this.request = request;
+            this.format = format;
+            this.body = body;
+        }
+
+        @Override
+        public void write(Film film) throws IOException {
+            long start = System.nanoTime();
+            delegate.write(film);
+            nanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public void setNextCursor(String cursor) {
+            delegate.setNextCursor(cursor);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            long start = System.nanoTime();
+            delegate.finish();
+            nanos += System.nanoTime() - start;
+            recordResponse(request, format, nanos, body.getCount());
+        }
     }
 
     /*
      * Determines the desired response format based on URL parameters or the "Accept" header.
-     * Defaults to JSON if no format is specified.
+     * Defaults to JSON if no format is specified or the format parameter names an unknown format, so the
+     * result is always the format the response is written in. "yaml-stream", which writes one YAML document
+     * per film, can only be chosen with the format parameter, as it shares its media type with "yaml".
      * @param request The HttpServletRequest which may contain format specification.
      * @return The identified format as a String.
      */
     public String determineFormat(HttpServletRequest request) {
         String formatParam = request.getParameter("format");
         if (formatParam != null) {
-            return formatParam;
+            switch (formatParam) {
+                case "xml":
+                case "text":
+                case "yaml":
+                case "yaml-stream":
+                case "cbor":
+                    return formatParam;
+                default:
+                    // Unknown values share the JSON entry in the response cache and the JSON ETag.
+                    return "json";
+            }
         }
         String acceptHeader = request.getHeader("Accept");
         if (acceptHeader != null) {
@@ -52,11 +510,23 @@ public class ResponseHandler {
                 return "text";
             } else if (acceptHeader.contains("application/x-yaml")) {
                 return "yaml";
+            } else if (acceptHeader.contains("application/cbor")) {
+                return "cbor";
             }
         }
         return "json"; // Default to JSON if no format is specified or recognised
     }
 
+    /*
+     * Determines which film fields to write from the "fields" parameter, e.g. fields=title,year.
+     * @param request The HttpServletRequest which may contain a field selection.
+     * @return The selected fields, or FilmFields.ALL if the parameter is absent.
+     * @throws IllegalArgumentException If the parameter names an unknown field.
+     */
+    public FilmFields determineFields(HttpServletRequest request) {
+        return FilmFields.parse(request.getParameter("fields"));
+    }
+
     /*
      * Returns the MIME type associated with the specified format, for use in setting the Content-Type header.
      * @param format The desired response format.
@@ -69,34 +539,23 @@ public class ResponseHandler {
         case "text":
             return "text/plain";
         case "yaml":
+        case "yaml-stream":
             return "application/x-yaml";
+        case "cbor":
+            return "application/cbor";
         default:
             return "application/json";
         }
     }
 
     /*
-     * Serialises the given data to the specified format, handling conversion exceptions.
-     * @param data The data to be serialised (can be a list or a single object).
-     * @param format The serialisation format ("xml", "json", "text", "yaml").
-     * @return A string of the serialised data.
+     * Returns the full Content-Type header for the specified format: text formats carry charset=UTF-8,
+     * binary formats carry no charset.
+     * @param format The desired response format.
+     * @return The Content-Type header value.
      */
-    @SuppressWarnings("unchecked")
-	private String serializeData(Object data, String format) {
-        try {
-            switch (format) {
-                case "xml":
-                    return XmlConverter.getInstance().convertToXml(data instanceof List ? new Films((List<Film>) data) : data);
-                case "text":
-                    return TextConverter.getInstance().convertToText(data);
-                case "yaml":
-                    return YamlConverter.getInstance().convertToYaml(data);
-                default:
-                    return JsonConverter.getInstance().convertToJson(data);
-            }
-        } catch (Exception e) {
-            System.err.println("Serialization error for format " + format + ": " + e);
-            return null;
-        }
+    public String getContentType(String format) {
+        String mimeType = getResponseType(format);
+        return "cbor".equals(format) ? mimeType : mimeType + "; charset=UTF-8";
     }
-}
\ No newline at end of file
+}
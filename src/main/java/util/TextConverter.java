@@ -1,16 +1,28 @@
 package util;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.List;
 
+import logging.Logger;
 import models.Film;
+import models.FilmFields;
 
 /*
  * Utility class to convert Film objects to and from plain text format.
+ * Records are appended field by field into a StringBuilder, with numbers appended as digits, and streamed
+ * records are copied to the Writer through one reusable builder and char buffer per stream. Records are
+ * parsed in a single pass over the characters, allocating only the field values.
  * Implements the Singleton pattern to ensure that only one instance is used globally.
  */
 public class TextConverter {
 
     private static TextConverter instance = null;
+    private static final Logger logger = Logger.getLogger(TextConverter.class);
+
+    private static final String NEWLINE = System.lineSeparator();
+    private static final String SEPARATOR = "\n---\n";
 
  // Private constructor to restrict instantiation.
     private TextConverter() {}
@@ -37,62 +49,400 @@ public class TextConverter {
      */
     public String convertToText(Object object) {
         if (object instanceof Film) {
-            Film film = (Film) object;
-            return String.format("Id: %d%nTitle: %s%nYear: %d%nDirector: %s%nStars: %s%nReview: %s%n",
-                film.getId(),
-                film.getTitle(),
-                film.getYear(),
-                film.getDirector(),
-                film.getStars(),
-                film.getReview());
+            return convertToText((Film) object, FilmFields.ALL);
         } else if (object instanceof List<?>) {
             StringBuilder sb = new StringBuilder();
             List<?> list = (List<?>) object;
             for (Object item : list) {
-                sb.append(convertToText(item));
-                sb.append("\n---\n");
+                if (item instanceof Film) {
+                    appendFilm((Film) item, FilmFields.ALL, sb);
+                } else {
+                    sb.append(convertToText(item));
+                }
+                sb.append(SEPARATOR);
             }
             return sb.toString(); // Trims to remove the last separator
         }
         return object.toString(); // Uses Object's toString method as a fallback
     }
 
+    /*
+     * Converts a film to a text record holding only the selected fields, in the same order and layout
+     * as convertToText.
+     * @param film The film to convert.
+     * @param fields The fields to include; ALL gives the same record as convertToText.
+     * @return The text record.
+     */
+    public String convertToText(Film film, FilmFields fields) {
+        StringBuilder sb = new StringBuilder(256);
+        appendFilm(film, fields, sb);
+        return sb.toString();
+    }
+
+    /*
+     * Appends a film's text record, holding only the selected fields, to a builder.
+     * Missing values are written as "null", as String.format did.
+     */
+    private static void appendFilm(Film film, FilmFields fields, StringBuilder sb) {
+        sb.append("Id: ").append(film.getId()).append(NEWLINE);
+        if (fields.includes(FilmFields.Field.TITLE)) {
+            sb.append("Title: ").append(film.getTitle()).append(NEWLINE);
+        }
+        if (fields.includes(FilmFields.Field.YEAR)) {
+            sb.append("Year: ").append(film.getYear()).append(NEWLINE);
+        }
+        if (fields.includes(FilmFields.Field.DIRECTOR)) {
+            sb.append("Director: ").append(film.getDirector()).append(NEWLINE);
+        }
+        if (fields.includes(FilmFields.Field.STARS)) {
+            sb.append("Stars: ").append(film.getStars()).append(NEWLINE);
+        }
+        if (fields.includes(FilmFields.Field.REVIEW)) {
+            sb.append("Review: ").append(film.getReview()).append(NEWLINE);
+        }
+    }
+
+    /*
+     * Writes a single film as a text record holding only the selected fields.
+     * @param film The film to write.
+     * @param fields The fields to include.
+     * @param out The destination the text is written to.
+     * @throws IOException If there is an error writing to the output.
+     */
+    public void writeFilm(Film film, FilmFields fields, Writer out) throws IOException {
+        new RecordWriter(out, fields).write(film, false);
+        out.flush();
+    }
+
+    /*
+     * Writes the textual representation of an object directly to the given output.
+     * @param object The object to be converted to text.
+     * @param out The destination the text is written to.
+     * @throws IOException If there is an error writing to the output.
+     */
+    public void writeText(Object object, Writer out) throws IOException {
+        if (object instanceof List<?>) {
+            FilmStreamWriter writer = newStreamWriter(out);
+            for (Object item : (List<?>) object) {
+                if (item instanceof Film) {
+                    writer.write((Film) item);
+                } else {
+                    out.write(convertToText(item));
+                    out.write(SEPARATOR);
+                }
+            }
+            writer.finish();
+        } else {
+            out.write(convertToText(object));
+            out.flush();
+        }
+    }
+
+    /*
+     * Creates a writer that streams films as text records separated by "---" lines, one record at a time.
+     * @param out The destination the records are written to.
+     * @return A FilmStreamWriter producing the same output as convertToText on a list of films.
+     */
+    public FilmStreamWriter newStreamWriter(Writer out) {
+        return newStreamWriter(out, FilmFields.ALL);
+    }
+
+    /*
+     * Creates a writer that streams text records holding only the selected fields of each film.
+     */
+    public FilmStreamWriter newStreamWriter(Writer out, FilmFields fields) {
+        RecordWriter records = new RecordWriter(out, fields);
+        return new FilmStreamWriter() {
+            @Override
+            public void write(Film film) throws IOException {
+                records.write(film, true);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                out.flush();
+            }
+        };
+    }
+
+    /*
+     * Creates a writer that streams one page of films as text records, followed by a
+     * "Next-Cursor:" line unless it is the last page.
+     * @param out The destination the records are written to.
+     * @return A FilmStreamWriter for a paged response.
+     */
+    public FilmStreamWriter newPageWriter(Writer out) {
+        return newPageWriter(out, FilmFields.ALL);
+    }
+
+    /*
+     * Creates a writer that streams one page of text records holding only the selected fields of each film.
+     */
+    public FilmStreamWriter newPageWriter(Writer out, FilmFields fields) {
+        FilmStreamWriter records = newStreamWriter(out, fields);
+        return new FilmStreamWriter() {
+            private String nextCursor;
+
+            @Override
+            public void write(Film film) throws IOException {
+                records.write(film);
+            }
+
+            @Override
+            public void setNextCursor(String cursor) {
+                this.nextCursor = cursor;
+            }
+
+            @Override
+            public void finish() throws IOException {
+                if (nextCursor != null) {
+                    out.write("Next-Cursor: ");
+                    out.write(nextCursor);
+                    out.write('\n');
+                }
+                records.finish();
+            }
+        };
+    }
+
     /*
      * Parses a plain text string to reconstruct a Film object.
      * @param text The textual representation of a Film.
      * @return A Film object parsed from provided text.
      */
     public Film convertFromText(String text) {
+        return parseRecord(text, 0, text.length());
+    }
+
+    /*
+     * Reads a whole input as a single text record, as convertFromText does with a string.
+     * The input is copied in chunks into one builder and parsed from there, without building line Strings.
+     * @param in The input holding the record.
+     * @return A Film object parsed from the input.
+     * @throws IOException If the input cannot be read.
+     */
+    public Film readFilm(Reader in) throws IOException {
+        StringBuilder text = new StringBuilder(512);
+        char[] buffer = new char[2048];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            text.append(buffer, 0, n);
+        }
+        return parseRecord(text, 0, text.length());
+    }
+
+    /*
+     * Parses the "Key: value" lines of one record in a single pass. Keys are matched ignoring case and
+     * surrounding whitespace, values are trimmed, and lines without a colon or with an unknown key are ignored.
+     */
+    private static Film parseRecord(CharSequence text, int start, int end) {
         Film film = new Film();
-        String[] lines = text.split("\n");
-        for (String line : lines) {
-            int colonIndex = line.indexOf(':');
-            if (colonIndex != -1) {
-                String key = line.substring(0, colonIndex).trim().toLowerCase();
-                String value = line.substring(colonIndex + 1).trim();
-                switch(key) {
-                    case "title":
-                        film.setTitle(value);
-                        break;
-                    case "year":
-                        try {
-                            film.setYear(Integer.parseInt(value));
-                        } catch (NumberFormatException e) {
-                            System.err.println("Year parsing error: " + e.getMessage());
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = indexOf(text, '\n', lineStart, end);
+            int colon = indexOf(text, ':', lineStart, lineEnd);
+            if (colon < lineEnd) {
+                setField(film, text, lineStart, colon, colon + 1, lineEnd);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return film; // Return the populated film object
+    }
+
+    private static void setField(Film film, CharSequence text, int keyStart, int keyEnd, int valueStart,
+            int valueEnd) {
+        keyStart = skipWhitespace(text, keyStart, keyEnd);
+        keyEnd = trimWhitespace(text, keyStart, keyEnd);
+        valueStart = skipWhitespace(text, valueStart, valueEnd);
+        valueEnd = trimWhitespace(text, valueStart, valueEnd);
+        if (keyEquals(text, keyStart, keyEnd, "title")) {
+            film.setTitle(text.subSequence(valueStart, valueEnd).toString());
+        } else if (keyEquals(text, keyStart, keyEnd, "year")) {
+            try {
+                film.setYear(Integer.parseInt(text, valueStart, valueEnd, 10));
+            } catch (NumberFormatException e) {
+                logger.debug("Year parsing error: {}", e.getMessage());
+            }
+        } else if (keyEquals(text, keyStart, keyEnd, "director")) {
+            film.setDirector(text.subSequence(valueStart, valueEnd).toString());
+        } else if (keyEquals(text, keyStart, keyEnd, "stars")) {
+            film.setStars(text.subSequence(valueStart, valueEnd).toString());
+        } else if (keyEquals(text, keyStart, keyEnd, "review")) {
+            film.setReview(text.subSequence(valueStart, valueEnd).toString());
+        }
+    }
+
+    // Compares a key with a lower-case name, ignoring the key's case.
+    private static boolean keyEquals(CharSequence text, int start, int end, String name) {
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.toLowerCase(text.charAt(start + i)) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the index of c in [start, end), or end if it does not occur.
+    private static int indexOf(CharSequence text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    // Whitespace is what String.trim removes: every character up to and including the space.
+    private static int skipWhitespace(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimWhitespace(CharSequence text, int start, int end) {
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isBlank(CharSequence text, int start, int end) {
+        return skipWhitespace(text, start, end) == end;
+    }
+
+    // Checks whether the line in [start, end) is a "---" record separator, ignoring surrounding whitespace.
+    private static boolean isSeparator(CharSequence text, int start, int end) {
+        start = skipWhitespace(text, start, end);
+        end = trimWhitespace(text, start, end);
+        return end - start == 3 && text.charAt(start) == '-' && text.charAt(start + 1) == '-'
+                && text.charAt(start + 2) == '-';
+    }
+
+    // Checks whether the line in [start, end) is the "Next-Cursor:" line written after a page of records.
+    private static boolean isCursorLine(CharSequence text, int start, int end) {
+        int colon = indexOf(text, ':', start, end);
+        if (colon == end) {
+            return false;
+        }
+        start = skipWhitespace(text, start, colon);
+        return keyEquals(text, start, trimWhitespace(text, start, colon), "next-cursor");
+    }
+
+    /*
+     * Creates a reader over a text request body holding one or more film records separated by "---" lines.
+     * The body is read in fixed-size chunks and each record is gathered into one reused buffer and parsed
+     * from there, so neither lines nor records are turned into Strings. Blank records are skipped, as are
+     * "Next-Cursor:" lines, so a page of text output can be posted back as it was fetched.
+     * @param in The request body.
+     * @return A FilmRecordReader over the films in the body.
+     */
+    public FilmRecordReader newRecordReader(Reader in) {
+        return new FilmRecordReader() {
+            private final char[] buffer = new char[8192];
+            private final StringBuilder record = new StringBuilder(512);
+            private int position;
+            private int limit;
+            private boolean done;
+            private Film film;
+
+            @Override
+            public boolean next() throws IOException {
+                record.setLength(0);
+                int lineStart = 0;
+                while (true) {
+                    if (position == limit) {
+                        position = 0;
+                        if (done || (limit = in.read(buffer)) < 0) {
+                            limit = 0;
+                            done = true;
+                            break;
+                        }
+                    }
+                    char c = buffer[position++];
+                    if (c != '\n') {
+                        record.append(c);
+                    } else if (isCursorLine(record, lineStart, record.length())) {
+                        // The cursor line that ends a page of text output, so a fetched page can be posted back.
+                        record.setLength(lineStart);
+                    } else if (!isSeparator(record, lineStart, record.length())) {
+                        record.append('\n');
+                        lineStart = record.length();
+                    } else {
+                        record.setLength(lineStart);
+                        if (!isBlank(record, 0, lineStart)) {
+                            film = parseRecord(record, 0, lineStart);
+                            return true;
                         }
-                        break;
-                    case "director":
-                        film.setDirector(value);
-                        break;
-                    case "stars":
-                        film.setStars(value);
-                        break;
-                    case "review":
-                        film.setReview(value);
-                        break;
+                        record.setLength(0);
+                        lineStart = 0;
+                    }
                 }
+                // The body has ended; its last record needs no closing separator.
+                int end = isSeparator(record, lineStart, record.length())
+                        || isCursorLine(record, lineStart, record.length()) ? lineStart : record.length();
+                if (isBlank(record, 0, end)) {
+                    return false;
+                }
+                film = parseRecord(record, 0, end);
+                return true;
+            }
+
+            @Override
+            public Film getFilm() {
+                return film;
             }
+
+            @Override
+            public String getError() {
+                return null;
+            }
+        };
+    }
+
+    /*
+     * Writes text records field by field straight to a Writer, in the layout of appendFilm, so a record is
+     * never assembled in a builder and copied again on its way into the Writer's own buffer.
+     */
+    private static final class RecordWriter {
+        private final Writer out;
+        private final FilmFields fields;
+
+        RecordWriter(Writer out, FilmFields fields) {
+            this.out = out;
+            this.fields = fields;
+        }
+
+        void write(Film film, boolean separator) throws IOException {
+            writeField("Id: ", Integer.toString(film.getId()));
+            if (fields.includes(FilmFields.Field.TITLE)) {
+                writeField("Title: ", film.getTitle());
+            }
+            if (fields.includes(FilmFields.Field.YEAR)) {
+                writeField("Year: ", Integer.toString(film.getYear()));
+            }
+            if (fields.includes(FilmFields.Field.DIRECTOR)) {
+                writeField("Director: ", film.getDirector());
+            }
+            if (fields.includes(FilmFields.Field.STARS)) {
+                writeField("Stars: ", film.getStars());
+            }
+            if (fields.includes(FilmFields.Field.REVIEW)) {
+                writeField("Review: ", film.getReview());
+            }
+            if (separator) {
+                out.write(SEPARATOR);
+            }
+        }
+
+        // Missing values are written as "null", as appendFilm does.
+        private void writeField(String key, String value) throws IOException {
+            out.write(key);
+            out.write(String.valueOf(value));
+            out.write(NEWLINE);
         }
-        return film; // Return the populated film object
     }
 }
\ No newline at end of file
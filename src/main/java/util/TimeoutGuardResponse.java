@@ -0,0 +1,219 @@
+package util;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/*
+ * Response wrapper that arbitrates between an asynchronous request's worker and its timeout.
+ * Whichever side claims the response first owns it: the worker claims it as soon as it starts writing
+ * a body, the timeout claims it to send a 503. Once the timeout has won, everything the worker does
+ * to the response is ignored and any attempt to write fails with an IOException, so a late worker can
+ * never corrupt the timeout response. Headers and status can be set freely until then.
+ */
+class TimeoutGuardResponse extends HttpServletResponseWrapper {
+    private boolean claimed;
+    private boolean timedOut;
+
+    TimeoutGuardResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    /*
+     * Claims the response for the worker.
+     * @return false if the request has already timed out.
+     */
+    synchronized boolean claim() {
+        if (timedOut) {
+            return false;
+        }
+        claimed = true;
+        return true;
+    }
+
+    /*
+     * Claims the response for the timeout and, if that succeeds, sends an error response in place of
+     * whatever the worker would have written. Nothing has been written to the body at this point.
+     * @return false if the worker has already started writing the response.
+     */
+    synchronized boolean timeOut(int status, String message) throws IOException {
+        if (claimed) {
+            return false;
+        }
+        timedOut = true;
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        if (!response.isCommitted()) {
+            response.setHeader("Retry-After", "1");
+            response.sendError(status, message);
+        }
+        return true;
+    }
+
+    synchronized boolean isTimedOut() {
+        return timedOut;
+    }
+
+    private void claimOrFail() throws IOException {
+        if (!claim()) {
+            throw new IOException("Request timed out");
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        claimOrFail();
+        return super.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        claimOrFail();
+        return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        claimOrFail();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        claimOrFail();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        claimOrFail();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        claimOrFail();
+        super.sendRedirect(location);
+    }
+
+    @Override
+    public synchronized boolean isCommitted() {
+        return timedOut || super.isCommitted();
+    }
+
+    @Override
+    public synchronized void setStatus(int sc) {
+        if (!timedOut) {
+            super.setStatus(sc);
+        }
+    }
+
+    @Override
+    public synchronized void setHeader(String name, String value) {
+        if (!timedOut) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public synchronized void addHeader(String name, String value) {
+        if (!timedOut) {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public synchronized void setIntHeader(String name, int value) {
+        if (!timedOut) {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public synchronized void addIntHeader(String name, int value) {
+        if (!timedOut) {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public synchronized void setDateHeader(String name, long date) {
+        if (!timedOut) {
+            super.setDateHeader(name, date);
+        }
+    }
+
+    @Override
+    public synchronized void addDateHeader(String name, long date) {
+        if (!timedOut) {
+            super.addDateHeader(name, date);
+        }
+    }
+
+    @Override
+    public synchronized void addCookie(Cookie cookie) {
+        if (!timedOut) {
+            super.addCookie(cookie);
+        }
+    }
+
+    @Override
+    public synchronized void setContentType(String type) {
+        if (!timedOut) {
+            super.setContentType(type);
+        }
+    }
+
+    @Override
+    public synchronized void setCharacterEncoding(String charset) {
+        if (!timedOut) {
+            super.setCharacterEncoding(charset);
+        }
+    }
+
+    @Override
+    public synchronized void setContentLength(int len) {
+        if (!timedOut) {
+            super.setContentLength(len);
+        }
+    }
+
+    @Override
+    public synchronized void setContentLengthLong(long len) {
+        if (!timedOut) {
+            super.setContentLengthLong(len);
+        }
+    }
+
+    @Override
+    public synchronized void setLocale(Locale locale) {
+        if (!timedOut) {
+            super.setLocale(locale);
+        }
+    }
+
+    @Override
+    public synchronized void setBufferSize(int size) {
+        if (!timedOut) {
+            super.setBufferSize(size);
+        }
+    }
+
+    @Override
+    public synchronized void reset() {
+        if (!timedOut) {
+            super.reset();
+        }
+    }
+
+    @Override
+    public synchronized void resetBuffer() {
+        if (!timedOut) {
+            super.resetBuffer();
+        }
+    }
+}
@@ -1,23 +1,54 @@
 package util;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.stream.XMLStreamException;
 
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Marshaller;
 import jakarta.xml.bind.Unmarshaller;
+import logging.Logger;
+import models.Film;
+import models.FilmFields;
+import models.Films;
 
 /*
  * Utility class that handles XML conversions using JAXB for marshall (object to XML)
  * and unmarshall (XML to object) operations.
+ * JAXBContexts are built once per class and cached, and marshallers and unmarshallers, which are
+ * not thread-safe, are borrowed from per-class pools, so they are reused on virtual threads too.
+ * Film and Films can optionally bypass JAXB entirely through a hand-written codec that produces
+ * the same XML (xml.fastPath in config.properties).
  * This class uses a singleton pattern to ensure only one instance is used throughout the application.
  */
 public class XmlConverter {
     private static XmlConverter instance;
-    
- // Private constructor to prevent external instantiation.
-    private XmlConverter() {}
+    private static final Logger logger = Logger.getLogger(XmlConverter.class);
+
+    private final Map<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectPool<Marshaller>> documentMarshallers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectPool<Marshaller>> fragmentMarshallers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectPool<Unmarshaller>> unmarshallers = new ConcurrentHashMap<>();
+    private final boolean fastPath;
+    private final FilmXmlCodec codec = new FilmXmlCodec();
+
+    // Private constructor that builds the contexts for the model classes up front.
+    private XmlConverter() {
+        this.fastPath = AppConfig.getInstance().getBoolean("xml.fastPath", true);
+        try {
+            getContext(Film.class);
+            getContext(Films.class);
+        } catch (JAXBException e) {
+            logger.error("Error creating JAXB contexts: " + e.getMessage(), e);
+        }
+    }
 
     /*
      * Provides a synchronised, thread-safe method to obtain a singleton instance of the XmlConverter.
@@ -30,6 +61,55 @@ public class XmlConverter {
         return instance;
     }
 
+    /*
+     * Returns the cached JAXBContext for a class, creating it on first use.
+     */
+    private JAXBContext getContext(Class<?> clazz) throws JAXBException {
+        JAXBContext context = contexts.get(clazz);
+        if (context == null) {
+            context = JAXBContext.newInstance(clazz);
+            JAXBContext existing = contexts.putIfAbsent(clazz, context);
+            if (existing != null) {
+                context = existing;
+            }
+        }
+        return context;
+    }
+
+    /*
+     * Borrows a formatted marshaller for a class, creating it if none is idle. Release it when done.
+     */
+    private Marshaller borrowMarshaller(Class<?> clazz, boolean fragment) throws JAXBException {
+        return marshallerPool(clazz, fragment).borrow(() -> {
+            Marshaller marshaller = getContext(clazz).createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, fragment);
+            return marshaller;
+        });
+    }
+
+    private void releaseMarshaller(Class<?> clazz, boolean fragment, Marshaller marshaller) {
+        marshallerPool(clazz, fragment).release(marshaller);
+    }
+
+    private ObjectPool<Marshaller> marshallerPool(Class<?> clazz, boolean fragment) {
+        return (fragment ? fragmentMarshallers : documentMarshallers).computeIfAbsent(clazz,
+                c -> ObjectPool.fromConfig());
+    }
+
+    /*
+     * Unmarshals a document as the given class with a pooled unmarshaller.
+     */
+    private Object unmarshal(Class<?> clazz, Reader in) throws JAXBException {
+        ObjectPool<Unmarshaller> pool = unmarshallers.computeIfAbsent(clazz, c -> ObjectPool.fromConfig());
+        Unmarshaller unmarshaller = pool.borrow(() -> getContext(clazz).createUnmarshaller());
+        try {
+            return unmarshaller.unmarshal(in);
+        } finally {
+            pool.release(unmarshaller);
+        }
+    }
+
     /*
      * Converts a Java object to its XML representation.
      * @param object The object to convert to XML.
@@ -37,21 +117,159 @@ public class XmlConverter {
      * If an error occurs during conversion, it returns an XML formatted error message.
      */
     public String convertToXml(Object object) {
+        StringWriter writer = new StringWriter();
         try {
-            JAXBContext context = JAXBContext.newInstance(object.getClass());
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            StringWriter writer = new StringWriter();
-            marshaller.marshal(object, writer);
-            String xmlOutput = writer.toString();
-            System.out.println(xmlOutput);
-            return xmlOutput;
-        } catch (JAXBException e) {
-            System.err.println("JAXB conversion error: " + e.getMessage());
+            writeXml(object, writer);
+            return writer.toString();
+        } catch (IOException e) {
+            logger.error("Error writing XML: {}", e.getMessage());
             return "<response>Error occurred: " + e.getMessage() + "</response>";
         }
     }
 
+    /*
+     * Marshals an object directly to the given output without building an intermediate String.
+     * @param object The object to convert to XML.
+     * @param out The destination the XML is written to.
+     * @throws IOException If the object cannot be marshalled or written.
+     */
+    public void writeXml(Object object, Writer out) throws IOException {
+        if (fastPath && object instanceof Film) {
+            out.write(FilmXmlCodec.PROLOGUE);
+            codec.writeFilm((Film) object, out, 0);
+            out.flush();
+            return;
+        }
+        if (fastPath && object instanceof Films) {
+            Films films = (Films) object;
+            FilmStreamWriter writer = newPageWriter(out);
+            if (films.getFilms() != null) {
+                for (Film film : films.getFilms()) {
+                    writer.write(film);
+                }
+            }
+            writer.setNextCursor(films.getNextCursor());
+            writer.finish();
+            return;
+        }
+        try {
+            Marshaller marshaller = borrowMarshaller(object.getClass(), false);
+            try {
+                marshaller.marshal(object, out);
+            } finally {
+                releaseMarshaller(object.getClass(), false, marshaller);
+            }
+            out.flush();
+        } catch (JAXBException e) {
+            throw new IOException("JAXB conversion error: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Writes a single <film> document holding only the selected fields.
+     * Projected output always goes through the hand-written codec, since JAXB cannot leave out properties.
+     * @param film The film to write.
+     * @param fields The fields to include; ALL gives the same output as writeXml.
+     * @param out The destination the XML is written to.
+     * @throws IOException If the film cannot be written.
+     */
+    public void writeFilm(Film film, FilmFields fields, Writer out) throws IOException {
+        if (fields.isAll()) {
+            writeXml(film, out);
+            return;
+        }
+        out.write(FilmXmlCodec.PROLOGUE);
+        codec.writeFilm(film, fields, out, 0);
+        out.flush();
+    }
+
+    /*
+     * Creates a writer that streams a <films> document to the given output, writing
+     * each film as soon as it is supplied.
+     * @param out The destination the XML document is written to.
+     * @return A FilmStreamWriter producing the same elements as convertToXml on a Films object.
+     * @throws IOException If the marshaller cannot be created or the prologue cannot be written.
+     */
+    public FilmStreamWriter newStreamWriter(Writer out) throws IOException {
+        return newFilmsWriter(out, false, FilmFields.ALL);
+    }
+
+    /*
+     * Creates a writer that streams a <films> document holding only the selected fields of each film.
+     */
+    public FilmStreamWriter newStreamWriter(Writer out, FilmFields fields) throws IOException {
+        return newFilmsWriter(out, false, fields);
+    }
+
+    /*
+     * Creates a writer that streams one page of films as a <films> document, closed off with a
+     * <nextCursor> element unless it is the last page.
+     * @param out The destination the XML document is written to.
+     * @return A FilmStreamWriter for a paged response.
+     */
+    public FilmStreamWriter newPageWriter(Writer out) throws IOException {
+        return newFilmsWriter(out, true, FilmFields.ALL);
+    }
+
+    /*
+     * Creates a writer that streams one page of films holding only the selected fields of each film.
+     */
+    public FilmStreamWriter newPageWriter(Writer out, FilmFields fields) throws IOException {
+        return newFilmsWriter(out, true, fields);
+    }
+
+    private FilmStreamWriter newFilmsWriter(Writer out, boolean paged, FilmFields fields) throws IOException {
+        Marshaller marshaller = null;
+        if (!fastPath && fields.isAll()) {
+            try {
+                marshaller = borrowMarshaller(Film.class, true);
+            } catch (JAXBException e) {
+                throw new IOException("JAXB conversion error: " + e.getMessage(), e);
+            }
+        }
+        Marshaller fragmentMarshaller = marshaller;
+
+        out.write(FilmXmlCodec.PROLOGUE);
+        out.write("<films>\n");
+        return new FilmStreamWriter() {
+            private String nextCursor;
+
+            @Override
+            public void write(Film film) throws IOException {
+                if (fragmentMarshaller == null) {
+                    codec.writeFilm(film, fields, out, 1);
+                    return;
+                }
+                try {
+                    fragmentMarshaller.marshal(film, out);
+                    out.write('\n');
+                } catch (JAXBException e) {
+                    throw new IOException("JAXB conversion error: " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public void setNextCursor(String cursor) {
+                if (paged) {
+                    this.nextCursor = cursor;
+                }
+            }
+
+            @Override
+            public void finish() throws IOException {
+                if (fragmentMarshaller != null) {
+                    // Not released if the stream fails before finishing; the pool then builds another.
+                    releaseMarshaller(Film.class, true, fragmentMarshaller);
+                }
+                if (nextCursor != null) {
+                    codec.writeNextCursor(nextCursor, out, 1);
+                }
+                out.write("</films>\n");
+                out.flush();
+            }
+        };
+    }
+
     /*
      * Converts an XML string back into an object of the specified class type.
      * @param xml The XML string to convert.
@@ -60,13 +278,56 @@ public class XmlConverter {
      * @throws RuntimeException if there is an error during the unmarshalling process.
      */
     public <T> T convertFromXml(String xml, Class<T> clazz) {
+        if (fastPath && clazz == Film.class) {
+            try {
+                return clazz.cast(codec.readFilm(new StringReader(xml)));
+            } catch (XMLStreamException e) {
+                logger.debug("XML parsing error: {}", e.getMessage());
+                throw new RuntimeException("Error processing XML data", e);
+            }
+        }
         try {
-            JAXBContext context = JAXBContext.newInstance(clazz);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            return clazz.cast(unmarshaller.unmarshal(new StringReader(xml)));
+            return clazz.cast(unmarshal(clazz, new StringReader(xml)));
         } catch (JAXBException e) {
-            System.err.println("JAXB unmarshalling error: " + e.getMessage());
+            logger.debug("JAXB unmarshalling error: {}", e.getMessage());
             throw new RuntimeException("Error processing XML data", e);
         }
     }
-}
\ No newline at end of file
+
+    /*
+     * Reads an XML document from the given input as an object of the specified class.
+     * @param in The input holding the XML document.
+     * @param clazz The class of the object to which the XML should be converted.
+     * @return The object read from the XML.
+     * @throws IOException If the input is not a valid XML document for the class.
+     */
+    public <T> T readXml(Reader in, Class<T> clazz) throws IOException {
+        if (fastPath && clazz == Film.class) {
+            try {
+                return clazz.cast(codec.readFilm(in));
+            } catch (XMLStreamException e) {
+                throw new IOException("Malformed XML: " + e.getMessage(), e);
+            }
+        }
+        try {
+            return clazz.cast(unmarshal(clazz, in));
+        } catch (JAXBException | ClassCastException e) {
+            throw new IOException("Malformed XML: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Creates a reader over an XML request body holding either a single <film> or a <films> document.
+     * Films are read one at a time with StAX, so the document is never held in memory as a whole.
+     * @param in The request body.
+     * @return A FilmRecordReader over the films in the body.
+     * @throws IOException If the body is not well-formed or has an unexpected root element.
+     */
+    public FilmRecordReader newRecordReader(Reader in) throws IOException {
+        try {
+            return codec.newRecordReader(in);
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed XML: " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,17 +1,45 @@
 package util;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import logging.Logger;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.TypeDescription;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.constructor.ConstructorException;
 import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.introspector.Property;
+import org.yaml.snakeyaml.nodes.NodeTuple;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.representer.Representer;
 
 import models.Film;
+import models.FilmFields;
 
 /*
  * Utility class for converting objects to and from YAML format using the SnakeYAML library.
+ * Yaml instances are not thread-safe and costly to build, so they are grouped into engines that are
+ * borrowed from a pool for each conversion, or for the life of a streamed response, and then returned;
+ * each is configured once with the Film type description and reused, on virtual threads as well (see Engine).
+ * Besides the single-document form, lists can be written as a YAML stream with one film per "---"
+ * document, the same form the bulk endpoint reads lazily, document by document.
  * Implements the Singleton pattern to provide a single globally accessible instance.
  */
 public class YamlConverter {
     private static YamlConverter instance;
+    private static final Logger logger = Logger.getLogger(YamlConverter.class);
+
+    private final ObjectPool<Engine> engines = ObjectPool.fromConfig();
 
  // Private constructor ensures that this class cannot be instantiated from outside.
     private YamlConverter() {}
@@ -33,12 +61,248 @@ public class YamlConverter {
      * @return The YAML string representation of the object.
      */
     public String convertToYaml(Object object) {
+        Engine engine = engines.borrow(Engine::new);
         try {
-            Yaml yaml = new Yaml();
-            return yaml.dump(object);
+            return engine.dumper(FilmFields.ALL).dump(object);
         } catch (YAMLException e) {
-            System.err.println("YAML conversion error: " + e.getMessage());
+            logger.error("YAML conversion error: {}", e.getMessage());
             return null;
+        } finally {
+            engines.release(engine);
+        }
+    }
+
+    /*
+     * Writes the YAML representation of an object directly to the given output.
+     * Lists are emitted one element at a time.
+     * @param object The object to be converted to YAML.
+     * @param out The destination the YAML is written to.
+     * @throws IOException If there is an error writing to the output.
+     */
+    public void writeYaml(Object object, Writer out) throws IOException {
+        Engine engine = engines.borrow(Engine::new);
+        try {
+            Yaml yaml = engine.dumper(FilmFields.ALL);
+            if (object instanceof List<?> && !((List<?>) object).isEmpty()) {
+                for (Object item : (List<?>) object) {
+                    dump(yaml, Collections.singletonList(item), out);
+                }
+            } else {
+                dump(yaml, object, out);
+            }
+        } finally {
+            engines.release(engine);
+        }
+        out.flush();
+    }
+
+    /*
+     * Writes a single film holding only the selected fields.
+     * @param film The film to write.
+     * @param fields The fields to include; ALL gives the same output as writeYaml.
+     * @param out The destination the YAML is written to.
+     * @throws IOException If there is an error writing to the output.
+     */
+    public void writeFilm(Film film, FilmFields fields, Writer out) throws IOException {
+        Engine engine = engines.borrow(Engine::new);
+        try {
+            dump(engine.dumper(fields), film, out);
+        } finally {
+            engines.release(engine);
+        }
+        out.flush();
+    }
+
+    /*
+     * Writes an object as a single document of a YAML stream: a film as an untagged mapping holding only
+     * the selected fields, anything else as writeYaml would, each after a "---" marker.
+     * @param object The film or other response object to write.
+     * @param fields The fields to include for a film.
+     * @param out The destination the document is written to.
+     * @throws IOException If there is an error writing to the output.
+     */
+    public void writeDocument(Object object, FilmFields fields, Writer out) throws IOException {
+        Engine engine = engines.borrow(Engine::new);
+        try {
+            dump(engine.documentDumper(fields), object, out);
+        } finally {
+            engines.release(engine);
+        }
+        out.flush();
+    }
+
+    /*
+     * Leaves unselected properties out of Film mappings.
+     */
+    private static final class ProjectingRepresenter extends Representer {
+        private final FilmFields fields;
+
+        ProjectingRepresenter(FilmFields fields, DumperOptions options) {
+            super(options);
+            this.fields = fields;
+        }
+
+        @Override
+        protected NodeTuple representJavaBeanProperty(Object javaBean, Property property, Object propertyValue,
+                Tag customTag) {
+            if (javaBean instanceof Film && !fields.includes(property.getName())) {
+                return null;
+            }
+            return super.representJavaBeanProperty(javaBean, property, propertyValue, customTag);
+        }
+    }
+
+    /*
+     * Creates a writer that streams a YAML sequence of films to the given output, one item at a time.
+     * Each film is dumped as a one-element sequence, which concatenates into the same block
+     * sequence that convertToYaml produces for the whole list.
+     * @param out The destination the YAML sequence is written to.
+     * @return A FilmStreamWriter producing the same output as convertToYaml on a list of films.
+     */
+    public FilmStreamWriter newStreamWriter(Writer out) {
+        return newStreamWriter(out, FilmFields.ALL);
+    }
+
+    /*
+     * Creates a writer that streams a YAML sequence of films holding only the selected fields.
+     */
+    public FilmStreamWriter newStreamWriter(Writer out, FilmFields fields) {
+        // Held until the list is finished; a stream that fails part way leaves it to the garbage collector.
+        Engine engine = engines.borrow(Engine::new);
+        Yaml yaml = engine.dumper(fields);
+        return new FilmStreamWriter() {
+            private boolean empty = true;
+
+            @Override
+            public void write(Film film) throws IOException {
+                dump(yaml, Collections.singletonList(film), out);
+                empty = false;
+            }
+
+            @Override
+            public void finish() throws IOException {
+                if (empty) {
+                    dump(yaml, Collections.emptyList(), out);
+                }
+                engines.release(engine);
+                out.flush();
+            }
+        };
+    }
+
+    /*
+     * Creates a writer that streams one page of films as a mapping with a "films" sequence,
+     * followed by a "nextCursor" key unless it is the last page.
+     * @param out The destination the YAML document is written to.
+     * @return A FilmStreamWriter for a paged response.
+     */
+    public FilmStreamWriter newPageWriter(Writer out) throws IOException {
+        return newPageWriter(out, FilmFields.ALL);
+    }
+
+    /*
+     * Creates a writer that streams one page of films holding only the selected fields.
+     */
+    public FilmStreamWriter newPageWriter(Writer out, FilmFields fields) throws IOException {
+        Engine engine = engines.borrow(Engine::new);
+        Yaml yaml = engine.dumper(fields);
+        out.write("films:");
+        return new FilmStreamWriter() {
+            private boolean empty = true;
+            private String nextCursor;
+
+            @Override
+            public void write(Film film) throws IOException {
+                if (empty) {
+                    out.write('\n');
+                    empty = false;
+                }
+                dump(yaml, Collections.singletonList(film), out);
+            }
+
+            @Override
+            public void setNextCursor(String cursor) {
+                this.nextCursor = cursor;
+            }
+
+            @Override
+            public void finish() throws IOException {
+                engines.release(engine);
+                if (empty) {
+                    out.write(" []\n");
+                }
+                if (nextCursor != null) {
+                    // Cursors are URL-safe Base64, which is always a valid plain scalar.
+                    out.write("nextCursor: " + nextCursor + "\n");
+                }
+                out.flush();
+            }
+        };
+    }
+
+    /*
+     * Creates a writer that streams films as a YAML stream, one untagged film mapping per "---" document,
+     * which the bulk endpoint accepts as it is. Nothing is written for an empty list.
+     * @param out The destination the documents are written to.
+     * @param fields The fields written for each film.
+     * @return A FilmStreamWriter for an unpaged list.
+     */
+    public FilmStreamWriter newDocumentStreamWriter(Writer out, FilmFields fields) {
+        Engine engine = engines.borrow(Engine::new);
+        Yaml yaml = engine.documentDumper(fields);
+        return new FilmStreamWriter() {
+            @Override
+            public void write(Film film) throws IOException {
+                dump(yaml, film, out);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                engines.release(engine);
+                out.flush();
+            }
+        };
+    }
+
+    /*
+     * Creates a writer that streams one page of films as a YAML stream, followed by a "# nextCursor:"
+     * comment unless it is the last page, so the documents still load as films alone.
+     * @param out The destination the documents are written to.
+     * @param fields The fields written for each film.
+     * @return A FilmStreamWriter for a paged response.
+     */
+    public FilmStreamWriter newDocumentPageWriter(Writer out, FilmFields fields) {
+        FilmStreamWriter documents = newDocumentStreamWriter(out, fields);
+        return new FilmStreamWriter() {
+            private String nextCursor;
+
+            @Override
+            public void write(Film film) throws IOException {
+                documents.write(film);
+            }
+
+            @Override
+            public void setNextCursor(String cursor) {
+                this.nextCursor = cursor;
+            }
+
+            @Override
+            public void finish() throws IOException {
+                if (nextCursor != null) {
+                    out.write("# nextCursor: ");
+                    out.write(nextCursor);
+                    out.write('\n');
+                }
+                documents.finish();
+            }
+        };
+    }
+
+    private void dump(Yaml yaml, Object object, Writer out) throws IOException {
+        try {
+            yaml.dump(object, out);
+        } catch (YAMLException e) {
+            throw new IOException("YAML conversion error: " + e.getMessage(), e);
         }
     }
 
@@ -48,12 +312,147 @@ public class YamlConverter {
      * @return A Film object, or null if the conversion fails.
      */
     public Film convertFromYaml(String yamlStr) {
+        Engine engine = engines.borrow(Engine::new);
         try {
-            Yaml yaml = new Yaml(new Constructor(Film.class, null));
-            return yaml.load(yamlStr);
+            return engine.loader(Film.class).load(yamlStr);
         } catch (YAMLException e) {
-            System.err.println("Error loading YAML: " + e.getMessage());
+            logger.debug("Error loading YAML: {}", e.getMessage());
             return null;
+        } finally {
+            engines.release(engine);
+        }
+    }
+
+    /*
+     * Reads a single YAML document from the given input as a Film.
+     * @param in The input holding the YAML document.
+     * @return The film read, or null if the document is empty or is not a mapping.
+     * @throws IOException If the input cannot be read or is not valid YAML for a Film.
+     */
+    public Film readFilm(Reader in) throws IOException {
+        Engine engine = engines.borrow(Engine::new);
+        try {
+            Object document = engine.loader(Film.class).load(in);
+            return document instanceof Film ? (Film) document : null;
+        } catch (YAMLException e) {
+            throw new IOException("Malformed YAML: " + e.getMessage(), e);
+        } finally {
+            engines.release(engine);
+        }
+    }
+
+    /*
+     * Reads every document of a multi-document YAML input as an object of the specified class.
+     * @param in The input holding the YAML documents.
+     * @param clazz The class each document is constructed as.
+     * @return The objects read, in document order.
+     * @throws IOException If the input is not valid YAML or a document does not match the class.
+     */
+    public <T> List<T> readAll(Reader in, Class<T> clazz) throws IOException {
+        Engine engine = engines.borrow(Engine::new);
+        Yaml yaml = engine.loader(clazz);
+        List<T> documents = new ArrayList<>();
+        try {
+            for (Object document : yaml.loadAll(in)) {
+                if (!clazz.isInstance(document)) {
+                    throw new IOException("YAML document is not a " + clazz.getSimpleName());
+                }
+                documents.add(clazz.cast(document));
+            }
+        } catch (YAMLException e) {
+            throw new IOException("Malformed YAML: " + e.getMessage(), e);
+        } finally {
+            engines.release(engine);
+        }
+        return documents;
+    }
+
+    /*
+     * Creates a reader over a multi-document YAML request body, one film per "---" document.
+     * Documents are loaded lazily as the reader advances. A document that cannot be constructed
+     * as a Film is reported as an invalid record; a syntax error ends the read with an IOException.
+     * The reader holds its own Yaml for as long as it is read, since a lazy loadAll keeps its parser
+     * in the Yaml's constructor and would be broken by another load through a pooled one.
+     * @param in The request body.
+     * @return A FilmRecordReader over the films in the body.
+     */
+    public FilmRecordReader newRecordReader(Reader in) {
+        Yaml yaml = Engine.newLoader(Film.class);
+        Iterator<Object> documents = yaml.loadAll(in).iterator();
+        return new FilmRecordReader() {
+            private Film film;
+            private String error;
+
+            @Override
+            public boolean next() throws IOException {
+                try {
+                    if (!documents.hasNext()) {
+                        return false;
+                    }
+                } catch (YAMLException e) {
+                    throw new IOException("Malformed YAML: " + e.getMessage(), e);
+                }
+                try {
+                    Object document = documents.next();
+                    film = document instanceof Film ? (Film) document : null;
+                    error = film == null ? "Document is not a film" : null;
+                } catch (ConstructorException e) {
+                    film = null;
+                    error = "Invalid film: " + e.getMessage();
+                } catch (YAMLException e) {
+                    throw new IOException("Malformed YAML: " + e.getMessage(), e);
+                }
+                return true;
+            }
+
+            @Override
+            public Film getFilm() {
+                return film;
+            }
+
+            @Override
+            public String getError() {
+                return error;
+            }
+        };
+    }
+
+    /*
+     * A set of Yaml instances used by one borrower at a time, built on first use and then reused: dumpers per
+     * field selection, for the single-document and the multi-document form, and loaders per root type, each
+     * constructed with the type description of its class so Film is introspected once per engine, not per request.
+     * Selections are limited to the combinations of Film's properties, so the dumper maps stay small.
+     */
+    private static final class Engine {
+        private final Map<FilmFields, Yaml> dumpers = new HashMap<>();
+        private final Map<FilmFields, Yaml> documentDumpers = new HashMap<>();
+        private final Map<Class<?>, Yaml> loaders = new HashMap<>();
+
+        Yaml dumper(FilmFields fields) {
+            return dumpers.computeIfAbsent(fields, selection -> selection.isAll() ? new Yaml()
+                    : new Yaml(new ProjectingRepresenter(selection, new DumperOptions())));
+        }
+
+        Yaml documentDumper(FilmFields fields) {
+            return documentDumpers.computeIfAbsent(fields, selection -> {
+                DumperOptions options = new DumperOptions();
+                options.setExplicitStart(true);
+                Representer representer = new ProjectingRepresenter(selection, options);
+                // Films are the only document type, so they need no !!models.Film tag.
+                representer.addClassTag(Film.class, Tag.MAP);
+                return new Yaml(representer, options);
+            });
+        }
+
+        Yaml loader(Class<?> root) {
+            return loaders.computeIfAbsent(root, Engine::newLoader);
+        }
+
+        static Yaml newLoader(Class<?> root) {
+            LoaderOptions options = new LoaderOptions();
+            DumperOptions dumperOptions = new DumperOptions();
+            return new Yaml(new Constructor(new TypeDescription(root), options), new Representer(dumperOptions),
+                    dumperOptions, options);
         }
     }
-}
\ No newline at end of file
+}